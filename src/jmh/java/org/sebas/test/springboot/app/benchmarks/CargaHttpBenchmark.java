@@ -0,0 +1,98 @@
+package org.sebas.test.springboot.app.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prueba de carga HTTP: hilo por peticion de Tomcat (plataforma) contra el perfil de hilos virtuales.
+ * Hay mas clientes concurrentes que hilos de Tomcat para que se note la cola de peticiones.
+ * Las respuestas que no son 200 (bloqueos o conexiones agotadas bajo saturacion) se cuentan en "errores".
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(256)
+public class CargaHttpBenchmark {
+
+    @Param({"plataforma", "virtual"})
+    public String modo;
+
+    @Param({"200"})
+    public int hilosTomcat;
+
+    @Param({"10000"})
+    public int cuentas;
+
+    private ConfigurableApplicationContext contexto;
+    private HttpClient cliente;
+    private String base;
+    private long primerId;
+    private long ultimoId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contexto = ContextoBenchmark.iniciarServidor(
+                "virtual".equals(modo) ? "spring.profiles.active=virtual" : "spring.threads.virtual.enabled=false",
+                "server.tomcat.threads.max=" + hilosTomcat,
+                "app.cuentas.cache.habilitado=false");
+        long[] ids = ContextoBenchmark.crearCuentas(contexto, cuentas, new BigDecimal("1000000000"));
+        primerId = ids[0];
+        ultimoId = ids[1];
+        base = "http://localhost:" + ContextoBenchmark.puerto(contexto) + "/api/cuentas";
+        cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Errores {
+        public long errores;
+    }
+
+    @Benchmark
+    public int transferir(Errores errores) throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long origen = random.nextLong(primerId, ultimoId + 1);
+        long destino = random.nextLong(primerId, ultimoId);
+        if (destino >= origen) {
+            destino++;
+        }
+        String cuerpo = "{\"cuentaOrigenId\":" + origen + ",\"cuentaDestinoId\":" + destino
+                + ",\"monto\":1,\"bancoId\":1}";
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create(base + "/transferir"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                .build();
+        return verificar(cliente.send(peticion, HttpResponse.BodyHandlers.discarding()), errores);
+    }
+
+    @Benchmark
+    public int detalle(Errores errores) throws IOException, InterruptedException {
+        long id = ThreadLocalRandom.current().nextLong(primerId, ultimoId + 1);
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create(base + "/" + id)).GET().build();
+        return verificar(cliente.send(peticion, HttpResponse.BodyHandlers.discarding()), errores);
+    }
+
+    private static int verificar(HttpResponse<?> respuesta, Errores errores) {
+        if (respuesta.statusCode() != 200) {
+            errores.errores++;
+        }
+        return respuesta.statusCode();
+    }
+}
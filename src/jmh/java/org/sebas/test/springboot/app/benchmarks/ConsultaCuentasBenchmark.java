@@ -0,0 +1,62 @@
+package org.sebas.test.springboot.app.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.CuentaDto;
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//findById y findAll con distintos tamanos de tabla
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConsultaCuentasBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int tamano;
+
+    @Param({"false", "true"})
+    public boolean cache;
+
+    private ConfigurableApplicationContext contexto;
+    private CuentaService service;
+    private long primerId;
+    private long ultimoId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contexto = ContextoBenchmark.iniciar("app.cuentas.cache.habilitado=" + cache);
+        long[] ids = ContextoBenchmark.crearCuentas(contexto, tamano, new BigDecimal("1000"));
+        primerId = ids[0];
+        ultimoId = ids[1];
+        service = contexto.getBean(CuentaService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Cuenta findById() {
+        return service.findById(ThreadLocalRandom.current().nextLong(primerId, ultimoId + 1));
+    }
+
+    @Benchmark
+    public List<CuentaDto> findAll() {
+        return service.findAll();
+    }
+
+    @Benchmark
+    public List<CuentaDto> findPagina() {
+        return service.findPagina(ThreadLocalRandom.current().nextLong(primerId, ultimoId + 1), 100).getCuentas();
+    }
+}
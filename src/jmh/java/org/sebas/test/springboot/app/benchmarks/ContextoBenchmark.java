@@ -0,0 +1,69 @@
+package org.sebas.test.springboot.app.benchmarks;
+
+import org.sebas.test.springboot.app.SpringbootTestApplication;
+import org.sebas.test.springboot.app.servicesImpl.SecuenciaCuentas;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+//Levanta la aplicacion sobre H2 en memoria para los benchmarks
+final class ContextoBenchmark {
+
+    private ContextoBenchmark() {
+    }
+
+    //Las propiedades van como argumentos de linea de comandos para ganarle a application.properties
+    static ConfigurableApplicationContext iniciar(String... propiedades) {
+        return iniciar(WebApplicationType.NONE, propiedades);
+    }
+
+    //Con Tomcat en un puerto libre, para las pruebas de carga HTTP
+    static ConfigurableApplicationContext iniciarServidor(String... propiedades) {
+        return iniciar(WebApplicationType.SERVLET, Stream.concat(Stream.of("server.port=0"), Stream.of(propiedades))
+                .toArray(String[]::new));
+    }
+
+    static int puerto(ConfigurableApplicationContext contexto) {
+        return ((ServletWebServerApplicationContext) contexto).getWebServer().getPort();
+    }
+
+    private static ConfigurableApplicationContext iniciar(WebApplicationType tipo, String... propiedades) {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        String[] argumentos = Stream.concat(Stream.of(
+                        "--logging.level.root=OFF",
+                        "--logging.level.org.hibernate.SQL=OFF",
+                        "--spring.main.banner-mode=off"),
+                Stream.of(propiedades).map(propiedad -> "--" + propiedad))
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(SpringbootTestApplication.class)
+                .web(tipo)
+                .run(argumentos);
+    }
+
+    //Inserta las cuentas con lotes JDBC y devuelve el rango de ids creado
+    static long[] crearCuentas(ConfigurableApplicationContext contexto, int cantidad, BigDecimal saldo) {
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        SecuenciaCuentas secuencia = contexto.getBean(SecuenciaCuentas.class);
+        List<Object[]> filas = new ArrayList<>(1000);
+        long[] rango = {Long.MAX_VALUE, Long.MIN_VALUE};
+        for (int i = 0; i < cantidad; i++) {
+            long id = secuencia.siguiente();
+            rango[0] = Math.min(rango[0], id);
+            rango[1] = Math.max(rango[1], id);
+            filas.add(new Object[]{id, "Bench " + i, "bench " + i, saldo});
+            if (filas.size() == 1000 || i == cantidad - 1) {
+                jdbc.batchUpdate("INSERT INTO cuentas (id, persona, persona_normalizada, saldo, version) VALUES (?, ?, ?, ?, 0)", filas);
+                filas.clear();
+            }
+        }
+        // Los bloques de la secuencia son consecutivos mientras nadie mas la use
+        return rango;
+    }
+}
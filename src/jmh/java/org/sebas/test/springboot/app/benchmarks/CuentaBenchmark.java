@@ -0,0 +1,88 @@
+package org.sebas.test.springboot.app.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sebas.test.springboot.app.exceptions.DineroInsuficienteException;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.Dinero;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo en memoria de debito/credito, sin base de datos. Los *BigDecimal repiten la aritmetica anterior
+ * sobre BigDecimal como referencia; los *Dinero usan los centavos en long de Cuenta y debito/credito
+ * incluyen ademas la conversion del monto desde BigDecimal. Con -Djmh.args="CuentaBenchmark -prof gc"
+ * se ven los bytes asignados por operacion (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CuentaBenchmark {
+
+    private static final BigDecimal MONTO = new BigDecimal("1.25");
+    private static final Dinero MONTO_DINERO = Dinero.de(MONTO);
+
+    private Cuenta cuenta;
+    private Cuenta cuentaSinFondos;
+    private BigDecimal saldoBigDecimal;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        cuenta = new Cuenta(1L, "Bench", new BigDecimal("1000000000000.00"));
+        cuentaSinFondos = new Cuenta(2L, "Bench sin fondos", new BigDecimal("1.00"));
+        saldoBigDecimal = new BigDecimal("1000000000000.00");
+    }
+
+    @Benchmark
+    public BigDecimal debito() {
+        cuenta.debito(MONTO);
+        return cuenta.getSaldo();
+    }
+
+    @Benchmark
+    public BigDecimal credito() {
+        cuenta.credito(MONTO);
+        return cuenta.getSaldo();
+    }
+
+    @Benchmark
+    public Dinero debitoDinero() {
+        cuenta.debito(MONTO_DINERO);
+        return cuenta.getSaldoDinero();
+    }
+
+    @Benchmark
+    public Dinero creditoDinero() {
+        cuenta.credito(MONTO_DINERO);
+        return cuenta.getSaldoDinero();
+    }
+
+    @Benchmark
+    public BigDecimal debitoBigDecimal() {
+        BigDecimal nuevoSaldo = saldoBigDecimal.subtract(MONTO);
+        if (nuevoSaldo.compareTo(BigDecimal.ZERO) < 0) {
+            throw new DineroInsuficienteException("Dinero insuficiente en la cuenta.");
+        }
+        saldoBigDecimal = nuevoSaldo;
+        return saldoBigDecimal;
+    }
+
+    @Benchmark
+    public BigDecimal creditoBigDecimal() {
+        saldoBigDecimal = saldoBigDecimal.add(MONTO);
+        return saldoBigDecimal;
+    }
+
+    @Benchmark
+    public void debitoSinFondos(Blackhole blackhole) {
+        try {
+            cuentaSinFondos.debito(MONTO_DINERO);
+        } catch (DineroInsuficienteException e) {
+            blackhole.consume(e);
+        }
+    }
+}
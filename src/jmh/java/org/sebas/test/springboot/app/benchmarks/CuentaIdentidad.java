@@ -0,0 +1,44 @@
+package org.sebas.test.springboot.app.benchmarks;
+
+import jakarta.persistence.*;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.Dinero;
+
+import java.math.BigDecimal;
+
+//Las mismas columnas que Cuenta pero con id IDENTITY, como antes de las secuencias, para comparar en
+//InsercionCuentasBenchmark. Solo existe en el classpath de los benchmarks
+@Entity
+@Table(name = "cuentas_identidad")
+public class CuentaIdentidad {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String persona;
+
+    @Column(name = "persona_normalizada")
+    private String personaNormalizada;
+
+    @Column(precision = 38, scale = Dinero.ESCALA)
+    private Dinero saldo;
+
+    @Version
+    private Long version;
+
+    @Column(name = "ultimo_movimiento_id")
+    private Long ultimoMovimientoId;
+
+    public CuentaIdentidad() {
+    }
+
+    public CuentaIdentidad(String persona, BigDecimal saldo) {
+        this.persona = persona;
+        this.personaNormalizada = Cuenta.normalizarPersona(persona);
+        this.saldo = Dinero.de(saldo);
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,6 @@
+package org.sebas.test.springboot.app.benchmarks;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CuentaIdentidadRepository extends JpaRepository<CuentaIdentidad, Long> {
+}
@@ -0,0 +1,78 @@
+package org.sebas.test.springboot.app.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.repositories.CuentaRepository;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * saveAll de cuentas nuevas; el resultado es en inserciones por segundo. Con ids=identidad se inserta
+ * CuentaIdentidad, que Hibernate no puede agrupar porque necesita el id generado de cada fila. Con ids=1
+ * cada id cuesta un NEXT VALUE; con bloques mas grandes solo quedan los INSERT, agrupados en lotes JDBC.
+ * Sobre H2 en memoria cada ida a la base es barata: contra un servidor real la diferencia es mayor.
+ * Las tablas se vacian en cada iteracion para que su tamano no cambie el resultado.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 3, jvmArgsAppend = "-Xmx1g")
+@Warmup(iterations = 8, time = 2)
+@Measurement(iterations = 10, time = 2)
+public class InsercionCuentasBenchmark {
+
+    private static final int CUENTAS_POR_LLAMADA = 1000;
+
+    //identidad o el tamano de asignacion de la secuencia
+    @Param({"identidad", "1", "50"})
+    public String ids;
+
+    private ConfigurableApplicationContext contexto;
+    private CuentaRepository repository;
+    private CuentaIdentidadRepository identidadRepository;
+    private boolean identidad;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        identidad = "identidad".equals(ids);
+        contexto = ContextoBenchmark.iniciar("spring.jpa.properties.app.ids.tamano-asignacion="
+                + (identidad ? "50" : ids));
+        repository = contexto.getBean(CuentaRepository.class);
+        identidadRepository = contexto.getBean(CuentaIdentidadRepository.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void vaciar() {
+        if (identidad) {
+            identidadRepository.deleteAllInBatch();
+        } else {
+            repository.deleteAllInBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CUENTAS_POR_LLAMADA)
+    public List<?> saveAll() {
+        if (identidad) {
+            List<CuentaIdentidad> cuentas = new ArrayList<>(CUENTAS_POR_LLAMADA);
+            for (int i = 0; i < CUENTAS_POR_LLAMADA; i++) {
+                cuentas.add(new CuentaIdentidad("Insercion " + i, BigDecimal.TEN));
+            }
+            return identidadRepository.saveAll(cuentas);
+        }
+        List<Cuenta> cuentas = new ArrayList<>(CUENTAS_POR_LLAMADA);
+        for (int i = 0; i < CUENTAS_POR_LLAMADA; i++) {
+            cuentas.add(new Cuenta(null, "Insercion " + i, BigDecimal.TEN));
+        }
+        return repository.saveAll(cuentas);
+    }
+}
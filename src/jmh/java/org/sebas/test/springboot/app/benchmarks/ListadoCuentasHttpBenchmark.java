@@ -0,0 +1,64 @@
+package org.sebas.test.springboot.app.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /api/cuentas completo y paginado sobre una tabla grande. Pensado para correr con -prof gc:
+ * gc.alloc.rate.norm es lo que reserva el proceso (servidor y cliente) por peticion.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ListadoCuentasHttpBenchmark {
+
+    @Param({"100000"})
+    public int cuentas;
+
+    private ConfigurableApplicationContext contexto;
+    private HttpClient cliente;
+    private String base;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contexto = ContextoBenchmark.iniciarServidor("app.cuentas.cache.habilitado=false");
+        ContextoBenchmark.crearCuentas(contexto, cuentas, new BigDecimal("1000"));
+        base = "http://localhost:" + ContextoBenchmark.puerto(contexto) + "/api/cuentas";
+        cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public int listar() throws IOException, InterruptedException {
+        return pedir(base);
+    }
+
+    @Benchmark
+    public int listarPagina() throws IOException, InterruptedException {
+        return pedir(base + "?after=0&limit=1000");
+    }
+
+    private int pedir(String uri) throws IOException, InterruptedException {
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create(uri)).GET().build();
+        HttpResponse<Void> respuesta = cliente.send(peticion, HttpResponse.BodyHandlers.discarding());
+        if (respuesta.statusCode() != 200) {
+            throw new IllegalStateException("Respuesta " + respuesta.statusCode());
+        }
+        return respuesta.statusCode();
+    }
+}
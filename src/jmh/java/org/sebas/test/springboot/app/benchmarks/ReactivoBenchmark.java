@@ -0,0 +1,126 @@
+package org.sebas.test.springboot.app.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.sebas.test.springboot.app.ServidorReactivo;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mismas peticiones contra el API MVC (Tomcat + JPA) y el reactivo (Netty + R2DBC) de un mismo contexto.
+ * Cada invocacion lanza "concurrencia" peticiones asincronas a la vez y espera todas; el contador
+ * "peticiones" da las peticiones por segundo y "errores" las respuestas que no son 200.
+ * Ambos lados usan 10 conexiones a la base de datos.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ReactivoBenchmark {
+
+    @Param({"mvc", "reactivo"})
+    public String api;
+
+    @Param({"256", "2048"})
+    public int concurrencia;
+
+    @Param({"10000"})
+    public int cuentas;
+
+    @Param({"2"})
+    public int hilosEventLoop;
+
+    private ConfigurableApplicationContext contexto;
+    private HttpClient cliente;
+    private String base;
+    private long primerId;
+    private long ultimoId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contexto = ContextoBenchmark.iniciarServidor(
+                "app.reactivo.habilitado=true",
+                "app.reactivo.puerto=0",
+                "app.reactivo.hilos=" + hilosEventLoop,
+                "app.reactivo.pool.max=10",
+                "spring.datasource.hikari.maximum-pool-size=10",
+                "app.cuentas.cache.habilitado=false");
+        long[] ids = ContextoBenchmark.crearCuentas(contexto, cuentas, new BigDecimal("1000000000"));
+        primerId = ids[0];
+        ultimoId = ids[1];
+        int puerto = "reactivo".equals(api)
+                ? contexto.getBean(ServidorReactivo.class).getPuerto()
+                : ContextoBenchmark.puerto(contexto);
+        base = "http://localhost:" + puerto + "/api/cuentas";
+        cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Contadores {
+        public long peticiones;
+        public long errores;
+    }
+
+    @Benchmark
+    public void consultarSaldos(Contadores contadores) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<?>[] respuestas = new CompletableFuture<?>[concurrencia];
+        for (int i = 0; i < concurrencia; i++) {
+            long id = random.nextLong(primerId, ultimoId + 1);
+            HttpRequest peticion = HttpRequest.newBuilder(URI.create(base + "/" + id)).GET().build();
+            respuestas[i] = enviar(peticion, contadores);
+        }
+        CompletableFuture.allOf(respuestas).join();
+    }
+
+    @Benchmark
+    public void transferir(Contadores contadores) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<?>[] respuestas = new CompletableFuture<?>[concurrencia];
+        for (int i = 0; i < concurrencia; i++) {
+            long origen = random.nextLong(primerId, ultimoId + 1);
+            long destino = random.nextLong(primerId, ultimoId);
+            if (destino >= origen) {
+                destino++;
+            }
+            String cuerpo = "{\"cuentaOrigenId\":" + origen + ",\"cuentaDestinoId\":" + destino
+                    + ",\"monto\":1,\"bancoId\":1}";
+            HttpRequest peticion = HttpRequest.newBuilder(URI.create(base + "/transferir"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                    .build();
+            respuestas[i] = enviar(peticion, contadores);
+        }
+        CompletableFuture.allOf(respuestas).join();
+    }
+
+    //Las respuestas llegan en los hilos del cliente HTTP, por eso los contadores se sincronizan
+    private CompletableFuture<Integer> enviar(HttpRequest peticion, Contadores contadores) {
+        return cliente.sendAsync(peticion, HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::statusCode)
+                .exceptionally(error -> -1)
+                .whenComplete((estado, error) -> {
+                    synchronized (contadores) {
+                        contadores.peticiones++;
+                        if (estado != 200) {
+                            contadores.errores++;
+                        }
+                    }
+                });
+    }
+}
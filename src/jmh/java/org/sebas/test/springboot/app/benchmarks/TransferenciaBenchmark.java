@@ -0,0 +1,79 @@
+package org.sebas.test.springboot.app.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//CuentaServiceImpl.transferir completo (bloqueo, transaccion, reintentos) sobre H2 embebido
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TransferenciaBenchmark {
+
+    private static final BigDecimal MONTO = BigDecimal.ONE;
+
+    @Param({"optimista", "pesimista"})
+    public String concurrencia;
+
+    @Param({"directo", "libro"})
+    public String saldo;
+
+    @Param({"1000"})
+    public int cuentas;
+
+    //Commit agrupado de CuentaServiceImpl; solo cambia algo con varios hilos
+    @Param({"false", "true"})
+    public boolean agrupar;
+
+    private ConfigurableApplicationContext contexto;
+    private CuentaService service;
+    private long primerId;
+    private long ultimoId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contexto = ContextoBenchmark.iniciar(
+                "app.transferencias.concurrencia=" + concurrencia,
+                "app.cuentas.saldo.modo=" + saldo,
+                "app.transferencias.agrupar.habilitado=" + agrupar,
+                "app.cuentas.cache.habilitado=false");
+        long[] ids = ContextoBenchmark.crearCuentas(contexto, cuentas, new BigDecimal("1000000000"));
+        primerId = ids[0];
+        ultimoId = ids[1];
+        service = contexto.getBean(CuentaService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void transferir() {
+        transferirAlAzar();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void transferirConcurrente() {
+        transferirAlAzar();
+    }
+
+    private void transferirAlAzar() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long origen = random.nextLong(primerId, ultimoId + 1);
+        long destino = random.nextLong(primerId, ultimoId);
+        if (destino >= origen) {
+            destino++;
+        }
+        service.transferir(origen, destino, MONTO, 1L);
+    }
+}
@@ -0,0 +1,119 @@
+package org.sebas.test.springboot.app;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource que limita cuantos hilos pueden usar conexiones a la vez con un semaforo justo.
+ * Con hilos virtuales no hay limite de peticiones concurrentes, asi la espera queda en una cola FIFO
+ * con timeout propio en vez de miles de hilos compitiendo dentro del pool.
+ * El permiso es por hilo: una segunda conexion del mismo hilo (REQUIRES_NEW) no pide otro permiso,
+ * de lo contrario los hilos que ya tienen uno podrian bloquearse entre si.
+ */
+public class DataSourceAcotado extends DelegatingDataSource {
+
+    private final Semaphore permisos;
+    private final int maxConexiones;
+    private final long esperaMaximaMs;
+    private final ThreadLocal<AtomicInteger> conexionesDelHilo = ThreadLocal.withInitial(AtomicInteger::new);
+
+    public DataSourceAcotado(DataSource dataSource, int maxConexiones, long esperaMaximaMs) {
+        super(dataSource);
+        if (maxConexiones <= 0) {
+            throw new IllegalArgumentException("El maximo de conexiones debe ser positivo");
+        }
+        this.permisos = new Semaphore(maxConexiones, true);
+        this.maxConexiones = maxConexiones;
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        AtomicInteger abiertas = adquirir();
+        try {
+            return liberarAlCerrar(super.getConnection(), abiertas);
+        } catch (SQLException | RuntimeException e) {
+            liberar(abiertas);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        AtomicInteger abiertas = adquirir();
+        try {
+            return liberarAlCerrar(super.getConnection(username, password), abiertas);
+        } catch (SQLException | RuntimeException e) {
+            liberar(abiertas);
+            throw e;
+        }
+    }
+
+    public int getMaxConexiones() {
+        return maxConexiones;
+    }
+
+    public int getEnUso() {
+        return maxConexiones - permisos.availablePermits();
+    }
+
+    public int getEsperando() {
+        return permisos.getQueueLength();
+    }
+
+    private AtomicInteger adquirir() throws SQLException {
+        AtomicInteger abiertas = conexionesDelHilo.get();
+        if (abiertas.get() > 0) {
+            abiertas.incrementAndGet();
+            return abiertas;
+        }
+        try {
+            if (!permisos.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("No hubo conexion libre en " + esperaMaximaMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrumpido esperando una conexion", e);
+        }
+        abiertas.incrementAndGet();
+        return abiertas;
+    }
+
+    private void liberar(AtomicInteger abiertas) {
+        if (abiertas.decrementAndGet() == 0) {
+            permisos.release();
+        }
+    }
+
+    //Cada conexion se descuenta una sola vez al cerrarse, aunque se cierre desde otro hilo
+    private Connection liberarAlCerrar(Connection conexion, AtomicInteger abiertas) {
+        AtomicBoolean cerrada = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, metodo, argumentos) -> {
+                    if (metodo.getName().equals("close") && cerrada.compareAndSet(false, true)) {
+                        try {
+                            return metodo.invoke(conexion, argumentos);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        } finally {
+                            liberar(abiertas);
+                        }
+                    }
+                    try {
+                        return metodo.invoke(conexion, argumentos);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,55 @@
+package org.sebas.test.springboot.app;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/*Modo de hilos virtuales (perfil "virtual"): Tomcat, @Scheduled y el trabajo asincrono corren en hilos
+  virtuales y el DataSource queda acotado por un semaforo*/
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class HilosVirtualesConfig {
+
+    @Bean
+    public static BeanPostProcessor acotarDataSource(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof DataSourceAcotado) {
+                    return bean;
+                }
+                int maxConexiones = environment.getProperty("app.jdbc.max-concurrencia", Integer.class, 0);
+                if (maxConexiones <= 0) {
+                    // Por defecto tantos permisos como conexiones tiene el pool (Hikari usa 10 si no se configuro)
+                    int tamanoPool = dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 0;
+                    maxConexiones = tamanoPool > 0 ? tamanoPool : 10;
+                }
+                long esperaMaximaMs = environment.getProperty("app.jdbc.espera-maxima-ms", Long.class, 5000L);
+                return new DataSourceAcotado(dataSource, maxConexiones, esperaMaximaMs);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder metricasDataSourceAcotado(ObjectProvider<DataSource> dataSources) {
+        return registry -> dataSources.orderedStream()
+                .filter(DataSourceAcotado.class::isInstance)
+                .map(DataSourceAcotado.class::cast)
+                .forEach(dataSource -> {
+                    Gauge.builder("jdbc.permisos.en_uso", dataSource, DataSourceAcotado::getEnUso)
+                            .description("Conexiones tomadas a traves del semaforo")
+                            .register(registry);
+                    Gauge.builder("jdbc.permisos.esperando", dataSource, DataSourceAcotado::getEsperando)
+                            .description("Hilos esperando un permiso de conexion")
+                            .register(registry);
+                });
+    }
+}
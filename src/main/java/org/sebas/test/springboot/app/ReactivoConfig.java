@@ -0,0 +1,104 @@
+package org.sebas.test.springboot.app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import jakarta.annotation.PreDestroy;
+import org.sebas.test.springboot.app.controllers.CuentaHandlerReactivo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/*API reactivo (app.reactivo.habilitado=true): /api/cuentas sobre R2DBC en un servidor Netty aparte.
+  El pool R2DBC apunta a la misma base H2 que JPA. Ni el pool ni su transaction manager se publican
+  como beans, asi @Transactional y la auto-configuracion siguen viendo un unico TransactionManager.
+  r2dbc-h2 ejecuta H2 embebido en el hilo que se suscribe: una consulta ocupa el event loop lo que tarda
+  H2 en memoria, sin esperas de red; con una base remota el driver R2DBC de esa base no bloquearia*/
+@Configuration
+@ConditionalOnProperty(name = "app.reactivo.habilitado", havingValue = "true")
+public class ReactivoConfig {
+
+    private ConnectionPool pool;
+
+    @Bean
+    public DatabaseClient clienteReactivo(DataSource dataSource, DataSourceProperties propiedades,
+                                          @Value("${app.reactivo.pool.max:20}") int maxConexiones) throws SQLException {
+        H2ConnectionConfiguration configuracion = H2ConnectionConfiguration.builder()
+                .url(urlH2(dataSource))
+                .username(propiedades.determineUsername())
+                .password(propiedades.determinePassword() == null ? "" : propiedades.determinePassword())
+                .build();
+        pool = new ConnectionPool(ConnectionPoolConfiguration.builder(new H2ConnectionFactory(configuracion))
+                .name("cuentas-reactivo")
+                .initialSize(Math.min(maxConexiones, 2))
+                .maxSize(maxConexiones)
+                .build());
+        return DatabaseClient.create(pool);
+    }
+
+    @Bean
+    public TransactionalOperator transaccionReactiva(DatabaseClient clienteReactivo) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(clienteReactivo.getConnectionFactory()));
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> rutasReactivas(CuentaHandlerReactivo handler) {
+        return RouterFunctions.route()
+                .path("/api/cuentas", rutas -> rutas
+                        .GET("", handler::listar)
+                        .POST("", handler::guardar)
+                        .POST("/transferir", handler::transferir)
+                        .GET("/{id}", handler::detalle)
+                        .DELETE("/{id}", handler::eliminar))
+                .build();
+    }
+
+    @Bean
+    public ServidorReactivo servidorReactivo(RouterFunction<ServerResponse> rutasReactivas, ObjectMapper objectMapper,
+                                             @Value("${app.reactivo.puerto:8081}") int puerto,
+                                             @Value("${app.reactivo.hilos:0}") int hilos) {
+        // Mismo ObjectMapper que el API MVC para que ambos serialicen igual
+        HandlerStrategies estrategias = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        return new ServidorReactivo(RouterFunctions.toHttpHandler(rutasReactivas, estrategias), puerto, hilos);
+    }
+
+    @PreDestroy
+    public void cerrarPool() {
+        if (pool != null) {
+            pool.dispose();
+        }
+    }
+
+    //jdbc:h2:mem:xxx -> mem:xxx, el formato que espera r2dbc-h2
+    private static String urlH2(DataSource dataSource) throws SQLException {
+        try (Connection conexion = dataSource.getConnection()) {
+            String url = conexion.getMetaData().getURL();
+            if (!url.startsWith("jdbc:h2:")) {
+                throw new IllegalStateException("El API reactivo requiere H2 y el DataSource apunta a " + url);
+            }
+            return url.substring("jdbc:h2:".length());
+        }
+    }
+}
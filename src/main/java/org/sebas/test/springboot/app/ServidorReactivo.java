@@ -0,0 +1,63 @@
+package org.sebas.test.springboot.app;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Servidor Reactor Netty propio para el API reactivo. Corre junto al Tomcat del API MVC en otro
+ * puerto, con unos pocos hilos de event loop que nunca se bloquean.
+ */
+public class ServidorReactivo implements SmartLifecycle {
+
+    private final HttpHandler httpHandler;
+    private final int puertoConfigurado;
+    private final int hilos;
+    private LoopResources loops;
+    private DisposableServer servidor;
+
+    public ServidorReactivo(HttpHandler httpHandler, int puerto, int hilos) {
+        this.httpHandler = httpHandler;
+        this.puertoConfigurado = puerto;
+        this.hilos = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public void start() {
+        loops = LoopResources.create("reactivo", hilos, true);
+        servidor = HttpServer.create()
+                .port(puertoConfigurado)
+                .runOn(loops)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+    }
+
+    @Override
+    public void stop() {
+        if (servidor != null) {
+            servidor.disposeNow();
+            servidor = null;
+        }
+        if (loops != null) {
+            loops.disposeLater().block();
+            loops = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return servidor != null;
+    }
+
+    //Con app.reactivo.puerto=0 devuelve el puerto asignado al arrancar
+    public int getPuerto() {
+        return servidor != null ? servidor.port() : puertoConfigurado;
+    }
+
+    public int getHilos() {
+        return hilos;
+    }
+}
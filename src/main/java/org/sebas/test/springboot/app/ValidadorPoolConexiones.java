@@ -0,0 +1,101 @@
+package org.sebas.test.springboot.app;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Revisa al arrancar la configuracion del pool JDBC y avisa en el log de valores que suelen terminar
+ * en hilos esperando conexion (picos de latencia en transferir) o en trabajo de base desperdiciado.
+ * Solo avisa: la aplicacion arranca igual.
+ */
+@Component
+public class ValidadorPoolConexiones {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidadorPoolConexiones.class);
+
+    private final ObjectProvider<DataSource> dataSources;
+    private final int batchSize;
+    private final int hilosAsincronos;
+    private final boolean hilosVirtuales;
+    private final int maxConcurrencia;
+
+    public ValidadorPoolConexiones(ObjectProvider<DataSource> dataSources,
+                                   @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:0}") int batchSize,
+                                   @Value("${app.transferencias.asincronas.hilos:2}") int hilosAsincronos,
+                                   @Value("${spring.threads.virtual.enabled:false}") boolean hilosVirtuales,
+                                   @Value("${app.jdbc.max-concurrencia:0}") int maxConcurrencia) {
+        this.dataSources = dataSources;
+        this.batchSize = batchSize;
+        this.hilosAsincronos = hilosAsincronos;
+        this.hilosVirtuales = hilosVirtuales;
+        this.maxConcurrencia = maxConcurrencia;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void validar() {
+        DataSource dataSource = dataSources.getIfUnique();
+        HikariDataSource pool = dataSource == null ? null : hikari(dataSource);
+        if (pool == null) {
+            return;
+        }
+        revisar(pool, Runtime.getRuntime().availableProcessors())
+                .forEach(aviso -> log.warn("Pool JDBC {}: {}", pool.getPoolName(), aviso));
+    }
+
+    //El DataSource puede venir envuelto (DataSourceAcotado en el perfil virtual)
+    private static HikariDataSource hikari(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    List<String> revisar(HikariConfig pool, int nucleos) {
+        List<String> avisos = new ArrayList<>();
+        int maximo = pool.getMaximumPoolSize();
+        if (pool.getMinimumIdle() >= 0 && pool.getMinimumIdle() < maximo) {
+            avisos.add("minimum-idle (" + pool.getMinimumIdle() + ") menor que maximum-pool-size (" + maximo
+                    + "): ante un pico las conexiones se abren justo cuando faltan");
+        }
+        if (maximo > Math.max(20, nucleos * 4)) {
+            avisos.add("maximum-pool-size (" + maximo + ") muy por encima de los nucleos (" + nucleos
+                    + "): mas conexiones que la base puede atender en paralelo solo agregan contencion");
+        }
+        if (pool.getConnectionTimeout() > 30_000) {
+            avisos.add("connection-timeout de " + pool.getConnectionTimeout()
+                    + " ms: sin conexiones libres las peticiones esperan en lugar de fallar");
+        }
+        if (pool.getMaxLifetime() == 0) {
+            avisos.add("max-lifetime 0: las conexiones nunca se renuevan y la base o la red pueden cortarlas antes");
+        }
+        if (pool.getLeakDetectionThreshold() > 0 && pool.getLeakDetectionThreshold() < 2_000) {
+            avisos.add("leak-detection-threshold de " + pool.getLeakDetectionThreshold()
+                    + " ms: las transacciones normales se informan como fugas");
+        }
+        if (batchSize <= 1) {
+            avisos.add("hibernate.jdbc.batch_size " + batchSize + ": los flush de lotes envian una sentencia por fila");
+        }
+        if (hilosAsincronos >= maximo) {
+            avisos.add("app.transferencias.asincronas.hilos (" + hilosAsincronos + ") ocupa todo el pool (" + maximo
+                    + "): las peticiones sincronas pueden quedarse sin conexion");
+        }
+        if (hilosVirtuales && maxConcurrencia > maximo) {
+            avisos.add("app.jdbc.max-concurrencia (" + maxConcurrencia + ") mayor que el pool (" + maximo
+                    + "): los hilos que pasan el semaforo vuelven a esperar dentro de Hikari");
+        }
+        return avisos;
+    }
+}
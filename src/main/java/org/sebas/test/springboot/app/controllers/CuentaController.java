@@ -1,15 +1,44 @@
 package org.sebas.test.springboot.app.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.sebas.test.springboot.app.exceptions.ClaveIdempotenciaEnUsoException;
+import org.sebas.test.springboot.app.exceptions.ColaTransferenciasLlenaException;
+import org.sebas.test.springboot.app.exceptions.TransferenciaEnCursoException;
 import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.CuentaDto;
+import org.sebas.test.springboot.app.models.Dinero;
+import org.sebas.test.springboot.app.models.EstadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.ImportacionDto;
+import org.sebas.test.springboot.app.models.PaginaCuentasDto;
+import org.sebas.test.springboot.app.models.PaginaTransferenciasDto;
+import org.sebas.test.springboot.app.models.ResultadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.SaldoCuentaDto;
 import org.sebas.test.springboot.app.models.TransaccionDto;
 import org.sebas.test.springboot.app.services.CuentaService;
+import org.sebas.test.springboot.app.services.HistorialTransferenciasService;
+import org.sebas.test.springboot.app.services.ImportacionCuentasService;
+import org.sebas.test.springboot.app.servicesImpl.IdempotenciaTransferencias;
+import org.sebas.test.springboot.app.servicesImpl.TransferenciasAsincronas;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import org.springframework.web.bind.annotation.*;
 import static org.springframework.http.HttpStatus.*;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,13 +48,114 @@ import java.util.NoSuchElementException;
 @RequestMapping("/api/cuentas")
 public class CuentaController {
 
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+    private static final String PREFER = "Prefer";
+    private static final String RESPOND_ASYNC = "respond-async";
+
     @Autowired
     private CuentaService cuentaService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IdempotenciaTransferencias idempotencia;
+
+    @Autowired
+    private ImportacionCuentasService importacionService;
+
+    @Autowired
+    private HistorialTransferenciasService historialService;
+
+    @Autowired
+    private TransferenciasAsincronas asincronas;
+
+    //Sin parametros devuelve todas las cuentas; con after/limit pagina por cursor y enlaza la siguiente en Link
     @GetMapping
-    @ResponseStatus(OK)
-    public List<Cuenta> listar() {
-        return cuentaService.findAll();
+    public ResponseEntity<List<CuentaDto>> listar(@RequestParam(required = false) Long after,
+                                                  @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(cuentaService.findAll());
+        }
+        PaginaCuentasDto pagina = cuentaService.findPagina(after, limit);
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.getSiguiente() != null) {
+            String siguiente = "/api/cuentas?after=" + pagina.getSiguiente() + "&limit=" + pagina.getCuentas().size();
+            respuesta.header(HttpHeaders.LINK, "<" + siguiente + ">; rel=\"next\"");
+        }
+        return respuesta.body(pagina.getCuentas());
+    }
+
+    //Una cuenta JSON por linea, escrita a medida que se lee de la base de datos
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> listarStream() {
+        StreamingResponseBody cuerpo = salida -> cuentaService.recorrerTodas(cuenta -> escribirLinea(salida, cuenta));
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(cuerpo);
+    }
+
+    private void escribirLinea(OutputStream salida, Cuenta cuenta) {
+        try {
+            salida.write(objectMapper.writeValueAsBytes(cuenta));
+            salida.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @GetMapping("/buscar")
+    public List<Cuenta> buscar(@RequestParam String persona) {
+        return cuentaService.findByPersona(persona);
+    }
+
+    //Transferencias enviadas o recibidas en [from, to), por fecha; after/limit paginan por cursor como listar
+    @GetMapping("/{id}/movimientos")
+    public ResponseEntity<?> movimientos(@PathVariable Long id,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                         @RequestParam(required = false) Long after,
+                                         @RequestParam(required = false) Integer limit) {
+        PaginaTransferenciasDto pagina = null;
+
+        try {
+            pagina = historialService.buscar(id, from, to, after, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("mensaje", e.getMessage()));
+        }
+
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.getSiguiente() != null) {
+            StringBuilder siguiente = new StringBuilder("/api/cuentas/").append(id).append("/movimientos?after=")
+                    .append(pagina.getSiguiente()).append("&limit=").append(pagina.getTransferencias().size());
+            if (from != null) {
+                siguiente.append("&from=").append(from);
+            }
+            if (to != null) {
+                siguiente.append("&to=").append(to);
+            }
+            respuesta.header(HttpHeaders.LINK, "<" + siguiente + ">; rel=\"next\"");
+        }
+        return respuesta.body(pagina.getTransferencias());
+    }
+
+    //Exportacion CSV del historial escrita mientras se lee de la base; cuenta y banco son filtros opcionales
+    @GetMapping("/movimientos/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarMovimientos(
+            @RequestParam(required = false) Long cuenta,
+            @RequestParam(required = false) Long banco,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        StreamingResponseBody cuerpo = salida -> {
+            Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 64 * 1024);
+            historialService.exportarCsv(cuenta, banco, from, to, escritor);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(TEXT_CSV_VALUE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"movimientos.csv\"")
+                .body(cuerpo);
     }
 
     @GetMapping("/{id}")
@@ -42,14 +172,85 @@ public class CuentaController {
         return ResponseEntity.ok(cuenta);
     }
 
+    //Saldos de muchas cuentas en una sola llamada: recibe [id, ...] y responde [[id, saldo], ...]
+    @PostMapping("/saldos")
+    public ResponseEntity<?> saldos(@RequestBody List<Long> ids) {
+        try {
+            return ResponseEntity.ok(cuentaService.revisarSaldos(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("mensaje", e.getMessage()));
+        }
+    }
+
     @PostMapping
     @ResponseStatus(CREATED)
     public Cuenta guardar(@RequestBody Cuenta cuenta) {
         return cuentaService.save(cuenta);
     }
 
+    //Con Idempotency-Key un reintento recibe la respuesta original sin transferir otra vez.
+    //Con Prefer: respond-async se encola y responde 202; el estado se consulta en /transferencias/{id}
     @PostMapping("/transferir")
-    public ResponseEntity<?> transferir(@RequestBody TransaccionDto dto) {
+    public ResponseEntity<?> transferir(@RequestBody TransaccionDto dto,
+                                        @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String clave,
+                                        @RequestHeader(name = PREFER, required = false) String prefer) {
+        if (dto.getMonto() != null && !Dinero.esRepresentable(dto.getMonto())) {
+            // Se rechaza antes de encolar o de entrar a un lote compartido con otras transferencias
+            return ResponseEntity.badRequest().body(Map.of("mensaje",
+                    "El monto admite como maximo " + Dinero.ESCALA + " decimales y debe caber en un saldo"));
+        }
+        boolean asincrona = prefer != null && prefer.contains(RESPOND_ASYNC);
+        if (clave == null && !asincrona) {
+            return ResponseEntity.ok(ejecutarTransferencia(dto));
+        }
+
+        IdempotenciaTransferencias.Respuesta respuesta = null;
+
+        try {
+            if (clave == null) {
+                EstadoTransferenciaDto estado = asincronas.encolar(dto);
+                return aceptada(estado.getId()).body(estado);
+            }
+            respuesta = idempotencia.ejecutar(clave, dto,
+                    asincrona ? () -> asincronas.encolar(dto) : () -> ejecutarTransferencia(dto));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("mensaje", e.getMessage()));
+        } catch (ClaveIdempotenciaEnUsoException e) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("mensaje", e.getMessage()));
+        } catch (TransferenciaEnCursoException e) {
+            return ResponseEntity.status(CONFLICT).body(Map.of("mensaje", e.getMessage()));
+        } catch (ColaTransferenciasLlenaException e) {
+            return ResponseEntity.status(TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(asincronas.getReintentarEnSegundos()))
+                    .body(Map.of("mensaje", e.getMessage()));
+        }
+
+        return (asincrona ? aceptada(leerId(respuesta.cuerpo())) : ResponseEntity.ok())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(IDEMPOTENT_REPLAYED, String.valueOf(respuesta.repetida()))
+                .body(respuesta.cuerpo());
+    }
+
+    @GetMapping("/transferencias/{id}")
+    public ResponseEntity<EstadoTransferenciaDto> estadoTransferencia(@PathVariable String id) {
+        return ResponseEntity.of(asincronas.buscar(id));
+    }
+
+    private static ResponseEntity.BodyBuilder aceptada(String id) {
+        return ResponseEntity.accepted()
+                .header(HttpHeaders.LOCATION, "/api/cuentas/transferencias/" + id)
+                .header("Preference-Applied", RESPOND_ASYNC);
+    }
+
+    private String leerId(String cuerpo) {
+        try {
+            return objectMapper.readTree(cuerpo).path("id").asText();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, Object> ejecutarTransferencia(TransaccionDto dto) {
         cuentaService.transferir(dto.getCuentaOrigenId(),
                 dto.getCuentaDestinoId(), dto.getMonto(), dto.getBancoId());
         Map<String, Object> response = new HashMap<>();
@@ -57,9 +258,50 @@ public class CuentaController {
         response.put("status", "0K");
         response.put("mensaje", "Transferencia realizado con éxito!");
         response.put("transaccion", dto);
+        return response;
+    }
+
+    @PostMapping("/transferir/batch")
+    public ResponseEntity<?> transferirLote(@RequestBody List<TransaccionDto> dtos) {
+
+        List<ResultadoTransferenciaDto> resultados = null;
+
+        try {
+            resultados = cuentaService.transferirLote(dtos);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("mensaje", e.getMessage()));
+        }
+
+        long exitosas = resultados.stream().filter(ResultadoTransferenciaDto::isExitosa).count();
+        Map<String, Object> response = new HashMap<>();
+        response.put("date", LocalDate.now().toString());
+        response.put("status", "0K");
+        response.put("mensaje", "Lote de transferencias procesado");
+        response.put("exitosas", exitosas);
+        response.put("fallidas", resultados.size() - exitosas);
+        response.put("resultados", resultados);
         return ResponseEntity.ok(response);
     }
 
+    //Alta masiva: el cuerpo se procesa mientras llega, una cuenta por linea
+    @PostMapping(value = "/importar", consumes = {TEXT_CSV_VALUE, APPLICATION_NDJSON_VALUE})
+    public ImportacionDto importar(InputStream cuerpo, @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType tipo)
+            throws IOException {
+        ImportacionCuentasService.Formato formato = APPLICATION_NDJSON.isCompatibleWith(tipo)
+                ? ImportacionCuentasService.Formato.NDJSON : ImportacionCuentasService.Formato.CSV;
+        return importacionService.importar(cuerpo, formato);
+    }
+
+    @GetMapping("/importaciones")
+    public List<ImportacionDto> listarImportaciones() {
+        return importacionService.listar();
+    }
+
+    @GetMapping("/importaciones/{id}")
+    public ResponseEntity<ImportacionDto> detalleImportacion(@PathVariable Long id) {
+        return ResponseEntity.of(importacionService.buscar(id));
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(NO_CONTENT)
     public void eliminar(@PathVariable Long id) {
@@ -0,0 +1,99 @@
+package org.sebas.test.springboot.app.controllers;
+
+import org.sebas.test.springboot.app.exceptions.DineroInsuficienteException;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.Dinero;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.sebas.test.springboot.app.services.CuentaServiceReactivo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.springframework.http.HttpStatus.*;
+
+//Variante no bloqueante de CuentaController; las rutas se declaran en ReactivoConfig
+@Component
+@ConditionalOnProperty(name = "app.reactivo.habilitado", havingValue = "true")
+public class CuentaHandlerReactivo {
+
+    @Autowired
+    private CuentaServiceReactivo cuentaService;
+
+    public Mono<ServerResponse> listar(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cuentaService.findAll(), Cuenta.class);
+    }
+
+    public Mono<ServerResponse> detalle(ServerRequest request) {
+        return cuentaService.findById(Long.valueOf(request.pathVariable("id")))
+                .flatMap(cuenta -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(cuenta))
+                .onErrorResume(NoSuchElementException.class, e -> ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> guardar(ServerRequest request) {
+        return request.bodyToMono(Cuenta.class)
+                .flatMap(cuentaService::save)
+                .flatMap(cuenta -> ServerResponse.status(CREATED).contentType(MediaType.APPLICATION_JSON).bodyValue(cuenta))
+                .onErrorResume(IllegalArgumentException.class, e -> ServerResponse.badRequest()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(Map.of("mensaje", e.getMessage())))
+                .onErrorResume(OptimisticLockingFailureException.class, e -> ServerResponse.status(CONFLICT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(Map.of("mensaje", e.getMessage())))
+                .onErrorResume(NoSuchElementException.class, e -> ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> transferir(ServerRequest request) {
+        return request.bodyToMono(TransaccionDto.class)
+                .flatMap(CuentaHandlerReactivo::validar)
+                .flatMap(dto -> cuentaService.transferir(dto.getCuentaOrigenId(), dto.getCuentaDestinoId(),
+                                dto.getMonto(), dto.getBancoId())
+                        .then(Mono.fromSupplier(() -> {
+                            Map<String, Object> response = new HashMap<>();
+                            response.put("date", LocalDate.now().toString());
+                            response.put("status", "0K");
+                            response.put("mensaje", "Transferencia realizado con éxito!");
+                            response.put("transaccion", dto);
+                            return response;
+                        })))
+                .flatMap(response -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(response))
+                .onErrorResume(DineroInsuficienteException.class, e -> ServerResponse.badRequest()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(Map.of("mensaje", e.getMessage())))
+                .onErrorResume(IllegalArgumentException.class, e -> ServerResponse.badRequest()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(Map.of("mensaje", e.getMessage())))
+                .onErrorResume(NoSuchElementException.class, e -> ServerResponse.notFound().build());
+    }
+
+    //Las mismas reglas que los items de un lote; lo invalido no llega al servicio (400 y no un NPE)
+    private static Mono<TransaccionDto> validar(TransaccionDto dto) {
+        if (dto.getCuentaOrigenId() == null || dto.getCuentaDestinoId() == null || dto.getBancoId() == null) {
+            return Mono.error(new IllegalArgumentException("Las cuentas de origen y destino y el banco son obligatorios"));
+        }
+        if (dto.getMonto() == null || dto.getMonto().signum() <= 0) {
+            return Mono.error(new IllegalArgumentException("El monto debe ser positivo"));
+        }
+        if (!Dinero.esRepresentable(dto.getMonto())) {
+            return Mono.error(new IllegalArgumentException(
+                    "El monto admite como maximo " + Dinero.ESCALA + " decimales y debe caber en un saldo"));
+        }
+        return Mono.just(dto);
+    }
+
+    public Mono<ServerResponse> eliminar(ServerRequest request) {
+        return cuentaService.deleteById(Long.valueOf(request.pathVariable("id")))
+                .then(ServerResponse.status(NO_CONTENT).build());
+    }
+}
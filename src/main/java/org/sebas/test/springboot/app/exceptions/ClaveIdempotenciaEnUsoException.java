@@ -0,0 +1,8 @@
+package org.sebas.test.springboot.app.exceptions;
+
+public class ClaveIdempotenciaEnUsoException extends RuntimeException {
+
+    public ClaveIdempotenciaEnUsoException(String message) {
+        super(message);
+    }
+}
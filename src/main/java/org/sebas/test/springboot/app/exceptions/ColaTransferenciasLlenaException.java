@@ -0,0 +1,8 @@
+package org.sebas.test.springboot.app.exceptions;
+
+public class ColaTransferenciasLlenaException extends RuntimeException {
+
+    public ColaTransferenciasLlenaException(String message) {
+        super(message);
+    }
+}
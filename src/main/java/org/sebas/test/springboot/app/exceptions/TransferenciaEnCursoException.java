@@ -0,0 +1,8 @@
+package org.sebas.test.springboot.app.exceptions;
+
+public class TransferenciaEnCursoException extends RuntimeException {
+
+    public TransferenciaEnCursoException(String message) {
+        super(message);
+    }
+}
@@ -1,22 +1,31 @@
 package org.sebas.test.springboot.app.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 @Entity
 @Table(name = "bancos")
 public class Banco {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "bancos_seq")
+    @GenericGenerator(name = "bancos_seq", type = SecuenciaAgrupada.class,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "bancos_seq"))
     private Long id;
     private String nombre;
 
+    //Transferencias consolidadas; las recientes estan repartidas en ContadorTransferencias
     @Column(name = "total_transferencias")
-    private int totalTransferencias;
+    private long totalTransferencias;
+
+    @Version
+    private Long version;
 
     public Banco() {
     }
 
-    public Banco(Long id, String nombre, int totalTransferencias) {
+    public Banco(Long id, String nombre, long totalTransferencias) {
         this.id = id;
         this.nombre = nombre;
         this.totalTransferencias = totalTransferencias;
@@ -38,11 +47,19 @@ public class Banco {
         this.nombre = nombre;
     }
 
-    public int getTotalTransferencias() {
+    public long getTotalTransferencias() {
         return totalTransferencias;
     }
 
-    public void setTotalTransferencias(int totalTransferencias) {
+    public void setTotalTransferencias(long totalTransferencias) {
         this.totalTransferencias = totalTransferencias;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
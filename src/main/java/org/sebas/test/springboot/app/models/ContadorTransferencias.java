@@ -0,0 +1,67 @@
+package org.sebas.test.springboot.app.models;
+
+import jakarta.persistence.*;
+
+/**
+ * Una de las N ranuras del contador de transferencias de un banco. Cada transferencia
+ * incrementa una ranura al azar, asi la fila del banco deja de ser un punto de contencion.
+ */
+@Entity
+@Table(name = "contadores_transferencias",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"banco_id", "slot"}))
+public class ContadorTransferencias {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "banco_id", nullable = false)
+    private Long bancoId;
+
+    @Column(nullable = false)
+    private int slot;
+
+    @Column(nullable = false)
+    private long valor;
+
+    public ContadorTransferencias() {
+    }
+
+    public ContadorTransferencias(Long bancoId, int slot, long valor) {
+        this.bancoId = bancoId;
+        this.slot = slot;
+        this.valor = valor;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getBancoId() {
+        return bancoId;
+    }
+
+    public void setBancoId(Long bancoId) {
+        this.bancoId = bancoId;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
+    public long getValor() {
+        return valor;
+    }
+
+    public void setValor(long valor) {
+        this.valor = valor;
+    }
+}
@@ -1,28 +1,57 @@
 package org.sebas.test.springboot.app.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.sebas.test.springboot.app.exceptions.DineroInsuficienteException;
 
 import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.regex.Pattern;
 
 @Entity
-@Table(name = "cuentas")
+@Table(name = "cuentas", indexes = @Index(name = "idx_cuentas_persona_normalizada", columnList = "persona_normalizada"))
 public class Cuenta {
 
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "cuentas_seq")
+    @GenericGenerator(name = "cuentas_seq", type = SecuenciaAgrupada.class,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "cuentas_seq"))
     private Long id;
     private String persona;
-    private BigDecimal saldo;
+
+    //persona sin mayusculas ni espacios de mas: las busquedas por nombre usan esta columna indexada
+    @JsonIgnore
+    @Column(name = "persona_normalizada")
+    private String personaNormalizada;
+
+    //En centavos; getSaldo/setSaldo convierten a BigDecimal para JSON y DineroConverter para la base
+    @Column(precision = 38, scale = Dinero.ESCALA)
+    private Dinero saldo;
+
+    @Version
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long version;
+
+    //En el modo libro, saldo es la foto consolidada hasta este movimiento
+    @JsonIgnore
+    @Column(name = "ultimo_movimiento_id")
+    private Long ultimoMovimientoId;
 
     public Cuenta() {
     }
 
     public Cuenta(Long id, String persona, BigDecimal saldo) {
         this.id = id;
-        this.persona = persona;
-        this.saldo = saldo;
+        setPersona(persona);
+        setSaldo(saldo);
     }
 
     public Long getId() {
@@ -39,27 +68,69 @@ public class Cuenta {
 
     public void setPersona(String persona) {
         this.persona = persona;
+        this.personaNormalizada = normalizarPersona(persona);
+    }
+
+    public String getPersonaNormalizada() {
+        return personaNormalizada;
+    }
+
+    public static String normalizarPersona(String persona) {
+        if (persona == null) {
+            return null;
+        }
+        String compuesta = Normalizer.normalize(persona.strip(), Normalizer.Form.NFC);
+        return ESPACIOS.matcher(compuesta).replaceAll(" ").toLowerCase(Locale.ROOT);
     }
 
     public BigDecimal getSaldo() {
-        return saldo;
+        return saldo == null ? null : saldo.toBigDecimal();
     }
 
     public void setSaldo(BigDecimal saldo) {
-        this.saldo = saldo;
+        this.saldo = saldo == null ? null : Dinero.de(saldo);
+    }
+
+    @JsonIgnore
+    public Dinero getSaldoDinero() {
+        return saldo;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getUltimoMovimientoId() {
+        return ultimoMovimientoId;
+    }
+
+    public void setUltimoMovimientoId(Long ultimoMovimientoId) {
+        this.ultimoMovimientoId = ultimoMovimientoId;
     }
 
     public void debito(BigDecimal monto) {
-        BigDecimal nuevoSaldo = this.saldo.subtract(monto);
+        debito(Dinero.de(monto));
+    }
 
-        if(nuevoSaldo.compareTo(BigDecimal.ZERO) < 0) {
+    public void debito(Dinero monto) {
+        Dinero nuevoSaldo = this.saldo.restar(monto);
+
+        if(nuevoSaldo.signo() < 0) {
             throw new DineroInsuficienteException("Dinero insuficiente en la cuenta.");
         }
         this.saldo = nuevoSaldo;
     }
 
     public void credito(BigDecimal monto) {
-        this.saldo = saldo.add(monto);
+        credito(Dinero.de(monto));
+    }
+
+    public void credito(Dinero monto) {
+        this.saldo = saldo.sumar(monto);
     }
 
     @Override
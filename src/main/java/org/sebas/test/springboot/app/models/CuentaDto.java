@@ -0,0 +1,76 @@
+package org.sebas.test.springboot.app.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.math.BigDecimal;
+
+//Vista de solo lectura de una cuenta; el JSON es el mismo que el de la entidad Cuenta
+@JsonPropertyOrder({"id", "persona", "saldo", "version"})
+public class CuentaDto {
+
+    private Long id;
+    private String persona;
+    private BigDecimal saldo;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long version;
+
+    public CuentaDto() {
+    }
+
+    public CuentaDto(Long id, String persona, BigDecimal saldo, Long version) {
+        this.id = id;
+        this.persona = persona;
+        this.saldo = saldo;
+        this.version = version;
+    }
+
+    //Usado por las consultas de CuentaRepository
+    public CuentaDto(Long id, String persona, Dinero saldo, Long version) {
+        this(id, persona, saldo == null ? null : saldo.toBigDecimal(), version);
+    }
+
+    //Con los movimientos pendientes del libro, leidos en la misma sentencia que el saldo
+    public CuentaDto(Long id, String persona, Dinero saldo, Long version, BigDecimal pendiente) {
+        this(id, persona, saldo == null ? null : saldo.toBigDecimal().add(pendiente), version);
+    }
+
+    //Cuenta sin gestionar, para quien necesita la entidad (cache, findById)
+    public Cuenta aCuenta() {
+        Cuenta cuenta = new Cuenta(id, persona, saldo);
+        cuenta.setVersion(version);
+        return cuenta;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getPersona() {
+        return persona;
+    }
+
+    public void setPersona(String persona) {
+        this.persona = persona;
+    }
+
+    public BigDecimal getSaldo() {
+        return saldo;
+    }
+
+    public void setSaldo(BigDecimal saldo) {
+        this.saldo = saldo;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
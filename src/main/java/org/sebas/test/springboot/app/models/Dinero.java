@@ -0,0 +1,94 @@
+package org.sebas.test.springboot.app.models;
+
+import java.math.BigDecimal;
+
+/**
+ * Importe en centavos sobre un long. Las operaciones no crean BigDecimal y fallan con ArithmeticException
+ * si se desbordan; la conversion a BigDecimal queda para los bordes (JSON y base de datos).
+ */
+public final class Dinero implements Comparable<Dinero> {
+
+    public static final int ESCALA = 2;
+    public static final Dinero CERO = new Dinero(0);
+
+    private final long centavos;
+
+    private Dinero(long centavos) {
+        this.centavos = centavos;
+    }
+
+    public static Dinero deCentavos(long centavos) {
+        return centavos == 0 ? CERO : new Dinero(centavos);
+    }
+
+    //Rechaza importes con mas de dos decimales en lugar de redondearlos
+    public static Dinero de(BigDecimal importe) {
+        try {
+            // movePointRight no pasa por BigInteger; longValueExact falla si quedan decimales o no cabe en un long
+            return deCentavos(importe.movePointRight(ESCALA).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Importe no representable con " + ESCALA + " decimales: " + importe, e);
+        }
+    }
+
+    //Para validar en los bordes (controladores, items de lote) sin llegar a la excepcion de de()
+    public static boolean esRepresentable(BigDecimal importe) {
+        if (importe.stripTrailingZeros().scale() > ESCALA) {
+            return false;
+        }
+        try {
+            importe.movePointRight(ESCALA).longValueExact();
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    public long getCentavos() {
+        return centavos;
+    }
+
+    public Dinero sumar(Dinero otro) {
+        return deCentavos(Math.addExact(centavos, otro.centavos));
+    }
+
+    public Dinero restar(Dinero otro) {
+        return deCentavos(Math.subtractExact(centavos, otro.centavos));
+    }
+
+    public Dinero negar() {
+        return deCentavos(Math.negateExact(centavos));
+    }
+
+    public int signo() {
+        return Long.signum(centavos);
+    }
+
+    public boolean esMenorQue(Dinero otro) {
+        return centavos < otro.centavos;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(centavos, ESCALA);
+    }
+
+    @Override
+    public int compareTo(Dinero otro) {
+        return Long.compare(centavos, otro.centavos);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Dinero otro && centavos == otro.centavos);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(centavos);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,23 @@
+package org.sebas.test.springboot.app.models;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+
+//Columnas DECIMAL(38,2) <-> Dinero; Dinero es inmutable, Hibernate no necesita copiarlo para detectar cambios
+@Converter(autoApply = true)
+@Immutable
+public class DineroConverter implements AttributeConverter<Dinero, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Dinero dinero) {
+        return dinero == null ? null : dinero.toBigDecimal();
+    }
+
+    @Override
+    public Dinero convertToEntityAttribute(BigDecimal valor) {
+        return valor == null ? null : Dinero.de(valor);
+    }
+}
@@ -0,0 +1,61 @@
+package org.sebas.test.springboot.app.models;
+
+public class EstadoTransferenciaDto {
+
+    //Ademas de estos, al terminar el estado es uno de los codigos de ResultadoTransferenciaDto
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String EN_CURSO = "EN_CURSO";
+    //El lote entero fallo, por ejemplo por un error de la base; se puede volver a enviar
+    public static final String ERROR = "ERROR";
+
+    private String id;
+    private String estado;
+    private String mensaje;
+    private TransaccionDto transaccion;
+
+    public EstadoTransferenciaDto() {
+    }
+
+    public EstadoTransferenciaDto(String id, String estado, String mensaje, TransaccionDto transaccion) {
+        this.id = id;
+        this.estado = estado;
+        this.mensaje = mensaje;
+        this.transaccion = transaccion;
+    }
+
+    public boolean isTerminada() {
+        return !PENDIENTE.equals(estado) && !EN_CURSO.equals(estado);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    public void setMensaje(String mensaje) {
+        this.mensaje = mensaje;
+    }
+
+    public TransaccionDto getTransaccion() {
+        return transaccion;
+    }
+
+    public void setTransaccion(TransaccionDto transaccion) {
+        this.transaccion = transaccion;
+    }
+}
@@ -0,0 +1,107 @@
+package org.sebas.test.springboot.app.models;
+
+import java.time.Instant;
+import java.util.List;
+
+//Foto del progreso de una importacion masiva de cuentas
+public class ImportacionDto {
+
+    public static final String EN_CURSO = "EN_CURSO";
+    public static final String TERMINADA = "TERMINADA";
+    public static final String FALLIDA = "FALLIDA";
+
+    private Long id;
+    private String formato;
+    private String estado;
+    private long leidas;
+    private long insertadas;
+    private long rechazadas;
+    //Solo las primeras; rechazadas tiene el total
+    private List<String> errores;
+    private Instant inicio;
+    private long duracionMs;
+    private long cuentasPorSegundo;
+
+    public ImportacionDto() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFormato() {
+        return formato;
+    }
+
+    public void setFormato(String formato) {
+        this.formato = formato;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public long getLeidas() {
+        return leidas;
+    }
+
+    public void setLeidas(long leidas) {
+        this.leidas = leidas;
+    }
+
+    public long getInsertadas() {
+        return insertadas;
+    }
+
+    public void setInsertadas(long insertadas) {
+        this.insertadas = insertadas;
+    }
+
+    public long getRechazadas() {
+        return rechazadas;
+    }
+
+    public void setRechazadas(long rechazadas) {
+        this.rechazadas = rechazadas;
+    }
+
+    public List<String> getErrores() {
+        return errores;
+    }
+
+    public void setErrores(List<String> errores) {
+        this.errores = errores;
+    }
+
+    public Instant getInicio() {
+        return inicio;
+    }
+
+    public void setInicio(Instant inicio) {
+        this.inicio = inicio;
+    }
+
+    public long getDuracionMs() {
+        return duracionMs;
+    }
+
+    public void setDuracionMs(long duracionMs) {
+        this.duracionMs = duracionMs;
+    }
+
+    public long getCuentasPorSegundo() {
+        return cuentasPorSegundo;
+    }
+
+    public void setCuentasPorSegundo(long cuentasPorSegundo) {
+        this.cuentasPorSegundo = cuentasPorSegundo;
+    }
+}
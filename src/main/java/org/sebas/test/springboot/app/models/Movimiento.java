@@ -0,0 +1,97 @@
+package org.sebas.test.springboot.app.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import java.time.LocalDateTime;
+
+/**
+ * Asiento del libro de movimientos: solo se inserta, nunca se actualiza.
+ * Una transferencia genera dos asientos, el debito (monto negativo) y el credito.
+ */
+@Entity
+@Table(name = "movimientos", indexes = @Index(name = "idx_movimientos_cuenta", columnList = "cuenta_id, id"))
+public class Movimiento {
+
+    @Id
+    @GeneratedValue(generator = "movimientos_seq")
+    @GenericGenerator(name = "movimientos_seq", type = SecuenciaAgrupada.class,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "movimientos_seq"))
+    private Long id;
+
+    @Column(name = "cuenta_id", nullable = false)
+    private Long cuentaId;
+
+    @Column(name = "contraparte_id")
+    private Long contraparteId;
+
+    @Column(name = "banco_id")
+    private Long bancoId;
+
+    @Column(nullable = false, precision = 38, scale = Dinero.ESCALA)
+    private Dinero monto;
+
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+
+    public Movimiento() {
+    }
+
+    public Movimiento(Long cuentaId, Long contraparteId, Long bancoId, Dinero monto, LocalDateTime fecha) {
+        this.cuentaId = cuentaId;
+        this.contraparteId = contraparteId;
+        this.bancoId = bancoId;
+        this.monto = monto;
+        this.fecha = fecha;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCuentaId() {
+        return cuentaId;
+    }
+
+    public void setCuentaId(Long cuentaId) {
+        this.cuentaId = cuentaId;
+    }
+
+    public Long getContraparteId() {
+        return contraparteId;
+    }
+
+    public void setContraparteId(Long contraparteId) {
+        this.contraparteId = contraparteId;
+    }
+
+    public Long getBancoId() {
+        return bancoId;
+    }
+
+    public void setBancoId(Long bancoId) {
+        this.bancoId = bancoId;
+    }
+
+    public Dinero getMonto() {
+        return monto;
+    }
+
+    public void setMonto(Dinero monto) {
+        this.monto = monto;
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDateTime fecha) {
+        this.fecha = fecha;
+    }
+}
@@ -0,0 +1,34 @@
+package org.sebas.test.springboot.app.models;
+
+import java.util.List;
+
+public class PaginaCuentasDto {
+
+    private List<CuentaDto> cuentas;
+    //Id a usar como ?after= para la pagina siguiente; null si es la ultima
+    private Long siguiente;
+
+    public PaginaCuentasDto() {
+    }
+
+    public PaginaCuentasDto(List<CuentaDto> cuentas, Long siguiente) {
+        this.cuentas = cuentas;
+        this.siguiente = siguiente;
+    }
+
+    public List<CuentaDto> getCuentas() {
+        return cuentas;
+    }
+
+    public void setCuentas(List<CuentaDto> cuentas) {
+        this.cuentas = cuentas;
+    }
+
+    public Long getSiguiente() {
+        return siguiente;
+    }
+
+    public void setSiguiente(Long siguiente) {
+        this.siguiente = siguiente;
+    }
+}
@@ -0,0 +1,34 @@
+package org.sebas.test.springboot.app.models;
+
+import java.util.List;
+
+public class PaginaTransferenciasDto {
+
+    private List<Transferencia> transferencias;
+    //Id a usar como ?after= para la pagina siguiente; null si es la ultima
+    private Long siguiente;
+
+    public PaginaTransferenciasDto() {
+    }
+
+    public PaginaTransferenciasDto(List<Transferencia> transferencias, Long siguiente) {
+        this.transferencias = transferencias;
+        this.siguiente = siguiente;
+    }
+
+    public List<Transferencia> getTransferencias() {
+        return transferencias;
+    }
+
+    public void setTransferencias(List<Transferencia> transferencias) {
+        this.transferencias = transferencias;
+    }
+
+    public Long getSiguiente() {
+        return siguiente;
+    }
+
+    public void setSiguiente(Long siguiente) {
+        this.siguiente = siguiente;
+    }
+}
@@ -0,0 +1,42 @@
+package org.sebas.test.springboot.app.models;
+
+import jakarta.persistence.*;
+
+/**
+ * Ultima secuencia del diario en archivo cuyas transferencias ya estan aplicadas en la base.
+ * Se escribe en la misma transaccion que los saldos, por eso al arrancar solo se reaplica lo posterior.
+ */
+@Entity
+@Table(name = "diario_punto_control")
+public class PuntoControlDiario {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private long secuencia;
+
+    public PuntoControlDiario() {
+    }
+
+    public PuntoControlDiario(Long id, long secuencia) {
+        this.id = id;
+        this.secuencia = secuencia;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    public void setSecuencia(long secuencia) {
+        this.secuencia = secuencia;
+    }
+}
@@ -0,0 +1,57 @@
+package org.sebas.test.springboot.app.models;
+
+public class ResultadoTransferenciaDto {
+
+    public static final String OK = "OK";
+    public static final String FONDOS_INSUFICIENTES = "FONDOS_INSUFICIENTES";
+    public static final String CUENTA_NO_ENCONTRADA = "CUENTA_NO_ENCONTRADA";
+    public static final String BANCO_NO_ENCONTRADO = "BANCO_NO_ENCONTRADO";
+    public static final String DATOS_INVALIDOS = "DATOS_INVALIDOS";
+    //Fallo ajeno a los datos (p. ej. el motor secuencial saturado); las demas del lote no se ven afectadas
+    public static final String NO_APLICADA = "NO_APLICADA";
+
+    private int indice;
+    private String codigo;
+    private String mensaje;
+
+    public ResultadoTransferenciaDto() {
+    }
+
+    public ResultadoTransferenciaDto(int indice, String codigo, String mensaje) {
+        this.indice = indice;
+        this.codigo = codigo;
+        this.mensaje = mensaje;
+    }
+
+    public static ResultadoTransferenciaDto exitosa(int indice) {
+        return new ResultadoTransferenciaDto(indice, OK, "Transferencia realizada");
+    }
+
+    public boolean isExitosa() {
+        return OK.equals(codigo);
+    }
+
+    public int getIndice() {
+        return indice;
+    }
+
+    public void setIndice(int indice) {
+        this.indice = indice;
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+
+    public void setCodigo(String codigo) {
+        this.codigo = codigo;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    public void setMensaje(String mensaje) {
+        this.mensaje = mensaje;
+    }
+}
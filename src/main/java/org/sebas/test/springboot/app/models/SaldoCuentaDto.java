@@ -0,0 +1,49 @@
+package org.sebas.test.springboot.app.models;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.math.BigDecimal;
+
+//Se serializa como [id, saldo] para que las respuestas con miles de cuentas ocupen poco
+@JsonFormat(shape = JsonFormat.Shape.ARRAY)
+@JsonPropertyOrder({"id", "saldo"})
+public class SaldoCuentaDto {
+
+    private Long id;
+    private BigDecimal saldo;
+
+    public SaldoCuentaDto() {
+    }
+
+    public SaldoCuentaDto(Long id, BigDecimal saldo) {
+        this.id = id;
+        this.saldo = saldo;
+    }
+
+    //Usado por la consulta de CuentaRepository.findSaldos
+    public SaldoCuentaDto(Long id, Dinero saldo) {
+        this(id, saldo == null ? null : saldo.toBigDecimal());
+    }
+
+    //Usado por CuentaRepository.findSaldosConPendientes
+    public SaldoCuentaDto(Long id, Dinero saldo, BigDecimal pendiente) {
+        this(id, saldo == null ? null : saldo.toBigDecimal().add(pendiente));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public BigDecimal getSaldo() {
+        return saldo;
+    }
+
+    public void setSaldo(BigDecimal saldo) {
+        this.saldo = saldo;
+    }
+}
@@ -0,0 +1,30 @@
+package org.sebas.test.springboot.app.models;
+
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Ids de secuencia con el optimizador pooled-lo: cada NEXT VALUE reserva el bloque [valor, valor + tamano)
+ * y Hibernate asigna los ids del bloque en memoria, asi los INSERT se pueden agrupar en lotes JDBC.
+ * El tamano sale de spring.jpa.properties.app.ids.tamano-asignacion; quien tome valores de la misma
+ * secuencia por fuera de Hibernate debe respetar el mismo bloque (ver SecuenciaCuentas).
+ */
+public class SecuenciaAgrupada extends SequenceStyleGenerator {
+
+    public static final String TAMANO_ASIGNACION = "app.ids.tamano-asignacion";
+    public static final int TAMANO_ASIGNACION_DEFECTO = 50;
+
+    @Override
+    public void configure(Type type, Properties parametros, ServiceRegistry serviceRegistry) {
+        Map<String, Object> configuracion = serviceRegistry.requireService(ConfigurationService.class).getSettings();
+        Object tamano = configuracion.getOrDefault(TAMANO_ASIGNACION, TAMANO_ASIGNACION_DEFECTO);
+        parametros.setProperty(INCREMENT_PARAM, tamano.toString());
+        parametros.setProperty(OPT_PARAM, "pooled-lo");
+        super.configure(type, parametros, serviceRegistry);
+    }
+}
@@ -0,0 +1,78 @@
+package org.sebas.test.springboot.app.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Historial de transferencias confirmadas, una fila por transferencia en cualquier modo de saldo.
+ * Solo se inserta. Los indices (cuenta, fecha, id) y (banco, fecha, id) sirven a las consultas por
+ * rango de fechas y a la paginacion por cursor sin recorrer la tabla.
+ */
+@Entity
+@Table(name = "transferencias", indexes = {
+        @Index(name = "idx_transferencias_origen", columnList = "origen_id, fecha, id"),
+        @Index(name = "idx_transferencias_destino", columnList = "destino_id, fecha, id"),
+        @Index(name = "idx_transferencias_banco", columnList = "banco_id, fecha, id")})
+public class Transferencia {
+
+    @Id
+    @GeneratedValue(generator = "transferencias_seq")
+    @GenericGenerator(name = "transferencias_seq", type = SecuenciaAgrupada.class,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "transferencias_seq"))
+    private Long id;
+
+    @Column(name = "origen_id", nullable = false)
+    private Long origenId;
+
+    @Column(name = "destino_id", nullable = false)
+    private Long destinoId;
+
+    @Column(name = "banco_id", nullable = false)
+    private Long bancoId;
+
+    @Column(nullable = false, precision = 38, scale = Dinero.ESCALA)
+    private Dinero monto;
+
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+
+    public Transferencia() {
+    }
+
+    public Transferencia(Long origenId, Long destinoId, Long bancoId, Dinero monto, LocalDateTime fecha) {
+        this.origenId = origenId;
+        this.destinoId = destinoId;
+        this.bancoId = bancoId;
+        this.monto = monto;
+        this.fecha = fecha;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getOrigenId() {
+        return origenId;
+    }
+
+    public Long getDestinoId() {
+        return destinoId;
+    }
+
+    public Long getBancoId() {
+        return bancoId;
+    }
+
+    public BigDecimal getMonto() {
+        return monto == null ? null : monto.toBigDecimal();
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+}
@@ -0,0 +1,71 @@
+package org.sebas.test.springboot.app.models;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Respuesta guardada de un POST /transferir que trajo Idempotency-Key. Mientras no expire,
+ * un reintento con la misma clave recibe esta respuesta sin volver a transferir.
+ */
+@Entity
+@Table(name = "transferencias_idempotentes", indexes = @Index(name = "idx_transferencias_idempotentes_expira", columnList = "expira"))
+public class TransferenciaIdempotente {
+
+    @Id
+    @Column(length = 255)
+    private String clave;
+
+    //Resumen de la solicitud original: la misma clave con otra transferencia se rechaza
+    @Column(nullable = false, length = 255)
+    private String huella;
+
+    //null mientras la transferencia esta en curso: la fila se inserta antes de ejecutarla
+    @Column(length = 4000)
+    private String respuesta;
+
+    @Column(nullable = false)
+    private Instant expira;
+
+    public TransferenciaIdempotente() {
+    }
+
+    public TransferenciaIdempotente(String clave, String huella, String respuesta, Instant expira) {
+        this.clave = clave;
+        this.huella = huella;
+        this.respuesta = respuesta;
+        this.expira = expira;
+    }
+
+    public String getClave() {
+        return clave;
+    }
+
+    public void setClave(String clave) {
+        this.clave = clave;
+    }
+
+    public String getHuella() {
+        return huella;
+    }
+
+    public void setHuella(String huella) {
+        this.huella = huella;
+    }
+
+    public String getRespuesta() {
+        return respuesta;
+    }
+
+    public void setRespuesta(String respuesta) {
+        this.respuesta = respuesta;
+    }
+
+    public Instant getExpira() {
+        return expira;
+    }
+
+    public void setExpira(Instant expira) {
+        this.expira = expira;
+    }
+}
@@ -1,11 +1,20 @@
 package org.sebas.test.springboot.app.repositories;
 
+import jakarta.persistence.LockModeType;
 import org.sebas.test.springboot.app.models.Banco;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface BancoRepository extends JpaRepository<Banco, Long> {
+    //SELECT ... FOR UPDATE, usado en el modo de concurrencia pesimista
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Banco b where b.id=?1")
+    Optional<Banco> findByIdForUpdate(Long id);
+
     //List<Banco> findAll();
     //Banco findById(Long id);
     //void update(Banco banco);
@@ -0,0 +1,22 @@
+package org.sebas.test.springboot.app.repositories;
+
+import org.sebas.test.springboot.app.models.ContadorTransferencias;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface ContadorTransferenciasRepository extends JpaRepository<ContadorTransferencias, Long> {
+
+    //Incremento atomico en la base de datos, sin leer la fila antes
+    @Modifying
+    @Query("update ContadorTransferencias c set c.valor = c.valor + ?3 where c.bancoId = ?1 and c.slot = ?2")
+    int incrementar(Long bancoId, int slot, long delta);
+
+    @Query("select coalesce(sum(c.valor), 0) from ContadorTransferencias c where c.bancoId = ?1")
+    long sumarPorBanco(Long bancoId);
+
+    @Query("select c.slot from ContadorTransferencias c where c.bancoId = ?1")
+    List<Integer> findSlotsByBancoId(Long bancoId);
+}
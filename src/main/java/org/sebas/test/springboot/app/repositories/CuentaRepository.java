@@ -1,15 +1,112 @@
 package org.sebas.test.springboot.app.repositories;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.CuentaDto;
+import org.sebas.test.springboot.app.models.SaldoCuentaDto;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CuentaRepository extends JpaRepository<Cuenta,Long> {
-    @Query("select c from Cuenta c where c.persona=?1")
-    Optional<Cuenta> findByPersona(String persona);
+    //Movimientos del libro aun no compactados en el saldo; como subconsulta se leen en la misma sentencia
+    //que saldo y ultimoMovimientoId, asi una compactacion concurrente no los cuenta dos veces ni los pierde
+    String PENDIENTES = "(select coalesce(sum(m.monto), 0) from Movimiento m " +
+            "where m.cuentaId = c.id and m.id > coalesce(c.ultimoMovimientoId, 0))";
+
+    //Nombre exacto. Falla si dos cuentas tienen el mismo nombre exacto (con repetidas usar findAllByPersona);
+    //app.cuentas.persona.unica lo evita porque rechaza nombres que normalizados coinciden
+    default Optional<Cuenta> findByPersona(String persona) {
+        return findByPersona(persona, Cuenta.normalizarPersona(persona));
+    }
+
+    default List<Cuenta> findAllByPersona(String persona) {
+        return findAllByPersona(persona, Cuenta.normalizarPersona(persona));
+    }
+
+    //persona_normalizada es la columna indexada; persona=?1 solo deja los nombres exactos entre esas filas
+    @Query("select c from Cuenta c where c.personaNormalizada=?2 and c.persona=?1")
+    Optional<Cuenta> findByPersona(String persona, String personaNormalizada);
+
+    @Query("select c from Cuenta c where c.personaNormalizada=?2 and c.persona=?1 order by c.id")
+    List<Cuenta> findAllByPersona(String persona, String personaNormalizada);
+
+    //Usa el indice de persona_normalizada; el nombre ya debe venir normalizado
+    @Query("select c.id from Cuenta c where c.personaNormalizada=?1 order by c.id")
+    List<Long> findIdsByPersonaNormalizada(String personaNormalizada);
+
+    @Query("select c.personaNormalizada from Cuenta c where c.id=?1")
+    Optional<String> findPersonaNormalizadaById(Long id);
+
+    //Solo id y saldo, sin cargar entidades en el contexto de persistencia
+    @Query("select new org.sebas.test.springboot.app.models.SaldoCuentaDto(c.id, c.saldo) from Cuenta c where c.id in ?1")
+    List<SaldoCuentaDto> findSaldos(Collection<Long> ids);
+
+    @Query("select new org.sebas.test.springboot.app.models.SaldoCuentaDto(c.id, c.saldo, " + PENDIENTES + ") from Cuenta c where c.id in ?1")
+    List<SaldoCuentaDto> findSaldosConPendientes(Collection<Long> ids);
+
+    //Proyecciones para las lecturas: sin entidades gestionadas, ni fotos para el dirty checking
+    @Query("select new org.sebas.test.springboot.app.models.CuentaDto(c.id, c.persona, c.saldo, c.version) from Cuenta c where c.id=?1")
+    Optional<CuentaDto> findDtoById(Long id);
+
+    @Query("select new org.sebas.test.springboot.app.models.CuentaDto(c.id, c.persona, c.saldo, c.version) from Cuenta c")
+    List<CuentaDto> findAllDto();
+
+    @Query("select new org.sebas.test.springboot.app.models.CuentaDto(c.id, c.persona, c.saldo, c.version) from Cuenta c where c.id in ?1 order by c.id")
+    List<CuentaDto> findDtoByIds(Collection<Long> ids);
+
+    @Query("select new org.sebas.test.springboot.app.models.CuentaDto(c.id, c.persona, c.saldo, c.version) from Cuenta c where c.id > ?1 order by c.id")
+    List<CuentaDto> findPaginaDto(Long despuesDe, Pageable pageable);
+
+    //Las mismas proyecciones con el saldo del modo libro
+    @Query("select new org.sebas.test.springboot.app.models.CuentaDto(c.id, c.persona, c.saldo, c.version, " + PENDIENTES + ") from Cuenta c where c.id=?1")
+    Optional<CuentaDto> findDtoConPendientesById(Long id);
+
+    @Query("select new org.sebas.test.springboot.app.models.CuentaDto(c.id, c.persona, c.saldo, c.version, " + PENDIENTES + ") from Cuenta c")
+    List<CuentaDto> findAllDtoConPendientes();
+
+    @Query("select new org.sebas.test.springboot.app.models.CuentaDto(c.id, c.persona, c.saldo, c.version, " + PENDIENTES + ") from Cuenta c where c.id in ?1 order by c.id")
+    List<CuentaDto> findDtoConPendientesByIds(Collection<Long> ids);
+
+    @Query("select new org.sebas.test.springboot.app.models.CuentaDto(c.id, c.persona, c.saldo, c.version, " + PENDIENTES + ") from Cuenta c where c.id > ?1 order by c.id")
+    List<CuentaDto> findPaginaDtoConPendientes(Long despuesDe, Pageable pageable);
+
+    //SELECT ... FOR UPDATE, usado en el modo de concurrencia pesimista
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Cuenta c where c.id=?1")
+    Optional<Cuenta> findByIdForUpdate(Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Cuenta c where c.id in ?1 order by c.id")
+    List<Cuenta> findAllByIdForUpdate(Collection<Long> ids);
+
+    //Paginacion por cursor: usa el indice de la PK y no degrada con el numero de pagina como OFFSET
+    @Query("select c from Cuenta c where c.id > ?1 order by c.id")
+    List<Cuenta> findPagina(Long despuesDe, Pageable pageable);
+
+    //Debe consumirse dentro de una transaccion y cerrarse al terminar
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select c from Cuenta c order by c.id")
+    Stream<Cuenta> streamAll();
+
+    //Suma un delta al saldo sin leer la fila; incrementa la version para que los lectores optimistas lo noten.
+    //Nativa: JPQL no admite aritmetica sobre el saldo convertido por DineroConverter
+    @Modifying
+    @Query(value = "update cuentas set saldo = saldo + ?2, version = version + 1 where id = ?1", nativeQuery = true)
+    int sumarSaldo(Long id, BigDecimal delta);
 
     //List<Cuenta> findAll();
     //Cuenta findById(Long id);
@@ -0,0 +1,29 @@
+package org.sebas.test.springboot.app.repositories;
+
+import org.sebas.test.springboot.app.models.Movimiento;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+public interface MovimientoRepository extends JpaRepository<Movimiento, Long> {
+
+    @Query("select coalesce(sum(m.monto), 0) from Movimiento m where m.cuentaId = ?1 and m.id > ?2 and m.id <= ?3")
+    BigDecimal sumarEntre(Long cuentaId, long desdeId, long hastaId);
+
+    @Query("select max(m.id) from Movimiento m where m.cuentaId = ?1")
+    Long findUltimoId(Long cuentaId);
+
+    //Movimientos aun no consolidados en el saldo de cada cuenta: [cuentaId, ultimoMovimientoId, suma].
+    //La marca se lee en la misma sentencia que la suma, una fila por cuenta aunque no tenga pendientes
+    @Query("select c.id, c.ultimoMovimientoId, coalesce(sum(m.monto), 0) from Cuenta c left join Movimiento m " +
+            "on m.cuentaId = c.id and m.id > coalesce(c.ultimoMovimientoId, 0) where c.id in ?1 " +
+            "group by c.id, c.ultimoMovimientoId")
+    List<Object[]> sumarPendientes(Collection<Long> cuentaIds);
+
+    @Query("select distinct m.cuentaId from Movimiento m, Cuenta c " +
+            "where c.id = m.cuentaId and m.id > coalesce(c.ultimoMovimientoId, 0)")
+    List<Long> findCuentasConPendientes();
+}
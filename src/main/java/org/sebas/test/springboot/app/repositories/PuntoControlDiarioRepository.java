@@ -0,0 +1,13 @@
+package org.sebas.test.springboot.app.repositories;
+
+import org.sebas.test.springboot.app.models.PuntoControlDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface PuntoControlDiarioRepository extends JpaRepository<PuntoControlDiario, Long> {
+
+    @Modifying
+    @Query("update PuntoControlDiario p set p.secuencia = ?2 where p.id = ?1")
+    int avanzar(Long id, long secuencia);
+}
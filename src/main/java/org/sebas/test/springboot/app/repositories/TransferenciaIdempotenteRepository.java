@@ -0,0 +1,39 @@
+package org.sebas.test.springboot.app.repositories;
+
+import org.sebas.test.springboot.app.models.TransferenciaIdempotente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface TransferenciaIdempotenteRepository extends JpaRepository<TransferenciaIdempotente, String> {
+
+    @Transactional
+    @Modifying
+    @Query("delete from TransferenciaIdempotente t where t.expira < ?1")
+    int borrarExpiradas(Instant ahora);
+
+    //INSERT y no save(): con una clave repetida debe fallar la PK en lugar de hacer merge
+    @Transactional
+    @Modifying
+    @Query(value = "insert into transferencias_idempotentes (clave, huella, respuesta, expira) values (?1, ?2, null, ?3)",
+            nativeQuery = true)
+    void reclamar(String clave, String huella, Instant expira);
+
+    @Transactional
+    @Modifying
+    @Query("update TransferenciaIdempotente t set t.respuesta = ?2 where t.clave = ?1 and t.respuesta is null")
+    int completar(String clave, String respuesta);
+
+    @Transactional
+    @Modifying
+    @Query("delete from TransferenciaIdempotente t where t.clave = ?1 and t.respuesta is null")
+    int liberar(String clave);
+
+    @Transactional
+    @Modifying
+    @Query("delete from TransferenciaIdempotente t where t.clave = ?1 and t.expira < ?2")
+    int borrarExpirada(String clave, Instant ahora);
+}
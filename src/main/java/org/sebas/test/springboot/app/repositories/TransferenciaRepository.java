@@ -0,0 +1,23 @@
+package org.sebas.test.springboot.app.repositories;
+
+import org.sebas.test.springboot.app.models.Transferencia;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TransferenciaRepository extends JpaRepository<Transferencia, Long> {
+
+    //Paginas por cursor (fecha, id) dentro de [desde, hasta); cada una recorre solo su indice
+    @Query("select t from Transferencia t where t.origenId = ?1 and t.fecha < ?2 " +
+            "and (t.fecha > ?3 or (t.fecha = ?3 and t.id > ?4)) order by t.fecha, t.id")
+    List<Transferencia> findPaginaOrigen(Long cuentaId, LocalDateTime hasta,
+                                         LocalDateTime despuesDeFecha, Long despuesDeId, Pageable pageable);
+
+    @Query("select t from Transferencia t where t.destinoId = ?1 and t.fecha < ?2 " +
+            "and (t.fecha > ?3 or (t.fecha = ?3 and t.id > ?4)) order by t.fecha, t.id")
+    List<Transferencia> findPaginaDestino(Long cuentaId, LocalDateTime hasta,
+                                          LocalDateTime despuesDeFecha, Long despuesDeId, Pageable pageable);
+}
@@ -0,0 +1,8 @@
+package org.sebas.test.springboot.app.services;
+
+public interface ContadorTransferenciasService {
+
+    void registrar(Long bancoId, long cantidad);
+
+    long total(Long bancoId);
+}
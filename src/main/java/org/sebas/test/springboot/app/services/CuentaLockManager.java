@@ -0,0 +1,15 @@
+package org.sebas.test.springboot.app.services;
+
+/**
+ * Coordina las transferencias concurrentes sobre las mismas cuentas.
+ * El bloqueo devuelto debe cerrarse despues del commit de la transaccion.
+ */
+public interface CuentaLockManager {
+
+    Bloqueo bloquear(Long... cuentaIds);
+
+    interface Bloqueo extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -1,23 +1,42 @@
 package org.sebas.test.springboot.app.services;
 
 import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.CuentaDto;
+import org.sebas.test.springboot.app.models.PaginaCuentasDto;
+import org.sebas.test.springboot.app.models.ResultadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.SaldoCuentaDto;
+import org.sebas.test.springboot.app.models.TransaccionDto;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface CuentaService {
 
-    List<Cuenta> findAll();
+    List<CuentaDto> findAll();
+
+    PaginaCuentasDto findPagina(Long despuesDe, Integer limite);
+
+    void recorrerTodas(Consumer<Cuenta> consumidor);
 
     Cuenta save(Cuenta cuenta);
 
     Cuenta findById(Long id);
 
+    //Sin distinguir mayusculas ni espacios de mas; puede haber varias cuentas con el mismo nombre
+    List<Cuenta> findByPersona(String persona);
+
     void deleteById(Long id);
 
-    int revisarTotalTransferencias(Long bancoId);
+    long revisarTotalTransferencias(Long bancoId);
 
     BigDecimal revisarSaldo(Long cuentaId);
 
+    //En el orden pedido y sin repetidos; los ids que no existen no aparecen
+    List<SaldoCuentaDto> revisarSaldos(Collection<Long> cuentaIds);
+
     void transferir(Long numCuentaOrigen, Long numCuentaDestino, BigDecimal monto, Long bancoId);
+
+    List<ResultadoTransferenciaDto> transferirLote(List<TransaccionDto> transacciones);
 }
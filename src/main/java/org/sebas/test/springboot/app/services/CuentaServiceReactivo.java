@@ -0,0 +1,22 @@
+package org.sebas.test.springboot.app.services;
+
+import org.sebas.test.springboot.app.models.Cuenta;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+public interface CuentaServiceReactivo {
+
+    Flux<Cuenta> findAll();
+
+    Mono<Cuenta> findById(Long id);
+
+    Mono<Cuenta> save(Cuenta cuenta);
+
+    Mono<Void> deleteById(Long id);
+
+    Mono<BigDecimal> revisarSaldo(Long cuentaId);
+
+    Mono<Void> transferir(Long numCuentaOrigen, Long numCuentaDestino, BigDecimal monto, Long bancoId);
+}
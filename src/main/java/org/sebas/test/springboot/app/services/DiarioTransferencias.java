@@ -0,0 +1,18 @@
+package org.sebas.test.springboot.app.services;
+
+import org.sebas.test.springboot.app.models.Dinero;
+
+import java.util.List;
+
+/**
+ * Donde el motor secuencial deja duradero cada lote de transferencias antes de confirmarlas.
+ * Un lote se registra completo o no se registra.
+ */
+public interface DiarioTransferencias {
+
+    void registrar(List<Asiento> transferencias);
+
+    //Una transferencia ya validada por el motor: se debita el origen y se acredita el destino
+    record Asiento(Long origen, Long destino, Dinero monto, Long bancoId) {
+    }
+}
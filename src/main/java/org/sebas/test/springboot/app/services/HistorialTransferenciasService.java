@@ -0,0 +1,23 @@
+package org.sebas.test.springboot.app.services;
+
+import org.sebas.test.springboot.app.models.Dinero;
+import org.sebas.test.springboot.app.models.PaginaTransferenciasDto;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface HistorialTransferenciasService {
+
+    //Debe llamarse dentro de la transaccion que aplica la transferencia
+    void registrar(Long origenId, Long destinoId, Dinero monto, Long bancoId);
+
+    void registrarTodas(List<DiarioTransferencias.Asiento> transferencias);
+
+    //Transferencias enviadas o recibidas por la cuenta en [desde, hasta), ordenadas por fecha; null = sin limite
+    PaginaTransferenciasDto buscar(Long cuentaId, LocalDateTime desde, LocalDateTime hasta, Long despuesDe, Integer limite);
+
+    //CSV fila a fila desde un cursor de la base; cuentaId y bancoId son filtros opcionales
+    long exportarCsv(Long cuentaId, Long bancoId, LocalDateTime desde, LocalDateTime hasta, Writer salida) throws IOException;
+}
@@ -0,0 +1,22 @@
+package org.sebas.test.springboot.app.services;
+
+import org.sebas.test.springboot.app.models.ImportacionDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+
+public interface ImportacionCuentasService {
+
+    //Lee la entrada linea a linea mientras llega; cada linea es persona,saldo (CSV) o un objeto JSON (NDJSON)
+    ImportacionDto importar(InputStream entrada, Formato formato) throws IOException;
+
+    List<ImportacionDto> listar();
+
+    Optional<ImportacionDto> buscar(Long id);
+
+    enum Formato {
+        CSV, NDJSON
+    }
+}
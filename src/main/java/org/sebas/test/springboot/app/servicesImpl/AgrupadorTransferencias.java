@@ -0,0 +1,123 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import org.sebas.test.springboot.app.models.ResultadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Commit agrupado de transferencias individuales. El primero que llega abre un grupo y es su lider; los que
+ * llegan mientras el grupo esta abierto se suman a el. El lider solo espera si hay otros grupos ejecutandose
+ * (hasta la ventana o hasta completar el maximo): sin carga concurrente ejecuta en el acto y no agrega
+ * latencia. El grupo se ejecuta como un lote, en una transaccion con un flush y un commit, y cada llamador
+ * recibe el resultado de su propia transferencia; las que fallan la validacion no deshacen a las demas.
+ */
+class AgrupadorTransferencias {
+
+    private final Function<List<TransaccionDto>, List<ResultadoTransferenciaDto>> ejecutarLote;
+    private final long ventanaNanos;
+    private final int maximo;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition cambio = lock.newCondition();
+    private Grupo abierto;
+    private int ejecutando;
+
+    AgrupadorTransferencias(Function<List<TransaccionDto>, List<ResultadoTransferenciaDto>> ejecutarLote,
+                            long ventanaMicros, int maximo) {
+        this.ejecutarLote = ejecutarLote;
+        this.ventanaNanos = TimeUnit.MICROSECONDS.toNanos(ventanaMicros);
+        this.maximo = Math.max(1, maximo);
+    }
+
+    //Bloquea hasta que el grupo de la transferencia se confirme o falle entero
+    ResultadoTransferenciaDto transferir(TransaccionDto dto) {
+        Grupo grupo;
+        int indice;
+        boolean lider;
+        lock.lock();
+        try {
+            lider = abierto == null;
+            if (lider) {
+                abierto = new Grupo();
+            }
+            grupo = abierto;
+            indice = grupo.transacciones.size();
+            grupo.transacciones.add(dto);
+            if (grupo.transacciones.size() >= maximo) {
+                abierto = null;
+                cambio.signalAll();
+            }
+            if (lider) {
+                esperarCompanias(grupo);
+                ejecutando++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (lider) {
+            ejecutar(grupo);
+        }
+        try {
+            return grupo.resultados.join().get(indice);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    //Se llama con el lock tomado; al volver el grupo queda cerrado
+    private void esperarCompanias(Grupo grupo) {
+        long restante = ventanaNanos;
+        while (abierto == grupo && ejecutando > 0 && restante > 0) {
+            try {
+                restante = cambio.awaitNanos(restante);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (abierto == grupo) {
+            abierto = null;
+        }
+    }
+
+    private void ejecutar(Grupo grupo) {
+        try {
+            grupo.resultados.complete(ejecutarLote.apply(grupo.transacciones));
+        } catch (RuntimeException e) {
+            grupo.resultados.completeExceptionally(e);
+        } finally {
+            lock.lock();
+            try {
+                ejecutando--;
+                cambio.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    //Transferencias en el grupo que aun acepta companeros
+    int getEnGrupoAbierto() {
+        lock.lock();
+        try {
+            return abierto == null ? 0 : abierto.transacciones.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Grupo {
+        private final List<TransaccionDto> transacciones = new ArrayList<>();
+        private final CompletableFuture<List<ResultadoTransferenciaDto>> resultados = new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,156 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import jakarta.annotation.PreDestroy;
+import org.sebas.test.springboot.app.models.Banco;
+import org.sebas.test.springboot.app.models.ContadorTransferencias;
+import org.sebas.test.springboot.app.repositories.BancoRepository;
+import org.sebas.test.springboot.app.repositories.ContadorTransferenciasRepository;
+import org.sebas.test.springboot.app.services.ContadorTransferenciasService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * Contador de transferencias repartido en ranuras por banco. Opcionalmente acumula los
+ * incrementos en memoria (LongAdder) y los vuelca a la base de datos cada cierto tiempo.
+ */
+@Service
+public class ContadorTransferenciasServiceImpl implements ContadorTransferenciasService {
+
+    private static final Logger log = LoggerFactory.getLogger(ContadorTransferenciasServiceImpl.class);
+
+    private final ContadorTransferenciasRepository contadorRepository;
+    private final BancoRepository bancoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate transaccionNueva;
+    private final int numSlots;
+    private final boolean acumularEnMemoria;
+    private final ConcurrentMap<Long, LongAdder> pendientes = new ConcurrentHashMap<>();
+    //ReentrantLock y no synchronized: un hilo virtual esperando JDBC dentro de synchronized fija su hilo portador
+    private final ReentrantLock creacionSlots = new ReentrantLock();
+
+    public ContadorTransferenciasServiceImpl(ContadorTransferenciasRepository contadorRepository,
+                                             BancoRepository bancoRepository,
+                                             PlatformTransactionManager transactionManager,
+                                             @Value("${app.bancos.contador.slots:16}") int numSlots,
+                                             @Value("${app.bancos.contador.acumular-en-memoria:false}") boolean acumularEnMemoria) {
+        if (numSlots <= 0) {
+            throw new IllegalArgumentException("El numero de ranuras debe ser positivo");
+        }
+        this.contadorRepository = contadorRepository;
+        this.bancoRepository = bancoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transaccionNueva = new TransactionTemplate(transactionManager);
+        this.transaccionNueva.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.numSlots = numSlots;
+        this.acumularEnMemoria = acumularEnMemoria;
+    }
+
+    @Override
+    public void registrar(Long bancoId, long cantidad) {
+        if (acumularEnMemoria) {
+            LongAdder pendiente = pendientes.computeIfAbsent(bancoId, id -> new LongAdder());
+            // Solo al confirmar: una transferencia revertida o reintentada no debe contarse
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        pendiente.add(cantidad);
+                    }
+                });
+            } else {
+                pendiente.add(cantidad);
+            }
+        } else {
+            incrementarSlot(bancoId, cantidad);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long total(Long bancoId) {
+        LongAdder pendiente = pendientes.get(bancoId);
+        return contadorRepository.sumarPorBanco(bancoId) + (pendiente == null ? 0 : pendiente.sum());
+    }
+
+    @Scheduled(fixedDelayString = "${app.bancos.contador.flush-ms:1000}")
+    public void volcarPendientes() {
+        pendientes.forEach((bancoId, pendiente) -> {
+            long delta = pendiente.sumThenReset();
+            if (delta == 0) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> incrementarSlot(bancoId, delta));
+            } catch (RuntimeException e) {
+                // Se devuelve el delta para el siguiente volcado
+                pendiente.add(delta);
+                log.warn("No se pudo volcar el contador del banco {}: {}", bancoId, e.getMessage());
+            }
+        });
+    }
+
+    //Crea al arrancar las ranuras de los bancos existentes, asi una transferencia no necesita
+    //una segunda conexion (REQUIRES_NEW) para crearlas mientras tiene la suya abierta
+    @EventListener(ApplicationReadyEvent.class)
+    public void crearSlotsIniciales() {
+        for (Banco banco : bancoRepository.findAll()) {
+            crearSlots(banco.getId());
+        }
+    }
+
+    @PreDestroy
+    public void alCerrar() {
+        volcarPendientes();
+    }
+
+    private void incrementarSlot(Long bancoId, long cantidad) {
+        int slot = ThreadLocalRandom.current().nextInt(numSlots);
+        if (contadorRepository.incrementar(bancoId, slot, cantidad) == 0) {
+            crearSlots(bancoId);
+            if (contadorRepository.incrementar(bancoId, slot, cantidad) == 0) {
+                throw new IllegalStateException("No existe la ranura " + slot + " del contador del banco " + bancoId);
+            }
+        }
+    }
+
+    //Las ranuras se crean la primera vez que se usan, en su propia transaccion para que las vean los demas hilos
+    private void crearSlots(Long bancoId) {
+        creacionSlots.lock();
+        try {
+            transaccionNueva.executeWithoutResult(status -> {
+                Set<Integer> existentes = new HashSet<>(contadorRepository.findSlotsByBancoId(bancoId));
+                List<ContadorTransferencias> nuevas = IntStream.range(0, numSlots)
+                        .filter(slot -> !existentes.contains(slot))
+                        .mapToObj(slot -> new ContadorTransferencias(bancoId, slot, 0))
+                        .toList();
+                contadorRepository.saveAll(nuevas);
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Las ranuras del banco {} ya fueron creadas por otro proceso", bancoId);
+        } finally {
+            creacionSlots.unlock();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache de lectura de cuentas, acotada por tamano y TTL. Las escrituras invalidan las
+ * entradas antes y despues del commit; una carga que se cruza con una invalidacion no
+ * se guarda, asi nunca queda en la cache un saldo anterior a una transferencia confirmada.
+ * Aunque la cache este deshabilitada, las lecturas concurrentes de una misma cuenta comparten
+ * una sola consulta en curso (app.cuentas.lecturas.compartir); una invalidacion la cierra a
+ * los que llegan despues, que ya no pueden recibir un saldo anterior a la escritura.
+ */
+@Component
+public class CuentaCache {
+
+    private final boolean habilitada;
+    private final Cache<Long, Cuenta> cache;
+    private final AtomicLong invalidaciones = new AtomicLong();
+    private final boolean compartirLecturas;
+    private final Map<Long, CompletableFuture<Cuenta>> enCurso = new ConcurrentHashMap<>();
+    private final LongAdder consultas = new LongAdder();
+    private final LongAdder lecturasUnidas = new LongAdder();
+
+    public CuentaCache(@Value("${app.cuentas.cache.habilitado:false}") boolean habilitada,
+                       @Value("${app.cuentas.cache.max-entradas:100000}") long maxEntradas,
+                       @Value("${app.cuentas.cache.ttl-segundos:30}") long ttlSegundos,
+                       @Value("${app.cuentas.lecturas.compartir:true}") boolean compartirLecturas) {
+        this.habilitada = habilitada;
+        this.compartirLecturas = compartirLecturas;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats()
+                .build();
+    }
+
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    public Cuenta obtener(Long id, Supplier<Cuenta> cargar) {
+        if (habilitada) {
+            Cuenta enCache = cache.getIfPresent(id);
+            if (enCache != null) {
+                return copiar(enCache);
+            }
+        }
+        long generacion = invalidaciones.get();
+        Cuenta cargada = compartirLecturas ? cargarCompartida(id, cargar) : cargar.get();
+        if (habilitada) {
+            guardarSiVigente(id, cargada, generacion);
+        }
+        return cargada;
+    }
+
+    //El primero en llegar consulta; los demas esperan su resultado y reciben una copia, o la misma excepcion
+    private Cuenta cargarCompartida(Long id, Supplier<Cuenta> cargar) {
+        CompletableFuture<Cuenta> propia = new CompletableFuture<>();
+        CompletableFuture<Cuenta> actual = enCurso.putIfAbsent(id, propia);
+        if (actual != null) {
+            lecturasUnidas.increment();
+            try {
+                return copiar(actual.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException causa) {
+                    throw causa;
+                }
+                throw e;
+            }
+        }
+        consultas.increment();
+        try {
+            Cuenta cargada = cargar.get();
+            // Los que esperan copian de una instancia que el llamador no puede modificar
+            propia.complete(copiar(cargada));
+            return cargada;
+        } catch (RuntimeException e) {
+            propia.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(id, propia);
+        }
+    }
+
+    //Igual que obtener, pero la carga es un Mono y no bloquea el hilo que consulta
+    public Mono<Cuenta> obtenerReactivo(Long id, Mono<Cuenta> cargar) {
+        if (!habilitada) {
+            return cargar;
+        }
+        return Mono.defer(() -> {
+            Cuenta enCache = cache.getIfPresent(id);
+            if (enCache != null) {
+                return Mono.just(copiar(enCache));
+            }
+            long generacion = invalidaciones.get();
+            return cargar.doOnNext(cargada -> guardarSiVigente(id, cargada, generacion));
+        });
+    }
+
+    private void guardarSiVigente(Long id, Cuenta cargada, long generacion) {
+        Cuenta copia = copiar(cargada);
+        // compute bloquea la clave: una invalidacion concurrente espera o hace que no se guarde
+        cache.asMap().compute(id, (clave, actual) -> invalidaciones.get() == generacion ? copia : actual);
+    }
+
+    //Invalida ahora y otra vez al terminar la transaccion en curso, si la hay
+    public void invalidarAlConfirmar(Long... ids) {
+        if (!habilitada && !compartirLecturas) {
+            return;
+        }
+        List<Long> claves = Arrays.stream(ids).filter(id -> id != null).toList();
+        invalidar(claves);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidar(claves);
+                }
+            });
+        }
+    }
+
+    public void invalidar(Iterable<Long> ids) {
+        invalidaciones.incrementAndGet();
+        cache.invalidateAll(ids);
+        for (Long id : ids) {
+            enCurso.remove(id);
+        }
+    }
+
+    public long getConsultas() {
+        return consultas.sum();
+    }
+
+    public long getLecturasUnidas() {
+        return lecturasUnidas.sum();
+    }
+
+    public CacheStats estadisticas() {
+        return cache.stats();
+    }
+
+    public long tamano() {
+        return cache.estimatedSize();
+    }
+
+    public Cache<Long, Cuenta> getCache() {
+        return cache;
+    }
+
+    private static Cuenta copiar(Cuenta cuenta) {
+        Cuenta copia = new Cuenta(cuenta.getId(), cuenta.getPersona(), cuenta.getSaldo());
+        copia.setVersion(cuenta.getVersion());
+        copia.setUltimoMovimientoId(cuenta.getUltimoMovimientoId());
+        return copia;
+    }
+}
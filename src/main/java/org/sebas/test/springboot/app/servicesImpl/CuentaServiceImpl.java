@@ -1,80 +1,535 @@
 package org.sebas.test.springboot.app.servicesImpl;
 
+import org.sebas.test.springboot.app.exceptions.DineroInsuficienteException;
 import org.sebas.test.springboot.app.models.Banco;
 import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.CuentaDto;
+import org.sebas.test.springboot.app.models.Dinero;
+import org.sebas.test.springboot.app.models.PaginaCuentasDto;
+import org.sebas.test.springboot.app.models.ResultadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.SaldoCuentaDto;
+import org.sebas.test.springboot.app.models.TransaccionDto;
 import org.sebas.test.springboot.app.repositories.BancoRepository;
 import org.sebas.test.springboot.app.repositories.CuentaRepository;
+import org.sebas.test.springboot.app.services.ContadorTransferenciasService;
+import org.sebas.test.springboot.app.services.CuentaLockManager;
 import org.sebas.test.springboot.app.services.CuentaService;
+import org.sebas.test.springboot.app.services.DiarioTransferencias;
+import org.sebas.test.springboot.app.services.HistorialTransferenciasService;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class CuentaServiceImpl implements CuentaService {
 
     private CuentaRepository cuentaRepository;
     private BancoRepository bancoRepository;
+    private ContadorTransferenciasService contadorTransferencias;
+    private CuentaLockManager lockManager;
+    private LibroMovimientos libro;
+    private CuentaCache cuentaCache;
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate lectura;
+    private PoliticaReintentos reintentos;
+    private ModoConcurrencia modoConcurrencia;
+    private int loteMaxItems;
+    private int loteTamanoConsulta;
+    private EntityManager entityManager;
+    private int paginaTamano;
+    private int paginaMaximo;
+    private MetricasTransferencias metricas;
+    private MotorTransferencias motor;
+    private IndicePersonas indicePersonas;
+    private int saldosMaxIds;
+    private HistorialTransferenciasService historial;
+    private AgrupadorTransferencias agrupador;
 
-    public CuentaServiceImpl(CuentaRepository cuentaRepository, BancoRepository bancoRepository) {
+    public CuentaServiceImpl(CuentaRepository cuentaRepository, BancoRepository bancoRepository,
+                             ContadorTransferenciasService contadorTransferencias, CuentaLockManager lockManager,
+                             LibroMovimientos libro, CuentaCache cuentaCache,
+                             PlatformTransactionManager transactionManager, PoliticaReintentos reintentos,
+                             @Value("${app.transferencias.concurrencia:optimista}") ModoConcurrencia modoConcurrencia,
+                             @Value("${app.transferencias.lote.max-items:10000}") int loteMaxItems,
+                             @Value("${app.transferencias.lote.tamano-consulta:1000}") int loteTamanoConsulta,
+                             EntityManager entityManager,
+                             @Value("${app.cuentas.pagina.tamano:100}") int paginaTamano,
+                             @Value("${app.cuentas.pagina.maximo:1000}") int paginaMaximo,
+                             MetricasTransferencias metricas, MotorTransferencias motor,
+                             IndicePersonas indicePersonas,
+                             @Value("${app.cuentas.saldos.max-ids:10000}") int saldosMaxIds,
+                             HistorialTransferenciasService historial,
+                             @Value("${app.transferencias.agrupar.habilitado:false}") boolean agrupar,
+                             @Value("${app.transferencias.agrupar.ventana-us:2000}") long agruparVentanaMicros,
+                             @Value("${app.transferencias.agrupar.maximo:64}") int agruparMaximo) {
         this.cuentaRepository = cuentaRepository;
         this.bancoRepository = bancoRepository;
+        this.contadorTransferencias = contadorTransferencias;
+        this.lockManager = lockManager;
+        this.libro = libro;
+        this.cuentaCache = cuentaCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.reintentos = reintentos;
+        this.modoConcurrencia = modoConcurrencia;
+        this.loteMaxItems = loteMaxItems;
+        this.loteTamanoConsulta = loteTamanoConsulta;
+        this.entityManager = entityManager;
+        this.paginaTamano = paginaTamano;
+        this.paginaMaximo = paginaMaximo;
+        this.metricas = metricas;
+        this.motor = motor;
+        this.indicePersonas = indicePersonas;
+        this.saldosMaxIds = saldosMaxIds;
+        this.historial = historial;
+        if (agrupar) {
+            this.agrupador = new AgrupadorTransferencias(transacciones -> {
+                metricas.registrarGrupo(transacciones.size());
+                return transferirLote(transacciones);
+            }, agruparVentanaMicros, agruparMaximo);
+        }
     }
 
     @Override
+    @Timed("cuentas.findAll")
     @Transactional(readOnly = true)
-    public List<Cuenta> findAll() {
-        return cuentaRepository.findAll();
+    public List<CuentaDto> findAll() {
+        return libro.isActivo() ? cuentaRepository.findAllDtoConPendientes() : cuentaRepository.findAllDto();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaCuentasDto findPagina(Long despuesDe, Integer limite) {
+        int tamano = limite == null ? paginaTamano : Math.max(1, Math.min(limite, paginaMaximo));
+        // Se pide una fila de mas solo para saber si existe una pagina siguiente
+        Long desde = despuesDe == null ? 0L : despuesDe;
+        List<CuentaDto> cuentas = libro.isActivo()
+                ? cuentaRepository.findPaginaDtoConPendientes(desde, PageRequest.of(0, tamano + 1))
+                : cuentaRepository.findPaginaDto(desde, PageRequest.of(0, tamano + 1));
+        Long siguiente = null;
+        if (cuentas.size() > tamano) {
+            cuentas = cuentas.subList(0, tamano);
+            siguiente = cuentas.get(tamano - 1).getId();
+        }
+        return new PaginaCuentasDto(cuentas, siguiente);
+    }
+
+    @Override
+    public void recorrerTodas(Consumer<Cuenta> consumidor) {
+        // Se recorre un cursor con fetch size y se vacia el contexto de persistencia por bloques,
+        // asi la memoria no depende del tamano de la tabla
+        lectura.executeWithoutResult(status -> {
+            try (Stream<Cuenta> cuentas = cuentaRepository.streamAll()) {
+                List<Cuenta> bloque = new ArrayList<>(loteTamanoConsulta);
+                cuentas.forEach(cuenta -> {
+                    bloque.add(cuenta);
+                    if (bloque.size() == loteTamanoConsulta) {
+                        emitirBloque(bloque, consumidor);
+                    }
+                });
+                emitirBloque(bloque, consumidor);
+            }
+        });
+    }
+
+    private void emitirBloque(List<Cuenta> bloque, Consumer<Cuenta> consumidor) {
+        if (bloque.isEmpty()) {
+            return;
+        }
+        (libro.isActivo() ? libro.conSaldoActual(bloque) : bloque).forEach(consumidor);
+        bloque.clear();
+        entityManager.clear();
     }
 
     @Override
     @Transactional
     public Cuenta save(Cuenta cuenta) {
-        return cuentaRepository.save(cuenta);
+        // Si cambia el nombre tambien hay que olvidar el anterior en el indice de personas
+        String anterior = cuenta.getId() == null ? null
+                : cuentaRepository.findPersonaNormalizadaById(cuenta.getId()).orElse(null);
+        Cuenta guardada = cuentaRepository.save(cuenta);
+        cuentaCache.invalidarAlConfirmar(guardada.getId());
+        motor.invalidarAlConfirmar(guardada.getId());
+        indicePersonas.invalidarAlConfirmar(anterior, guardada.getPersona());
+        return guardada;
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Timed("cuentas.findById")
     public Cuenta findById(Long id) {
-        return cuentaRepository.findById(id).orElseThrow();
+        // Sin @Transactional: un acierto en la cache no abre transaccion ni pide conexion
+        return cuentaCache.obtener(id, () -> lectura.execute(status -> cargarCuenta(id)));
+    }
+
+    @Override
+    @Timed("cuentas.findByPersona")
+    public List<Cuenta> findByPersona(String persona) {
+        List<Long> ids = indicePersonas.buscar(persona,
+                normalizada -> lectura.execute(status -> cuentaRepository.findIdsByPersonaNormalizada(normalizada)));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // Una sola consulta IN; las cuentas borradas despues de leer el indice simplemente no vuelven
+        List<CuentaDto> cuentas = lectura.execute(status -> libro.isActivo()
+                ? cuentaRepository.findDtoConPendientesByIds(ids) : cuentaRepository.findDtoByIds(ids));
+        return cuentas.stream().map(CuentaDto::aCuenta).toList();
+    }
+
+    //Desde la proyeccion: la Cuenta devuelta nunca estuvo en el contexto de persistencia
+    private Cuenta cargarCuenta(Long id) {
+        return (libro.isActivo() ? cuentaRepository.findDtoConPendientesById(id) : cuentaRepository.findDtoById(id))
+                .orElseThrow()
+                .aCuenta();
     }
 
     @Override
     @Transactional
     public void deleteById(Long id) {
+        String persona = cuentaRepository.findPersonaNormalizadaById(id).orElse(null);
         cuentaRepository.deleteById(id);
+        cuentaCache.invalidarAlConfirmar(id);
+        motor.invalidarAlConfirmar(id);
+        indicePersonas.invalidarAlConfirmar(persona);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public int revisarTotalTransferencias(Long bancoId) {
+    public long revisarTotalTransferencias(Long bancoId) {
         Banco banco = bancoRepository.findById(bancoId).orElseThrow();
-        return banco.getTotalTransferencias();
+        return banco.getTotalTransferencias() + contadorTransferencias.total(bancoId);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Timed("cuentas.revisarSaldo")
     public BigDecimal revisarSaldo(Long cuentaId) {
-        Cuenta cuenta = cuentaRepository.findById(cuentaId).orElseThrow();
-        return cuenta.getSaldo();
+        return findById(cuentaId).getSaldo();
     }
 
     @Override
-    @Transactional
+    @Timed("cuentas.revisarSaldos")
+    @Transactional(readOnly = true)
+    public List<SaldoCuentaDto> revisarSaldos(Collection<Long> cuentaIds) {
+        if (cuentaIds.size() > saldosMaxIds) {
+            throw new IllegalArgumentException("La consulta supera el maximo de " + saldosMaxIds + " cuentas");
+        }
+        List<Long> ids = cuentaIds.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Long, SaldoCuentaDto> saldos = new HashMap<>(ids.size() * 2);
+        // Una consulta IN por bloque: la lista de parametros no crece sin limite
+        for (int desde = 0; desde < ids.size(); desde += loteTamanoConsulta) {
+            List<Long> bloque = ids.subList(desde, Math.min(desde + loteTamanoConsulta, ids.size()));
+            List<SaldoCuentaDto> encontrados = libro.isActivo()
+                    ? cuentaRepository.findSaldosConPendientes(bloque) : cuentaRepository.findSaldos(bloque);
+            encontrados.forEach(saldo -> saldos.put(saldo.getId(), saldo));
+        }
+        List<SaldoCuentaDto> resultado = new ArrayList<>(saldos.size());
+        for (Long id : ids) {
+            SaldoCuentaDto saldo = saldos.get(id);
+            if (saldo != null) {
+                resultado.add(saldo);
+            }
+        }
+        return resultado;
+    }
+
+    @Override
+    @Timed("cuentas.transferir")
     public void transferir(Long numCuentaOrigen, Long numCuentaDestino, BigDecimal monto, Long bancoId) {
+        if (agrupador != null && !motor.isActivo()) {
+            // Fuera del try: los fondos insuficientes ya los cuenta transferirLote
+            transferirAgrupada(numCuentaOrigen, numCuentaDestino, monto, bancoId);
+            return;
+        }
+        try {
+            if (motor.isActivo()) {
+                // Sin bloqueos ni reintentos: el hilo del fragmento de la cuenta origen ordena las transferencias
+                motor.transferir(numCuentaOrigen, numCuentaDestino, monto, bancoId);
+                return;
+            }
+            // El bloqueo se libera despues del commit, asi ninguna otra transferencia lee un saldo sin confirmar
+            // Cada reintento abre una transaccion nueva y vuelve a leer las cuentas
+            try (CuentaLockManager.Bloqueo bloqueo = bloquear(numCuentaOrigen, numCuentaDestino)) {
+                reintentos.ejecutar(() -> transactionTemplate.executeWithoutResult(status ->
+                        ejecutarTransferencia(numCuentaOrigen, numCuentaDestino, monto, bancoId)));
+            }
+        } catch (DineroInsuficienteException e) {
+            metricas.registrarFondosInsuficientes(1);
+            throw e;
+        }
+    }
+
+    //Comparte transaccion con otras transferencias concurrentes; lanza las mismas excepciones que el modo directo
+    private void transferirAgrupada(Long numCuentaOrigen, Long numCuentaDestino, BigDecimal monto, Long bancoId) {
+        TransaccionDto dto = new TransaccionDto();
+        dto.setCuentaOrigenId(numCuentaOrigen);
+        dto.setCuentaDestinoId(numCuentaDestino);
+        dto.setMonto(monto);
+        dto.setBancoId(bancoId);
+        ResultadoTransferenciaDto resultado = agrupador.transferir(dto);
+        switch (resultado.getCodigo()) {
+            case ResultadoTransferenciaDto.OK -> {
+            }
+            case ResultadoTransferenciaDto.FONDOS_INSUFICIENTES -> throw new DineroInsuficienteException(resultado.getMensaje());
+            case ResultadoTransferenciaDto.CUENTA_NO_ENCONTRADA, ResultadoTransferenciaDto.BANCO_NO_ENCONTRADO ->
+                    throw new NoSuchElementException(resultado.getMensaje());
+            default -> throw new IllegalArgumentException(resultado.getMensaje());
+        }
+    }
+
+    private CuentaLockManager.Bloqueo bloquear(Long... cuentaIds) {
+        long inicio = System.nanoTime();
+        try {
+            return lockManager.bloquear(cuentaIds);
+        } catch (CannotAcquireLockException e) {
+            metricas.registrarBloqueoAgotado();
+            throw e;
+        } finally {
+            metricas.registrarEsperaBloqueo(System.nanoTime() - inicio);
+        }
+    }
+
+    private void ejecutarTransferencia(Long numCuentaOrigen, Long numCuentaDestino, BigDecimal monto, Long bancoId) {
+        cuentaCache.invalidarAlConfirmar(numCuentaOrigen, numCuentaDestino);
+        metricas.medirCommit();
+        if (modoConcurrencia == ModoConcurrencia.PESIMISTA) {
+            // Las filas se bloquean en orden de id para evitar deadlocks; los findById siguientes
+            // devuelven la misma entidad ya bloqueada desde el contexto de persistencia.
+            // La fila del banco no se bloquea: el contador ya no se escribe en ella
+            cuentaRepository.findByIdForUpdate(Math.min(numCuentaOrigen, numCuentaDestino));
+            cuentaRepository.findByIdForUpdate(Math.max(numCuentaOrigen, numCuentaDestino));
+        }
 
         Cuenta cuentaOrigen = cuentaRepository.findById(numCuentaOrigen).orElseThrow();
-        cuentaOrigen.debito(monto);
-        cuentaRepository.save(cuentaOrigen);
+        if (libro.isActivo()) {
+            // Solo valida los fondos sobre el saldo actual; la fila de la cuenta no se escribe
+            libro.conSaldoActual(cuentaOrigen).debito(monto);
+        } else {
+            cuentaOrigen.debito(monto);
+            cuentaRepository.save(cuentaOrigen);
+        }
 
         Cuenta cuentaDestino = cuentaRepository.findById(numCuentaDestino).orElseThrow();
-        cuentaDestino.credito(monto);
-        cuentaRepository.save(cuentaDestino);
+        if (!libro.isActivo()) {
+            cuentaDestino.credito(monto);
+            cuentaRepository.save(cuentaDestino);
+        }
 
+        // Solo se valida que el banco exista; el total se incrementa en una ranura del contador
         Banco banco = bancoRepository.findById(bancoId).orElseThrow();
-        int totalTranferencias = banco.getTotalTransferencias();
-        banco.setTotalTransferencias(++totalTranferencias);
-        bancoRepository.save(banco);
+        if (libro.isActivo()) {
+            libro.registrarTransferencia(cuentaOrigen.getId(), cuentaDestino.getId(), monto, banco.getId());
+        }
+        historial.registrar(cuentaOrigen.getId(), cuentaDestino.getId(), Dinero.de(monto), banco.getId());
+        contadorTransferencias.registrar(banco.getId(), 1);
+    }
+
+    @Override
+    @Timed("cuentas.transferirLote")
+    public List<ResultadoTransferenciaDto> transferirLote(List<TransaccionDto> transacciones) {
+        if (transacciones.size() > loteMaxItems) {
+            throw new IllegalArgumentException("El lote supera el maximo de " + loteMaxItems + " transferencias");
+        }
+        if (motor.isActivo()) {
+            // Los saldos del motor se adelantan a la base: escribir las cuentas por JPA podria dejarlas en negativo
+            return transferirLoteEnMotor(transacciones);
+        }
+        Set<Long> cuentaIds = new LinkedHashSet<>();
+        for (TransaccionDto dto : transacciones) {
+            if (dto.getCuentaOrigenId() != null) {
+                cuentaIds.add(dto.getCuentaOrigenId());
+            }
+            if (dto.getCuentaDestinoId() != null) {
+                cuentaIds.add(dto.getCuentaDestinoId());
+            }
+        }
+        List<ResultadoTransferenciaDto> resultados;
+        try (CuentaLockManager.Bloqueo bloqueo = bloquear(cuentaIds.toArray(Long[]::new))) {
+            resultados = reintentos.ejecutar(() -> transactionTemplate.execute(status ->
+                    ejecutarLote(transacciones, cuentaIds)));
+        }
+        metricas.registrarFondosInsuficientes(resultados.stream()
+                .filter(resultado -> ResultadoTransferenciaDto.FONDOS_INSUFICIENTES.equals(resultado.getCodigo()))
+                .count());
+        return resultados;
+    }
+
+    //Cada transferencia va al fragmento de su cuenta origen; se envian todas y despues se esperan.
+    //El orden del lote se respeta entre las de una misma cuenta origen, no entre fragmentos
+    private List<ResultadoTransferenciaDto> transferirLoteEnMotor(List<TransaccionDto> transacciones) {
+        ResultadoTransferenciaDto[] resultados = new ResultadoTransferenciaDto[transacciones.size()];
+        List<CompletableFuture<Void>> enCurso = new ArrayList<>(Collections.nCopies(transacciones.size(), null));
+        for (int i = 0; i < transacciones.size(); i++) {
+            TransaccionDto dto = transacciones.get(i);
+            resultados[i] = validarDatos(i, dto);
+            if (resultados[i] != null) {
+                continue;
+            }
+            if (dto.getCuentaOrigenId() == null || dto.getCuentaDestinoId() == null) {
+                resultados[i] = new ResultadoTransferenciaDto(i, ResultadoTransferenciaDto.CUENTA_NO_ENCONTRADA,
+                        "No existe la cuenta null");
+                continue;
+            }
+            try {
+                enCurso.set(i, motor.enviar(dto.getCuentaOrigenId(), dto.getCuentaDestinoId(), dto.getMonto(),
+                        dto.getBancoId()));
+            } catch (NoSuchElementException e) {
+                resultados[i] = new ResultadoTransferenciaDto(i, ResultadoTransferenciaDto.BANCO_NO_ENCONTRADO, e.getMessage());
+            } catch (RuntimeException e) {
+                resultados[i] = new ResultadoTransferenciaDto(i, ResultadoTransferenciaDto.NO_APLICADA, e.getMessage());
+            }
+        }
+        long fondosInsuficientes = 0;
+        for (int i = 0; i < resultados.length; i++) {
+            if (enCurso.get(i) == null) {
+                continue;
+            }
+            try {
+                enCurso.get(i).join();
+                resultados[i] = ResultadoTransferenciaDto.exitosa(i);
+            } catch (CompletionException e) {
+                Throwable causa = e.getCause();
+                if (causa instanceof DineroInsuficienteException) {
+                    fondosInsuficientes++;
+                    resultados[i] = new ResultadoTransferenciaDto(i, ResultadoTransferenciaDto.FONDOS_INSUFICIENTES, causa.getMessage());
+                } else if (causa instanceof NoSuchElementException) {
+                    resultados[i] = new ResultadoTransferenciaDto(i, ResultadoTransferenciaDto.CUENTA_NO_ENCONTRADA, causa.getMessage());
+                } else {
+                    resultados[i] = new ResultadoTransferenciaDto(i, ResultadoTransferenciaDto.NO_APLICADA, causa.getMessage());
+                }
+            }
+        }
+        metricas.registrarFondosInsuficientes(fondosInsuficientes);
+        return Arrays.asList(resultados);
+    }
+
+    //null si los datos de la transferencia son validos; un monto invalido no debe llegar a fallar el lote entero
+    private static ResultadoTransferenciaDto validarDatos(int indice, TransaccionDto dto) {
+        if (dto.getMonto() == null || dto.getMonto().signum() <= 0 || dto.getBancoId() == null) {
+            return new ResultadoTransferenciaDto(indice, ResultadoTransferenciaDto.DATOS_INVALIDOS,
+                    "El monto debe ser positivo y el banco es obligatorio");
+        }
+        if (!Dinero.esRepresentable(dto.getMonto())) {
+            return new ResultadoTransferenciaDto(indice, ResultadoTransferenciaDto.DATOS_INVALIDOS,
+                    "El monto admite como maximo " + Dinero.ESCALA + " decimales y debe caber en un saldo");
+        }
+        return null;
+    }
+
+    //Aplica las transferencias en orden sobre las cuentas ya cargadas; el flush final va en lotes JDBC
+    private List<ResultadoTransferenciaDto> ejecutarLote(List<TransaccionDto> transacciones, Set<Long> cuentaIds) {
+        metricas.medirCommit();
+        Map<Long, Cuenta> cuentas = cargarCuentas(cuentaIds);
+        if (libro.isActivo()) {
+            // En el modo libro se trabaja sobre copias con el saldo actual y solo se insertan movimientos
+            libro.conSaldoActual(new ArrayList<>(cuentas.values())).forEach(copia -> cuentas.put(copia.getId(), copia));
+        }
+        Set<Long> bancoIds = transacciones.stream()
+                .map(TransaccionDto::getBancoId)
+                .filter(id -> id != null)
+                .collect(Collectors.toSet());
+        Set<Long> bancosExistentes = bancoRepository.findAllById(bancoIds).stream()
+                .map(Banco::getId)
+                .collect(Collectors.toSet());
+
+        List<ResultadoTransferenciaDto> resultados = new ArrayList<>(transacciones.size());
+        Map<Long, Cuenta> modificadas = new LinkedHashMap<>();
+        List<TransaccionDto> aplicadas = new ArrayList<>();
+        Map<Long, Long> transferenciasPorBanco = new HashMap<>();
+
+        for (int i = 0; i < transacciones.size(); i++) {
+            TransaccionDto dto = transacciones.get(i);
+            ResultadoTransferenciaDto invalida = validarDatos(i, dto);
+            if (invalida != null) {
+                resultados.add(invalida);
+                continue;
+            }
+            Cuenta origen = dto.getCuentaOrigenId() == null ? null : cuentas.get(dto.getCuentaOrigenId());
+            Cuenta destino = dto.getCuentaDestinoId() == null ? null : cuentas.get(dto.getCuentaDestinoId());
+            if (origen == null || destino == null) {
+                resultados.add(new ResultadoTransferenciaDto(i, ResultadoTransferenciaDto.CUENTA_NO_ENCONTRADA,
+                        "No existe la cuenta " + (origen == null ? dto.getCuentaOrigenId() : dto.getCuentaDestinoId())));
+                continue;
+            }
+            if (!bancosExistentes.contains(dto.getBancoId())) {
+                resultados.add(new ResultadoTransferenciaDto(i, ResultadoTransferenciaDto.BANCO_NO_ENCONTRADO,
+                        "No existe el banco " + dto.getBancoId()));
+                continue;
+            }
+            Dinero monto = Dinero.de(dto.getMonto());
+            try {
+                origen.debito(monto);
+            } catch (DineroInsuficienteException e) {
+                resultados.add(new ResultadoTransferenciaDto(i, ResultadoTransferenciaDto.FONDOS_INSUFICIENTES, e.getMessage()));
+                continue;
+            }
+            try {
+                destino.credito(monto);
+            } catch (ArithmeticException e) {
+                // El saldo destino se desbordaria: se devuelve el debito y solo falla esta transferencia
+                origen.credito(monto);
+                resultados.add(new ResultadoTransferenciaDto(i, ResultadoTransferenciaDto.DATOS_INVALIDOS,
+                        "El saldo de la cuenta " + destino.getId() + " se desbordaria"));
+                continue;
+            }
+            modificadas.put(origen.getId(), origen);
+            modificadas.put(destino.getId(), destino);
+            transferenciasPorBanco.merge(dto.getBancoId(), 1L, Long::sum);
+            aplicadas.add(dto);
+            resultados.add(ResultadoTransferenciaDto.exitosa(i));
+        }
+
+        if (libro.isActivo()) {
+            libro.registrarTransferencias(aplicadas);
+        } else {
+            cuentaRepository.saveAll(modificadas.values());
+        }
+        historial.registrarTodas(aplicadas.stream()
+                .map(dto -> new DiarioTransferencias.Asiento(dto.getCuentaOrigenId(), dto.getCuentaDestinoId(),
+                        Dinero.de(dto.getMonto()), dto.getBancoId()))
+                .toList());
+        cuentaCache.invalidarAlConfirmar(modificadas.keySet().toArray(Long[]::new));
+        motor.invalidarAlConfirmar(modificadas.keySet().toArray(Long[]::new));
+        transferenciasPorBanco.forEach(contadorTransferencias::registrar);
+        return resultados;
+    }
+
+    //Una sola consulta por bloque de ids para no armar listas IN gigantes
+    private Map<Long, Cuenta> cargarCuentas(Set<Long> cuentaIds) {
+        Map<Long, Cuenta> cuentas = new HashMap<>(cuentaIds.size() * 2);
+        List<Long> ids = new ArrayList<>(cuentaIds);
+        ids.sort(null);
+        for (int desde = 0; desde < ids.size(); desde += loteTamanoConsulta) {
+            List<Long> bloque = ids.subList(desde, Math.min(desde + loteTamanoConsulta, ids.size()));
+            List<Cuenta> encontradas = modoConcurrencia == ModoConcurrencia.PESIMISTA
+                    ? cuentaRepository.findAllByIdForUpdate(bloque)
+                    : cuentaRepository.findAllById(bloque);
+            encontradas.forEach(cuenta -> cuentas.put(cuenta.getId(), cuenta));
+        }
+        return cuentas;
     }
 }
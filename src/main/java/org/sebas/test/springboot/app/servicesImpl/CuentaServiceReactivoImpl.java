@@ -0,0 +1,247 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import io.r2dbc.spi.Parameters;
+import io.r2dbc.spi.R2dbcType;
+import io.r2dbc.spi.Readable;
+import org.sebas.test.springboot.app.exceptions.DineroInsuficienteException;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.services.CuentaServiceReactivo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * CuentaService sobre R2DBC. Las cuentas se actualizan con UPDATE condicionales dentro de una
+ * transaccion reactiva: el debito solo aplica si alcanza el saldo, asi no hace falta leer la fila
+ * antes ni bloquear hilos. Las actualizaciones incrementan la version, de modo que una transferencia
+ * optimista del API bloqueante que se cruce con esta falla y se reintenta.
+ */
+@Service
+@ConditionalOnProperty(name = "app.reactivo.habilitado", havingValue = "true")
+public class CuentaServiceReactivoImpl implements CuentaServiceReactivo {
+
+    private static final String SELECT_CUENTA = "SELECT id, persona, saldo, version FROM cuentas";
+
+    private final DatabaseClient cliente;
+    private final TransactionalOperator transaccion;
+    private final CuentaCache cuentaCache;
+    private final IndicePersonas indicePersonas;
+    private final MetricasTransferencias metricas;
+    private final int numSlots;
+    private final boolean historial;
+
+    public CuentaServiceReactivoImpl(DatabaseClient cliente, TransactionalOperator transaccion,
+                                     CuentaCache cuentaCache, IndicePersonas indicePersonas,
+                                     LibroMovimientos libro, MotorTransferencias motor,
+                                     MetricasTransferencias metricas,
+                                     @Value("${app.bancos.contador.slots:16}") int numSlots,
+                                     @Value("${app.transferencias.historial.habilitado:true}") boolean historial) {
+        if (libro.isActivo()) {
+            throw new IllegalStateException("El API reactivo solo admite app.cuentas.saldo.modo=directo");
+        }
+        if (motor.isActivo()) {
+            // Los saldos del motor viven en memoria; escribir la base por fuera de el los dejaria desfasados
+            throw new IllegalStateException("El API reactivo no admite app.transferencias.concurrencia=secuencial");
+        }
+        this.cliente = cliente;
+        this.transaccion = transaccion;
+        this.cuentaCache = cuentaCache;
+        this.indicePersonas = indicePersonas;
+        this.metricas = metricas;
+        this.numSlots = numSlots;
+        this.historial = historial;
+    }
+
+    @Override
+    public Flux<Cuenta> findAll() {
+        return cliente.sql(SELECT_CUENTA + " ORDER BY id")
+                .map(CuentaServiceReactivoImpl::mapearCuenta)
+                .all();
+    }
+
+    @Override
+    public Mono<Cuenta> findById(Long id) {
+        Mono<Cuenta> cargar = cliente.sql(SELECT_CUENTA + " WHERE id = :id")
+                .bind("id", id)
+                .map(CuentaServiceReactivoImpl::mapearCuenta)
+                .one()
+                .switchIfEmpty(Mono.error(NoSuchElementException::new));
+        return cuentaCache.obtenerReactivo(id, cargar);
+    }
+
+    @Override
+    public Mono<Cuenta> save(Cuenta cuenta) {
+        if (cuenta.getId() == null) {
+            // Usa el primer id del bloque que reserva el NEXT VALUE; el resto del bloque no se aprovecha
+            return cliente.sql(SecuenciaCuentas.SIGUIENTE_VALOR)
+                    .map(row -> row.get(0, Long.class))
+                    .one()
+                    .flatMap(id -> cliente.sql("INSERT INTO cuentas (id, persona, persona_normalizada, saldo, version) "
+                                    + "VALUES (:id, :persona, :personaNormalizada, :saldo, 0)")
+                            .bind("id", id)
+                            .bind("persona", Parameters.in(R2dbcType.VARCHAR, cuenta.getPersona()))
+                            .bind("personaNormalizada", Parameters.in(R2dbcType.VARCHAR, cuenta.getPersonaNormalizada()))
+                            .bind("saldo", Parameters.in(R2dbcType.NUMERIC, cuenta.getSaldo()))
+                            .then()
+                            .thenReturn(id))
+                    .map(id -> {
+                        cuenta.setId(id);
+                        cuenta.setVersion(0L);
+                        return cuenta;
+                    })
+                    .doOnTerminate(() -> indicePersonas.invalidarAlConfirmar(cuenta.getPersona()));
+        }
+        if (cuenta.getVersion() == null) {
+            return Mono.error(new IllegalArgumentException("La version es obligatoria para actualizar una cuenta"));
+        }
+        // Como @Version en el API bloqueante: si otra escritura ya cambio la fila (una transferencia confirmada,
+        // por ejemplo), el UPDATE no aplica en lugar de pisar su saldo.
+        // Sin leer la fila no se sabe el nombre anterior: se invalida todo el indice de personas
+        long version = cuenta.getVersion();
+        return cliente.sql("UPDATE cuentas SET persona = :persona, persona_normalizada = :personaNormalizada, "
+                        + "saldo = :saldo, version = version + 1 WHERE id = :id AND version = :version")
+                .bind("persona", Parameters.in(R2dbcType.VARCHAR, cuenta.getPersona()))
+                .bind("personaNormalizada", Parameters.in(R2dbcType.VARCHAR, cuenta.getPersonaNormalizada()))
+                .bind("saldo", Parameters.in(R2dbcType.NUMERIC, cuenta.getSaldo()))
+                .bind("id", cuenta.getId())
+                .bind("version", version)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(filas -> filas > 0 ? Mono.just(cuenta) : conflictoOInexistente(cuenta.getId()))
+                .doOnNext(guardada -> guardada.setVersion(version + 1))
+                .doOnTerminate(() -> invalidar(cuenta.getId()))
+                .doOnCancel(() -> invalidar(cuenta.getId()));
+    }
+
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return cliente.sql("DELETE FROM cuentas WHERE id = :id")
+                .bind("id", id)
+                .then()
+                .doOnTerminate(() -> invalidar(id))
+                .doOnCancel(() -> invalidar(id));
+    }
+
+    private Mono<Cuenta> conflictoOInexistente(Long id) {
+        return cliente.sql("SELECT count(*) FROM cuentas WHERE id = :id")
+                .bind("id", id)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(filas -> Mono.error(filas > 0
+                        ? new OptimisticLockingFailureException("La cuenta " + id + " cambio desde que se leyo")
+                        : new NoSuchElementException()));
+    }
+
+    private void invalidar(Long id) {
+        cuentaCache.invalidar(List.of(id));
+        indicePersonas.invalidarTodo();
+    }
+
+    @Override
+    public Mono<BigDecimal> revisarSaldo(Long cuentaId) {
+        return findById(cuentaId).map(Cuenta::getSaldo);
+    }
+
+    @Override
+    public Mono<Void> transferir(Long numCuentaOrigen, Long numCuentaDestino, BigDecimal monto, Long bancoId) {
+        // Las filas se actualizan en orden de id, igual que los FOR UPDATE del modo pesimista, para evitar deadlocks
+        Mono<Void> movimientos = numCuentaOrigen < numCuentaDestino
+                ? debitar(numCuentaOrigen, monto).then(acreditar(numCuentaDestino, monto))
+                : acreditar(numCuentaDestino, monto).then(debitar(numCuentaOrigen, monto));
+        List<Long> cuentaIds = List.of(numCuentaOrigen, numCuentaDestino);
+        return Mono.defer(() -> {
+                    cuentaCache.invalidar(cuentaIds);
+                    return verificarBanco(bancoId)
+                            .then(movimientos)
+                            .then(registrarTransferencia(bancoId))
+                            .then(registrarHistorial(numCuentaOrigen, numCuentaDestino, monto, bancoId))
+                            .as(transaccion::transactional);
+                })
+                .doOnError(DineroInsuficienteException.class, e -> metricas.registrarFondosInsuficientes(1))
+                .doOnTerminate(() -> cuentaCache.invalidar(cuentaIds))
+                .doOnCancel(() -> cuentaCache.invalidar(cuentaIds));
+    }
+
+    private Mono<Void> debitar(Long cuentaId, BigDecimal monto) {
+        return cliente.sql("UPDATE cuentas SET saldo = saldo - :monto, version = version + 1 WHERE id = :id AND saldo >= :monto")
+                .bind("monto", monto)
+                .bind("id", cuentaId)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(filas -> filas > 0 ? Mono.<Void>empty() : existeCuenta(cuentaId)
+                        .flatMap(existe -> Mono.error(existe
+                                ? new DineroInsuficienteException("Dinero insuficiente en la cuenta.")
+                                : new NoSuchElementException())));
+    }
+
+    private Mono<Void> acreditar(Long cuentaId, BigDecimal monto) {
+        return cliente.sql("UPDATE cuentas SET saldo = saldo + :monto, version = version + 1 WHERE id = :id")
+                .bind("monto", monto)
+                .bind("id", cuentaId)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(filas -> filas > 0 ? Mono.<Void>empty() : Mono.error(new NoSuchElementException()));
+    }
+
+    private Mono<Boolean> existeCuenta(Long cuentaId) {
+        return cliente.sql("SELECT id FROM cuentas WHERE id = :id")
+                .bind("id", cuentaId)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .hasElement();
+    }
+
+    private Mono<Void> verificarBanco(Long bancoId) {
+        return cliente.sql("SELECT id FROM bancos WHERE id = :id")
+                .bind("id", bancoId)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .switchIfEmpty(Mono.error(NoSuchElementException::new))
+                .then();
+    }
+
+    //Misma fila que HistorialTransferenciasService; como en save, cada NEXT VALUE usa solo el primer id del bloque
+    private Mono<Void> registrarHistorial(Long origenId, Long destinoId, BigDecimal monto, Long bancoId) {
+        if (!historial) {
+            return Mono.empty();
+        }
+        return cliente.sql("INSERT INTO transferencias (id, origen_id, destino_id, banco_id, monto, fecha) "
+                        + "VALUES (NEXT VALUE FOR transferencias_seq, :origen, :destino, :banco, :monto, :fecha)")
+                .bind("origen", origenId)
+                .bind("destino", destinoId)
+                .bind("banco", bancoId)
+                .bind("monto", monto)
+                .bind("fecha", LocalDateTime.now())
+                .then();
+    }
+
+    //Las ranuras de cada banco se crean al arrancar (ContadorTransferenciasServiceImpl.crearSlotsIniciales)
+    private Mono<Void> registrarTransferencia(Long bancoId) {
+        int slot = ThreadLocalRandom.current().nextInt(numSlots);
+        return cliente.sql("UPDATE contadores_transferencias SET valor = valor + 1 WHERE banco_id = :banco AND slot = :slot")
+                .bind("banco", bancoId)
+                .bind("slot", slot)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(filas -> filas > 0 ? Mono.<Void>empty() : Mono.error(new IllegalStateException(
+                        "No existe la ranura " + slot + " del contador del banco " + bancoId)));
+    }
+
+    private static Cuenta mapearCuenta(Readable row) {
+        Cuenta cuenta = new Cuenta(row.get("id", Long.class), row.get("persona", String.class),
+                row.get("saldo", BigDecimal.class));
+        cuenta.setVersion(row.get("version", Long.class));
+        return cuenta;
+    }
+}
@@ -0,0 +1,404 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import org.sebas.test.springboot.app.models.Dinero;
+import org.sebas.test.springboot.app.services.DiarioTransferencias.Asiento;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario de solo escritura al final, en segmentos de tamano fijo mapeados en memoria y nombrados por la
+ * primera secuencia que contienen. Cada registro es [largo][CRC32C][secuencia][tipo][datos]; al abrir, el
+ * primer registro incompleto o con CRC invalido del ultimo segmento marca el final y lo que sigue se borra.
+ * Escribir solo copia al segmento: un hilo aparte hace force() como mucho una vez por ventana y despierta a
+ * todos los que esperaban ese tramo (commit agrupado).
+ */
+public class DiarioArchivo implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(DiarioArchivo.class);
+
+    private static final Pattern NOMBRE = Pattern.compile("diario-(\\d{20})\\.wal");
+    private static final int CABECERA = Integer.BYTES * 2;
+    private static final int MINIMO_REGISTRO = Long.BYTES + 1;
+    private static final int BYTES_ASIENTO = Long.BYTES * 4;
+    private static final byte TRANSFERENCIAS = 1;
+    private static final byte ANULACION = 2;
+
+    private final Path directorio;
+    private final int tamanoSegmento;
+    private final long ventanaNanos;
+    private final TreeMap<Long, Path> segmentos = new TreeMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hayPendientes = lock.newCondition();
+    private final Condition forzado = lock.newCondition();
+    private final Thread hiloForzado;
+    private MappedByteBuffer actual;
+    private long siguienteSecuencia;
+    private long ultimaEscrita;
+    private long ultimaEnDisco;
+    private int forzadoHasta;
+    private boolean cerrado;
+    //Tras un fallo de force() no se sabe que llego al disco: el diario deja de aceptar escrituras
+    private UncheckedIOException errorDisco;
+
+    //Un lote de transferencias, o la anulacion de uno cuya transaccion en la base no se confirmo
+    public record Registro(long secuencia, List<Asiento> asientos, long anulada) {
+
+        public boolean esAnulacion() {
+            return asientos == null;
+        }
+    }
+
+    public DiarioArchivo(Path directorio, int tamanoSegmento, long ventanaMicros) throws IOException {
+        if (tamanoSegmento < 4096) {
+            throw new IllegalArgumentException("El segmento del diario debe tener al menos 4096 bytes");
+        }
+        this.directorio = directorio;
+        this.tamanoSegmento = tamanoSegmento;
+        this.ventanaNanos = TimeUnit.MICROSECONDS.toNanos(ventanaMicros);
+        Files.createDirectories(directorio);
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            archivos.forEach(archivo -> {
+                Matcher matcher = NOMBRE.matcher(archivo.getFileName().toString());
+                if (matcher.matches()) {
+                    segmentos.put(Long.parseLong(matcher.group(1)), archivo);
+                }
+            });
+        }
+        if (segmentos.isEmpty()) {
+            siguienteSecuencia = 1;
+            actual = crearSegmento(siguienteSecuencia);
+        } else {
+            // Los segmentos anteriores se forzaron completos al rotar; solo el ultimo puede tener la cola rota
+            Map.Entry<Long, Path> ultimo = segmentos.lastEntry();
+            actual = mapear(ultimo.getValue(), FileChannel.MapMode.READ_WRITE);
+            long[] fin = recorrerSegmento(actual, ultimo.getKey(), registro -> {
+            });
+            int posicion = (int) fin[0];
+            siguienteSecuencia = fin[1];
+            actual.put(posicion, new byte[actual.limit() - posicion]);
+            actual.force();
+            actual.position(posicion);
+        }
+        ultimaEscrita = siguienteSecuencia - 1;
+        ultimaEnDisco = ultimaEscrita;
+        forzadoHasta = actual.position();
+        hiloForzado = new Thread(this::forzarPeriodicamente, "diario-transferencias");
+        hiloForzado.setDaemon(true);
+        hiloForzado.start();
+    }
+
+    public long agregar(List<Asiento> asientos) {
+        ByteBuffer datos = ByteBuffer.allocate(1 + Integer.BYTES + asientos.size() * BYTES_ASIENTO);
+        datos.put(TRANSFERENCIAS).putInt(asientos.size());
+        for (Asiento asiento : asientos) {
+            datos.putLong(asiento.origen())
+                    .putLong(asiento.destino())
+                    .putLong(asiento.bancoId())
+                    .putLong(asiento.monto().getCentavos());
+        }
+        return escribir(datos.flip());
+    }
+
+    public long anular(long secuencia) {
+        return escribir(ByteBuffer.allocate(1 + Long.BYTES).put(ANULACION).putLong(secuencia).flip());
+    }
+
+    //Bloquea hasta que el registro con esa secuencia, y todos los anteriores, esten en disco
+    public void esperarEnDisco(long secuencia) {
+        lock.lock();
+        try {
+            while (ultimaEnDisco < secuencia) {
+                if (errorDisco != null) {
+                    throw new UncheckedIOException("El diario quedo inutilizable tras un error de disco",
+                            errorDisco.getCause());
+                }
+                forzado.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando el diario", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Entrega, en orden, los registros con secuencia mayor a la indicada
+    public void recorrer(long despuesDe, Consumer<Registro> consumidor) throws IOException {
+        lock.lock();
+        try {
+            for (Map.Entry<Long, Path> segmento : segmentos.entrySet()) {
+                Long siguiente = segmentos.higherKey(segmento.getKey());
+                if (siguiente != null && siguiente - 1 <= despuesDe) {
+                    continue;
+                }
+                ByteBuffer contenido = siguiente == null ? actual.duplicate()
+                        : mapear(segmento.getValue(), FileChannel.MapMode.READ_ONLY);
+                recorrerSegmento(contenido, segmento.getKey(), registro -> {
+                    if (registro.secuencia() > despuesDe) {
+                        consumidor.accept(registro);
+                    }
+                });
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long ultimaSecuencia() {
+        lock.lock();
+        try {
+            return siguienteSecuencia - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Si la base ya vio secuencias mayores (por ejemplo, se borro el directorio) se sigue desde ahi
+    public void continuarDesde(long secuencia) throws IOException {
+        lock.lock();
+        try {
+            if (siguienteSecuencia < secuencia) {
+                siguienteSecuencia = secuencia;
+                rotar();
+                ultimaEscrita = secuencia - 1;
+                ultimaEnDisco = ultimaEscrita;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Borra los segmentos cuyos registros ya estan todos aplicados; el actual nunca se borra
+    public void purgarHasta(long secuencia) {
+        lock.lock();
+        try {
+            while (segmentos.size() > 1) {
+                Map.Entry<Long, Path> primero = segmentos.firstEntry();
+                if (segmentos.higherKey(primero.getKey()) - 1 > secuencia) {
+                    break;
+                }
+                Files.deleteIfExists(primero.getValue());
+                segmentos.pollFirstEntry();
+            }
+        } catch (IOException e) {
+            log.warn("No se pudo borrar un segmento del diario: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Espera a que el hilo de forzado deje en disco lo ya escrito
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            cerrado = true;
+            hayPendientes.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            hiloForzado.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long escribir(ByteBuffer datos) {
+        int largo = Long.BYTES + datos.remaining();
+        if (CABECERA + largo > tamanoSegmento) {
+            throw new IllegalArgumentException("El registro no cabe en un segmento del diario");
+        }
+        lock.lock();
+        try {
+            if (errorDisco != null) {
+                throw new UncheckedIOException("El diario quedo inutilizable tras un error de disco",
+                        errorDisco.getCause());
+            }
+            if (cerrado) {
+                throw new IllegalStateException("El diario esta cerrado");
+            }
+            if (actual.remaining() < CABECERA + largo) {
+                rotar();
+            }
+            long secuencia = siguienteSecuencia++;
+            int inicio = actual.position();
+            actual.slice(inicio + CABECERA, largo).putLong(secuencia).put(datos);
+            CRC32C crc = new CRC32C();
+            crc.update(actual.slice(inicio + CABECERA, largo));
+            actual.putInt(inicio, largo).putInt(inicio + Integer.BYTES, (int) crc.getValue());
+            actual.position(inicio + CABECERA + largo);
+            ultimaEscrita = secuencia;
+            hayPendientes.signal();
+            return secuencia;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Con el lock tomado: el segmento lleno queda entero en disco antes de abrir el siguiente
+    private void rotar() throws IOException {
+        try {
+            actual.force();
+        } catch (UncheckedIOException e) {
+            errorDisco = e;
+            forzado.signalAll();
+            throw e;
+        }
+        ultimaEnDisco = ultimaEscrita;
+        forzado.signalAll();
+        actual = crearSegmento(siguienteSecuencia);
+        forzadoHasta = 0;
+    }
+
+    private void forzarPeriodicamente() {
+        while (true) {
+            lock.lock();
+            try {
+                while (ultimaEnDisco == ultimaEscrita && !cerrado && errorDisco == null) {
+                    hayPendientes.awaitUninterruptibly();
+                }
+                if (errorDisco != null || ultimaEnDisco == ultimaEscrita) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            // La ventana deja que se sumen mas registros al mismo force()
+            if (ventanaNanos > 0) {
+                LockSupport.parkNanos(ventanaNanos);
+            }
+            MappedByteBuffer segmento;
+            int desde;
+            int hasta;
+            long secuencia;
+            lock.lock();
+            try {
+                segmento = actual;
+                desde = forzadoHasta;
+                hasta = actual.position();
+                secuencia = ultimaEscrita;
+            } finally {
+                lock.unlock();
+            }
+            UncheckedIOException error = null;
+            try {
+                segmento.force(desde, hasta - desde);
+            } catch (UncheckedIOException e) {
+                log.error("No se pudo forzar el diario de transferencias a disco", e);
+                error = e;
+            }
+            lock.lock();
+            try {
+                if (error != null) {
+                    errorDisco = error;
+                } else {
+                    if (segmento == actual) {
+                        forzadoHasta = Math.max(forzadoHasta, hasta);
+                    }
+                    ultimaEnDisco = Math.max(ultimaEnDisco, secuencia);
+                }
+                forzado.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private MappedByteBuffer crearSegmento(long primeraSecuencia) throws IOException {
+        Path archivo = directorio.resolve(String.format("diario-%020d.wal", primeraSecuencia));
+        MappedByteBuffer segmento;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segmento = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanoSegmento);
+        }
+        forzarDirectorio();
+        segmentos.put(primeraSecuencia, archivo);
+        return segmento;
+    }
+
+    //Sin esto un segmento nuevo podria no aparecer en el directorio tras una caida
+    private void forzarDirectorio() {
+        try (FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            log.debug("El sistema no permite forzar el directorio del diario: {}", e.getMessage());
+        }
+    }
+
+    private static MappedByteBuffer mapear(Path archivo, FileChannel.MapMode modo) throws IOException {
+        StandardOpenOption[] opciones = modo == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel canal = FileChannel.open(archivo, opciones)) {
+            return canal.map(modo, 0, canal.size());
+        }
+    }
+
+    //Devuelve la posicion y la secuencia siguientes al ultimo registro valido
+    private static long[] recorrerSegmento(ByteBuffer segmento, long primeraSecuencia, Consumer<Registro> consumidor) {
+        int posicion = 0;
+        long esperada = primeraSecuencia;
+        CRC32C crc = new CRC32C();
+        while (posicion + CABECERA <= segmento.limit()) {
+            int largo = segmento.getInt(posicion);
+            if (largo < MINIMO_REGISTRO || largo > segmento.limit() - posicion - CABECERA) {
+                break;
+            }
+            crc.reset();
+            crc.update(segmento.slice(posicion + CABECERA, largo));
+            if ((int) crc.getValue() != segmento.getInt(posicion + Integer.BYTES)) {
+                break;
+            }
+            ByteBuffer datos = segmento.slice(posicion + CABECERA, largo);
+            long secuencia = datos.getLong();
+            if (secuencia != esperada) {
+                break;
+            }
+            consumidor.accept(leer(secuencia, datos));
+            esperada++;
+            posicion += CABECERA + largo;
+        }
+        return new long[]{posicion, esperada};
+    }
+
+    private static Registro leer(long secuencia, ByteBuffer datos) {
+        if (datos.get() == ANULACION) {
+            return new Registro(secuencia, null, datos.getLong());
+        }
+        int cantidad = datos.getInt();
+        List<Asiento> asientos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Long origen = datos.getLong();
+            Long destino = datos.getLong();
+            Long bancoId = datos.getLong();
+            asientos.add(new Asiento(origen, destino, Dinero.deCentavos(datos.getLong()), bancoId));
+        }
+        return new Registro(secuencia, asientos, 0);
+    }
+}
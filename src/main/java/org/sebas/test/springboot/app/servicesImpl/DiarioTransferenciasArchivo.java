@@ -0,0 +1,158 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.sebas.test.springboot.app.models.PuntoControlDiario;
+import org.sebas.test.springboot.app.repositories.CuentaRepository;
+import org.sebas.test.springboot.app.repositories.PuntoControlDiarioRepository;
+import org.sebas.test.springboot.app.services.ContadorTransferenciasService;
+import org.sebas.test.springboot.app.services.HistorialTransferenciasService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Diario del motor secuencial con durabilidad propia en disco (app.transferencias.diario.tipo=archivo).
+ * Cada lote se aplica en la base junto con el punto de control y se escribe en el DiarioArchivo; se responde
+ * cuando el registro ya esta en disco, y un mismo force() cubre los lotes de todos los fragmentos que llegaron
+ * en la ventana. Al arrancar se reaplican en la base los registros posteriores al punto de control, asi ni una
+ * base en memoria ni una caida del proceso pierden transferencias confirmadas.
+ */
+@Component
+@ConditionalOnProperty(name = "app.transferencias.diario.tipo", havingValue = "archivo")
+public class DiarioTransferenciasArchivo extends DiarioTransferenciasJpa {
+
+    private static final Logger log = LoggerFactory.getLogger(DiarioTransferenciasArchivo.class);
+    private static final Long PUNTO_CONTROL = 1L;
+    private static final int ASIENTOS_POR_APLICACION = 10_000;
+
+    private final PuntoControlDiarioRepository puntoControlRepository;
+    private final DiarioArchivo diario;
+    private final boolean purgarAplicados;
+    //Las transacciones se confirman en el orden de las secuencias: el punto de control siempre cubre un prefijo
+    private final ReentrantLock orden = new ReentrantLock();
+
+    public DiarioTransferenciasArchivo(CuentaRepository cuentaRepository,
+                                       ContadorTransferenciasService contadorTransferencias,
+                                       PlatformTransactionManager transactionManager,
+                                       HistorialTransferenciasService historial,
+                                       PuntoControlDiarioRepository puntoControlRepository,
+                                       @Value("${app.transferencias.diario.directorio:diario}") String directorio,
+                                       @Value("${app.transferencias.diario.segmento-mb:64}") int segmentoMb,
+                                       @Value("${app.transferencias.diario.ventana-us:500}") long ventanaMicros,
+                                       @Value("${app.transferencias.diario.purgar-aplicados:false}") boolean purgarAplicados)
+            throws IOException {
+        super(cuentaRepository, contadorTransferencias, transactionManager, historial);
+        this.puntoControlRepository = puntoControlRepository;
+        this.diario = new DiarioArchivo(Path.of(directorio), segmentoMb * 1024 * 1024, ventanaMicros);
+        this.purgarAplicados = purgarAplicados;
+    }
+
+    @PostConstruct
+    public void recuperar() throws IOException {
+        long aplicada = transactionTemplate.execute(status -> puntoControlRepository.findById(PUNTO_CONTROL)
+                .orElseGet(() -> puntoControlRepository.save(new PuntoControlDiario(PUNTO_CONTROL, 0)))
+                .getSecuencia());
+        Set<Long> anuladas = new HashSet<>();
+        diario.recorrer(aplicada, registro -> {
+            if (registro.esAnulacion()) {
+                anuladas.add(registro.anulada());
+            }
+        });
+        long ultima = Math.max(aplicada, diario.ultimaSecuencia());
+        long[] reaplicadas = {0};
+        Set<Long> faltantes = new TreeSet<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Asiento> pendientes = new ArrayList<>();
+            try {
+                diario.recorrer(aplicada, registro -> {
+                    if (registro.esAnulacion() || anuladas.contains(registro.secuencia())) {
+                        return;
+                    }
+                    pendientes.addAll(registro.asientos());
+                    if (pendientes.size() >= ASIENTOS_POR_APLICACION) {
+                        reaplicadas[0] += pendientes.size();
+                        faltantes.addAll(aplicar(pendientes, true));
+                        pendientes.clear();
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            reaplicadas[0] += pendientes.size();
+            faltantes.addAll(aplicar(pendientes, true));
+            puntoControlRepository.avanzar(PUNTO_CONTROL, ultima);
+        });
+        diario.continuarDesde(ultima + 1);
+        if (reaplicadas[0] > 0) {
+            log.info("Se reaplicaron {} transferencias del diario posteriores a la secuencia {}", reaplicadas[0], aplicada);
+        }
+        if (!faltantes.isEmpty()) {
+            log.warn("El diario tenia transferencias de cuentas que ya no existen: {}", faltantes);
+        }
+    }
+
+    //Se confirma en la base antes del force(): si el proceso cae en medio, el llamador aun no tenia respuesta
+    @Override
+    public void registrar(List<Asiento> transferencias) {
+        long[] escrita = {0};
+        orden.lock();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                aplicar(transferencias, false);
+                escrita[0] = diario.agregar(transferencias);
+                puntoControlRepository.avanzar(PUNTO_CONTROL, escrita[0]);
+            });
+        } catch (RuntimeException e) {
+            if (escrita[0] != 0) {
+                anular(escrita[0]);
+            }
+            throw traducir(e);
+        } finally {
+            orden.unlock();
+        }
+        try {
+            diario.esperarEnDisco(escrita[0]);
+        } catch (UncheckedIOException e) {
+            throw traducir(e);
+        }
+        if (purgarAplicados) {
+            diario.purgarHasta(escrita[0]);
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        diario.close();
+    }
+
+    //El registro ya esta en el diario pero su transaccion no se confirmo: no debe reaplicarse al arrancar
+    private void anular(long secuencia) {
+        try {
+            diario.esperarEnDisco(diario.anular(secuencia));
+        } catch (RuntimeException e) {
+            log.error("No se pudo anular el registro {} del diario", secuencia, e);
+        }
+    }
+
+    private static RuntimeException traducir(RuntimeException e) {
+        if (e instanceof UncheckedIOException) {
+            return new DataAccessResourceFailureException("No se pudo escribir el diario de transferencias", e);
+        }
+        return e;
+    }
+}
@@ -0,0 +1,70 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import org.sebas.test.springboot.app.models.Dinero;
+import org.sebas.test.springboot.app.repositories.CuentaRepository;
+import org.sebas.test.springboot.app.services.ContadorTransferenciasService;
+import org.sebas.test.springboot.app.services.DiarioTransferencias;
+import org.sebas.test.springboot.app.services.HistorialTransferenciasService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+//Aplica los deltas del lote como UPDATE saldo = saldo + delta en una sola transaccion
+@Component
+@ConditionalOnProperty(name = "app.transferencias.diario.tipo", havingValue = "base", matchIfMissing = true)
+public class DiarioTransferenciasJpa implements DiarioTransferencias {
+
+    private final CuentaRepository cuentaRepository;
+    private final ContadorTransferenciasService contadorTransferencias;
+    private final HistorialTransferenciasService historial;
+    protected final TransactionTemplate transactionTemplate;
+
+    public DiarioTransferenciasJpa(CuentaRepository cuentaRepository,
+                                   ContadorTransferenciasService contadorTransferencias,
+                                   PlatformTransactionManager transactionManager,
+                                   HistorialTransferenciasService historial) {
+        this.cuentaRepository = cuentaRepository;
+        this.contadorTransferencias = contadorTransferencias;
+        this.historial = historial;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void registrar(List<Asiento> transferencias) {
+        transactionTemplate.executeWithoutResult(status -> aplicar(transferencias, false));
+    }
+
+    //Debe llamarse dentro de una transaccion; devuelve las cuentas que no existian si se pide omitirlas
+    protected List<Long> aplicar(List<Asiento> transferencias, boolean omitirFaltantes) {
+        // En orden de id, como el resto de escritores, para no provocar deadlocks entre fragmentos
+        Map<Long, Dinero> deltas = new TreeMap<>();
+        Map<Long, Long> porBanco = new HashMap<>();
+        for (Asiento asiento : transferencias) {
+            deltas.merge(asiento.origen(), asiento.monto().negar(), Dinero::sumar);
+            deltas.merge(asiento.destino(), asiento.monto(), Dinero::sumar);
+            porBanco.merge(asiento.bancoId(), 1L, Long::sum);
+        }
+        List<Long> faltantes = new ArrayList<>();
+        deltas.forEach((cuentaId, delta) -> {
+            if (delta.signo() != 0 && cuentaRepository.sumarSaldo(cuentaId, delta.toBigDecimal()) == 0) {
+                if (!omitirFaltantes) {
+                    throw new NoSuchElementException("No existe la cuenta " + cuentaId);
+                }
+                faltantes.add(cuentaId);
+            }
+        });
+        porBanco.forEach(contadorTransferencias::registrar);
+        historial.registrarTodas(faltantes.isEmpty() ? transferencias : transferencias.stream()
+                .filter(asiento -> !faltantes.contains(asiento.origen()) && !faltantes.contains(asiento.destino()))
+                .toList());
+        return faltantes;
+    }
+}
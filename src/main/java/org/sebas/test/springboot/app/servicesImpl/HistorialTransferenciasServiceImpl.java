@@ -0,0 +1,188 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import org.sebas.test.springboot.app.models.Dinero;
+import org.sebas.test.springboot.app.models.PaginaTransferenciasDto;
+import org.sebas.test.springboot.app.models.Transferencia;
+import org.sebas.test.springboot.app.repositories.TransferenciaRepository;
+import org.sebas.test.springboot.app.services.DiarioTransferencias;
+import org.sebas.test.springboot.app.services.HistorialTransferenciasService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Historial de transferencias. Cada escritor (servicio, lote, motor secuencial y API reactivo) inserta la
+ * fila en la misma transaccion que mueve los saldos. La consulta por cuenta lee una pagina de cada indice
+ * (origen y destino) y las mezcla; la exportacion recorre un cursor JDBC con fetch size y escribe cada fila
+ * al vuelo, sin entidades, asi la memoria no depende de cuantas filas se exportan.
+ */
+@Service
+public class HistorialTransferenciasServiceImpl implements HistorialTransferenciasService {
+
+    //Limites de [desde, hasta) cuando no se indican; dentro del rango de TIMESTAMP de cualquier base
+    static final LocalDateTime PRINCIPIO = LocalDateTime.of(1900, 1, 1, 0, 0);
+    static final LocalDateTime FIN = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final String CABECERA_CSV = "id,fecha,origen_id,destino_id,banco_id,monto\n";
+    private static final String SELECCIONAR = "SELECT id, fecha, origen_id, destino_id, banco_id, monto "
+            + "FROM transferencias WHERE fecha >= ? AND fecha < ?";
+    private static final Comparator<Transferencia> POR_FECHA =
+            Comparator.comparing(Transferencia::getFecha).thenComparing(Transferencia::getId);
+
+    private final TransferenciaRepository transferenciaRepository;
+    private final JdbcTemplate exportacion;
+    private final TransactionTemplate lectura;
+    private final boolean habilitado;
+    private final int paginaTamano;
+    private final int paginaMaximo;
+
+    public HistorialTransferenciasServiceImpl(TransferenciaRepository transferenciaRepository,
+                                              JdbcTemplate jdbcTemplate,
+                                              PlatformTransactionManager transactionManager,
+                                              @Value("${app.transferencias.historial.habilitado:true}") boolean habilitado,
+                                              @Value("${app.transferencias.historial.fetch-size:1000}") int fetchSize,
+                                              @Value("${app.cuentas.pagina.tamano:100}") int paginaTamano,
+                                              @Value("${app.cuentas.pagina.maximo:1000}") int paginaMaximo) {
+        this.transferenciaRepository = transferenciaRepository;
+        this.exportacion = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.exportacion.setFetchSize(fetchSize);
+        // Algunos drivers solo respetan el fetch size dentro de una transaccion
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.habilitado = habilitado;
+        this.paginaTamano = paginaTamano;
+        this.paginaMaximo = paginaMaximo;
+    }
+
+    @Override
+    public void registrar(Long origenId, Long destinoId, Dinero monto, Long bancoId) {
+        if (habilitado) {
+            transferenciaRepository.save(new Transferencia(origenId, destinoId, bancoId, monto, LocalDateTime.now()));
+        }
+    }
+
+    @Override
+    public void registrarTodas(List<DiarioTransferencias.Asiento> transferencias) {
+        if (!habilitado || transferencias.isEmpty()) {
+            return;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        transferenciaRepository.saveAll(transferencias.stream()
+                .map(asiento -> new Transferencia(asiento.origen(), asiento.destino(), asiento.bancoId(),
+                        asiento.monto(), ahora))
+                .toList());
+    }
+
+    @Override
+    public PaginaTransferenciasDto buscar(Long cuentaId, LocalDateTime desde, LocalDateTime hasta,
+                                          Long despuesDe, Integer limite) {
+        int tamano = limite == null ? paginaTamano : Math.max(1, Math.min(limite, paginaMaximo));
+        LocalDateTime inicio = desde == null ? PRINCIPIO : desde;
+        LocalDateTime fin = hasta == null ? FIN : hasta;
+        return lectura.execute(status -> {
+            // El cursor es el id de la ultima transferencia devuelta; se sigue desde su (fecha, id)
+            LocalDateTime despuesDeFecha = inicio;
+            long despuesDeId = 0;
+            if (despuesDe != null) {
+                Transferencia ultima = transferenciaRepository.findById(despuesDe)
+                        .orElseThrow(() -> new IllegalArgumentException("No existe la transferencia " + despuesDe));
+                if (!ultima.getFecha().isBefore(despuesDeFecha)) {
+                    despuesDeFecha = ultima.getFecha();
+                    despuesDeId = ultima.getId();
+                }
+            }
+            // Se pide una fila de mas a cada indice solo para saber si existe una pagina siguiente
+            PageRequest pagina = PageRequest.of(0, tamano + 1);
+            List<Transferencia> transferencias = Stream.concat(
+                            transferenciaRepository.findPaginaOrigen(cuentaId, fin, despuesDeFecha, despuesDeId, pagina).stream(),
+                            transferenciaRepository.findPaginaDestino(cuentaId, fin, despuesDeFecha, despuesDeId, pagina).stream())
+                    .distinct()
+                    .sorted(POR_FECHA)
+                    .toList();
+            Long siguiente = null;
+            if (transferencias.size() > tamano) {
+                transferencias = transferencias.subList(0, tamano);
+                siguiente = transferencias.get(tamano - 1).getId();
+            }
+            return new PaginaTransferenciasDto(new ArrayList<>(transferencias), siguiente);
+        });
+    }
+
+    @Override
+    public long exportarCsv(Long cuentaId, Long bancoId, LocalDateTime desde, LocalDateTime hasta,
+                            Writer salida) throws IOException {
+        List<Object> parametros = new ArrayList<>();
+        String sql = consultaExportacion(cuentaId, bancoId, desde == null ? PRINCIPIO : desde,
+                hasta == null ? FIN : hasta, parametros);
+        salida.write(CABECERA_CSV);
+        long[] filas = {0};
+        try {
+            lectura.executeWithoutResult(status -> exportacion.query(sql, (ResultSet rs) -> {
+                escribirFila(rs, salida);
+                filas[0]++;
+            }, parametros.toArray()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        salida.flush();
+        return filas[0];
+    }
+
+    //Con cuenta se unen los dos indices; la transferencia de una cuenta a si misma sale una sola vez
+    private static String consultaExportacion(Long cuentaId, Long bancoId, LocalDateTime desde,
+                                              LocalDateTime hasta, List<Object> parametros) {
+        String filtroBanco = bancoId == null ? "" : " AND banco_id = ?";
+        if (cuentaId == null) {
+            agregar(parametros, desde, hasta, bancoId);
+            return SELECCIONAR + filtroBanco + (bancoId == null ? " ORDER BY id" : " ORDER BY fecha, id");
+        }
+        agregar(parametros, desde, hasta, bancoId);
+        parametros.add(cuentaId);
+        agregar(parametros, desde, hasta, bancoId);
+        parametros.add(cuentaId);
+        parametros.add(cuentaId);
+        return SELECCIONAR + filtroBanco + " AND origen_id = ?"
+                + " UNION ALL " + SELECCIONAR + filtroBanco + " AND destino_id = ? AND origen_id <> ?"
+                + " ORDER BY fecha, id";
+    }
+
+    private static void agregar(List<Object> parametros, LocalDateTime desde, LocalDateTime hasta, Long bancoId) {
+        parametros.add(desde);
+        parametros.add(hasta);
+        if (bancoId != null) {
+            parametros.add(bancoId);
+        }
+    }
+
+    private static void escribirFila(ResultSet rs, Writer salida) throws SQLException {
+        try {
+            salida.write(Long.toString(rs.getLong(1)));
+            salida.write(',');
+            salida.write(rs.getObject(2, LocalDateTime.class).toString());
+            salida.write(',');
+            salida.write(Long.toString(rs.getLong(3)));
+            salida.write(',');
+            salida.write(Long.toString(rs.getLong(4)));
+            salida.write(',');
+            salida.write(Long.toString(rs.getLong(5)));
+            salida.write(',');
+            salida.write(rs.getBigDecimal(6).toPlainString());
+            salida.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.sebas.test.springboot.app.exceptions.ClaveIdempotenciaEnUsoException;
+import org.sebas.test.springboot.app.exceptions.ColaTransferenciasLlenaException;
+import org.sebas.test.springboot.app.exceptions.DineroInsuficienteException;
+import org.sebas.test.springboot.app.exceptions.TransferenciaEnCursoException;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.sebas.test.springboot.app.models.TransferenciaIdempotente;
+import org.sebas.test.springboot.app.repositories.TransferenciaIdempotenteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key de POST /transferir. La respuesta de cada clave se guarda en una cache acotada y en la
+ * tabla transferencias_idempotentes hasta que vence el TTL; un reintento con la misma clave la recibe tal
+ * cual sin ejecutar la transferencia, y los duplicados que llegan mientras la primera sigue en curso
+ * esperan su resultado. La fila de la clave se inserta en curso antes de transferir, asi la PK decide entre
+ * instancias quien ejecuta; los demas reciben la respuesta guardada o TransferenciaEnCursoException.
+ * Solo se guardan las transferencias exitosas: tras un error que seguro no aplico nada la clave se libera y
+ * el cliente puede reintentar; si el resultado es incierto queda en curso hasta el TTL.
+ */
+@Component
+public class IdempotenciaTransferencias {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotenciaTransferencias.class);
+    public static final int LARGO_MAXIMO_CLAVE = 255;
+
+    private final TransferenciaIdempotenteRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Cache<String, Registro> cache;
+    private final Map<String, CompletableFuture<Registro>> enCurso = new ConcurrentHashMap<>();
+
+    private final AtomicLong ejecutadas = new AtomicLong();
+    private final AtomicLong repetidas = new AtomicLong();
+
+    public IdempotenciaTransferencias(TransferenciaIdempotenteRepository repository,
+                                      ObjectMapper objectMapper,
+                                      @Value("${app.transferencias.idempotencia.ttl-horas:24}") long ttlHoras,
+                                      @Value("${app.transferencias.idempotencia.max-entradas:100000}") long maxEntradas) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHoras);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public Respuesta ejecutar(String clave, TransaccionDto dto, Supplier<?> transferir) {
+        if (clave.isBlank() || clave.length() > LARGO_MAXIMO_CLAVE) {
+            throw new IllegalArgumentException("Idempotency-Key debe tener entre 1 y " + LARGO_MAXIMO_CLAVE + " caracteres");
+        }
+        String huella = huella(dto);
+        Registro guardado = vigente(cache.getIfPresent(clave));
+        if (guardado != null) {
+            return repetir(guardado, huella);
+        }
+        CompletableFuture<Registro> propia = new CompletableFuture<>();
+        CompletableFuture<Registro> otra = enCurso.putIfAbsent(clave, propia);
+        if (otra != null) {
+            return repetir(esperar(otra), huella);
+        }
+        try {
+            //Pudo terminar otra ejecucion entre la consulta a la cache y el putIfAbsent
+            guardado = vigente(cache.getIfPresent(clave));
+            Instant expira = Instant.now().plus(ttl);
+            if (guardado == null) {
+                //O en otra instancia, o antes de un reinicio
+                guardado = reclamar(clave, huella, expira);
+            }
+            if (guardado != null) {
+                cache.put(clave, guardado);
+                propia.complete(guardado);
+                return repetir(guardado, huella);
+            }
+            Object resultado;
+            try {
+                resultado = transferir.get();
+            } catch (RuntimeException e) {
+                if (sinEfecto(e)) {
+                    liberar(clave);
+                }
+                throw e;
+            }
+            Registro nuevo = new Registro(huella, serializar(resultado), expira);
+            ejecutadas.incrementAndGet();
+            cache.put(clave, nuevo);
+            propia.complete(nuevo);
+            completar(clave, nuevo);
+            return new Respuesta(nuevo.respuesta(), false);
+        } catch (RuntimeException e) {
+            propia.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(clave, propia);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.transferencias.idempotencia.purga-ms:60000}")
+    public void purgarExpiradas() {
+        int borradas = repository.borrarExpiradas(Instant.now());
+        if (borradas > 0) {
+            log.debug("Se borraron {} claves de idempotencia expiradas", borradas);
+        }
+    }
+
+    public long getEjecutadas() {
+        return ejecutadas.get();
+    }
+
+    public long getRepetidas() {
+        return repetidas.get();
+    }
+
+    private Respuesta repetir(Registro registro, String huella) {
+        if (!registro.huella().equals(huella)) {
+            throw new ClaveIdempotenciaEnUsoException("La Idempotency-Key ya se uso con otra transferencia");
+        }
+        repetidas.incrementAndGet();
+        return new Respuesta(registro.respuesta(), true);
+    }
+
+    //Los duplicados concurrentes ven el mismo resultado que la ejecucion en curso, tambien si fallo
+    private static Registro esperar(CompletableFuture<Registro> ejecucion) {
+        try {
+            return ejecucion.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    //Inserta la clave en curso; null si esta instancia debe ejecutar la transferencia
+    private Registro reclamar(String clave, String huella, Instant expira) {
+        for (int intento = 0; ; intento++) {
+            try {
+                repository.reclamar(clave, huella, expira);
+                return null;
+            } catch (DataIntegrityViolationException e) {
+                TransferenciaIdempotente existente = repository.findById(clave).orElse(null);
+                if (existente != null && existente.getExpira().isAfter(Instant.now())) {
+                    if (!existente.getHuella().equals(huella)) {
+                        throw new ClaveIdempotenciaEnUsoException("La Idempotency-Key ya se uso con otra transferencia");
+                    }
+                    if (existente.getRespuesta() == null) {
+                        throw new TransferenciaEnCursoException("La transferencia con esta Idempotency-Key sigue en curso");
+                    }
+                    return new Registro(existente.getHuella(), existente.getRespuesta(), existente.getExpira());
+                }
+                //Vencida sin purgar, o liberada entre el INSERT y la consulta: se reintenta una vez
+                if (intento > 0) {
+                    throw new TransferenciaEnCursoException("La transferencia con esta Idempotency-Key sigue en curso");
+                }
+                repository.borrarExpirada(clave, Instant.now());
+            }
+        }
+    }
+
+    //La transferencia ya se confirmo: si no se puede guardar la respuesta se responde igual y queda la cache;
+    //la fila sigue en curso hasta el TTL, asi otra instancia no vuelve a ejecutarla
+    private void completar(String clave, Registro registro) {
+        try {
+            repository.completar(clave, registro.respuesta());
+        } catch (DataAccessException e) {
+            log.warn("No se pudo guardar la respuesta de la Idempotency-Key {}: {}", clave, e.getMessage());
+        }
+    }
+
+    //Fallos que seguro no confirmaron nada: reglas de negocio, datos invalidos y rechazos antes de la
+    //transaccion o que la revirtieron. Con cualquier otro (un error durante el commit, una conexion caida)
+    //la transferencia pudo haberse aplicado, asi que la clave queda en curso hasta el TTL
+    private static boolean sinEfecto(RuntimeException e) {
+        return e instanceof DineroInsuficienteException
+                || e instanceof NoSuchElementException
+                || e instanceof IllegalArgumentException
+                || e instanceof ColaTransferenciasLlenaException
+                || e instanceof CannotAcquireLockException
+                || e instanceof OptimisticLockingFailureException;
+    }
+
+    //La transferencia fallo sin efecto: se borra la clave en curso para que el cliente pueda reintentar
+    private void liberar(String clave) {
+        try {
+            repository.liberar(clave);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo liberar la Idempotency-Key {}: {}", clave, e.getMessage());
+        }
+    }
+
+    private String serializar(Object respuesta) {
+        try {
+            return objectMapper.writeValueAsString(respuesta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Registro vigente(Registro registro) {
+        return registro != null && registro.expira().isAfter(Instant.now()) ? registro : null;
+    }
+
+    private static String huella(TransaccionDto dto) {
+        String monto = dto.getMonto() == null ? null : dto.getMonto().stripTrailingZeros().toPlainString();
+        return dto.getCuentaOrigenId() + ":" + dto.getCuentaDestinoId() + ":" + monto + ":" + dto.getBancoId();
+    }
+
+    private record Registro(String huella, String respuesta, Instant expira) {
+    }
+
+    //Cuerpo JSON de la respuesta y si viene de una ejecucion anterior
+    public record Respuesta(String cuerpo, boolean repetida) {
+    }
+}
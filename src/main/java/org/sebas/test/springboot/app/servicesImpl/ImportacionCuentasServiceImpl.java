@@ -0,0 +1,290 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.Dinero;
+import org.sebas.test.springboot.app.models.ImportacionDto;
+import org.sebas.test.springboot.app.services.ImportacionCuentasService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Alta masiva de cuentas. La entrada se lee linea a linea sin cargarla entera y las cuentas validas se
+ * insertan por JDBC en lotes de app.cuentas.importacion.lote filas, cada lote en su transaccion, sin
+ * entidades ni contexto de persistencia; los ids salen de cuentas_seq por bloques (SecuenciaCuentas). Las lineas invalidas se
+ * cuentan y se siguen leyendo las demas. El progreso de las importaciones recientes se consulta aparte.
+ */
+@Service
+public class ImportacionCuentasServiceImpl implements ImportacionCuentasService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionCuentasServiceImpl.class);
+    private static final String INSERTAR = "INSERT INTO cuentas (id, persona, persona_normalizada, saldo, version) VALUES (?, ?, ?, ?, 0)";
+    private static final int LARGO_MAXIMO_PERSONA = 255;
+    private static final int IMPORTACIONES_GUARDADAS = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SecuenciaCuentas secuenciaCuentas;
+    private final IndicePersonas indicePersonas;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader lectorJson;
+    private final int tamanoLote;
+    private final int maxErrores;
+    private final long avisarCada;
+    private final AtomicLong secuencia = new AtomicLong();
+    private final Map<Long, Importacion> importaciones = new ConcurrentHashMap<>();
+
+    public ImportacionCuentasServiceImpl(JdbcTemplate jdbcTemplate, SecuenciaCuentas secuenciaCuentas,
+                                         IndicePersonas indicePersonas,
+                                         PlatformTransactionManager transactionManager,
+                                         ObjectMapper objectMapper,
+                                         @Value("${app.cuentas.importacion.lote:1000}") int tamanoLote,
+                                         @Value("${app.cuentas.importacion.max-errores:100}") int maxErrores,
+                                         @Value("${app.cuentas.importacion.avisar-cada:100000}") long avisarCada) {
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("El lote de importacion debe tener al menos una fila");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.secuenciaCuentas = secuenciaCuentas;
+        this.indicePersonas = indicePersonas;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Los saldos con decimales se leen como BigDecimal y no pasan por double
+        this.lectorJson = objectMapper.reader().with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        this.tamanoLote = tamanoLote;
+        this.maxErrores = maxErrores;
+        this.avisarCada = avisarCada;
+    }
+
+    @Override
+    public ImportacionDto importar(InputStream entrada, Formato formato) throws IOException {
+        Importacion importacion = registrar(formato);
+        try {
+            BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+            List<Object[]> lote = new ArrayList<>(tamanoLote);
+            long numeroLinea = 0;
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                numeroLinea++;
+                if (linea.isBlank() || (numeroLinea == 1 && formato == Formato.CSV && esEncabezado(linea))) {
+                    continue;
+                }
+                importacion.leidas.incrementAndGet();
+                try {
+                    lote.add(formato == Formato.CSV ? leerCsv(linea) : leerJson(linea));
+                } catch (IllegalArgumentException e) {
+                    importacion.rechazar(numeroLinea, e.getMessage(), maxErrores);
+                    continue;
+                }
+                if (lote.size() >= tamanoLote) {
+                    insertar(lote, importacion);
+                    lote.clear();
+                }
+            }
+            insertar(lote, importacion);
+            importacion.terminar(ImportacionDto.TERMINADA);
+        } catch (IOException | RuntimeException e) {
+            importacion.terminar(ImportacionDto.FALLIDA);
+            importacion.errores.add("Importacion interrumpida: " + e.getMessage());
+            throw e;
+        }
+        ImportacionDto resultado = importacion.foto();
+        log.info("Importacion {}: {} cuentas insertadas y {} rechazadas en {} ms ({} cuentas/s)", resultado.getId(),
+                resultado.getInsertadas(), resultado.getRechazadas(), resultado.getDuracionMs(),
+                resultado.getCuentasPorSegundo());
+        return resultado;
+    }
+
+    @Override
+    public List<ImportacionDto> listar() {
+        return importaciones.values().stream()
+                .map(Importacion::foto)
+                .sorted(Comparator.comparing(ImportacionDto::getId).reversed())
+                .toList();
+    }
+
+    @Override
+    public Optional<ImportacionDto> buscar(Long id) {
+        return Optional.ofNullable(importaciones.get(id)).map(Importacion::foto);
+    }
+
+    private void insertar(List<Object[]> lote, Importacion importacion) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        String[] personas = new String[lote.size()];
+        for (int i = 0; i < lote.size(); i++) {
+            lote.get(i)[0] = secuenciaCuentas.siguiente();
+            personas[i] = (String) lote.get(i)[2];
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERTAR, lote);
+            indicePersonas.invalidarAlConfirmar(personas);
+        });
+        long antes = importacion.insertadas.getAndAdd(lote.size());
+        if (avisarCada > 0 && antes / avisarCada != (antes + lote.size()) / avisarCada) {
+            ImportacionDto foto = importacion.foto();
+            log.info("Importacion {}: {} cuentas insertadas ({} cuentas/s)", foto.getId(), foto.getInsertadas(),
+                    foto.getCuentasPorSegundo());
+        }
+    }
+
+    //Guarda las ultimas importaciones; las en curso no se descartan
+    private Importacion registrar(Formato formato) {
+        Importacion importacion = new Importacion(secuencia.incrementAndGet(), formato);
+        importaciones.put(importacion.id, importacion);
+        importaciones.values().stream()
+                .filter(i -> !ImportacionDto.EN_CURSO.equals(i.estado))
+                .sorted(Comparator.comparingLong((Importacion i) -> i.id).reversed())
+                .skip(IMPORTACIONES_GUARDADAS)
+                .forEach(i -> importaciones.remove(i.id));
+        return importacion;
+    }
+
+    private static boolean esEncabezado(String linea) {
+        return linea.trim().toLowerCase().startsWith("persona");
+    }
+
+    private static Object[] leerCsv(String linea) {
+        List<String> campos = separarCsv(linea);
+        if (campos.size() != 2) {
+            throw new IllegalArgumentException("Se esperaban 2 columnas (persona,saldo) y hay " + campos.size());
+        }
+        return fila(campos.get(0).trim(), campos.get(1).trim());
+    }
+
+    private Object[] leerJson(String linea) {
+        JsonNode nodo;
+        try {
+            nodo = lectorJson.readTree(linea);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON invalido: " + e.getOriginalMessage());
+        }
+        JsonNode persona = nodo.path("persona");
+        JsonNode saldo = nodo.path("saldo");
+        if (!persona.isTextual() || !(saldo.isNumber() || saldo.isTextual())) {
+            throw new IllegalArgumentException("Se esperaba {\"persona\": texto, \"saldo\": numero}");
+        }
+        return fila(persona.asText().trim(), saldo.isNumber() ? saldo.decimalValue() : saldo.asText().trim());
+    }
+
+    private static Object[] fila(String persona, Object saldoLeido) {
+        if (persona.isEmpty() || persona.length() > LARGO_MAXIMO_PERSONA) {
+            throw new IllegalArgumentException("persona debe tener entre 1 y " + LARGO_MAXIMO_PERSONA + " caracteres");
+        }
+        BigDecimal saldo;
+        try {
+            saldo = saldoLeido instanceof BigDecimal numero ? numero : new BigDecimal((String) saldoLeido);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("saldo no es un numero: " + saldoLeido);
+        }
+        Dinero dinero = Dinero.de(saldo);
+        if (dinero.signo() < 0) {
+            throw new IllegalArgumentException("saldo no puede ser negativo: " + saldo);
+        }
+        return new Object[]{null, persona, Cuenta.normalizarPersona(persona), dinero.toBigDecimal()};
+    }
+
+    //Campos separados por coma; entre comillas pueden llevar comas y "" es una comilla
+    private static List<String> separarCsv(String linea) {
+        List<String> campos = new ArrayList<>(2);
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    private static class Importacion {
+
+        private final long id;
+        private final Formato formato;
+        private final Instant inicio = Instant.now();
+        private final long inicioNanos = System.nanoTime();
+        private final AtomicLong leidas = new AtomicLong();
+        private final AtomicLong insertadas = new AtomicLong();
+        private final AtomicLong rechazadas = new AtomicLong();
+        private final List<String> errores = new CopyOnWriteArrayList<>();
+        private volatile String estado = ImportacionDto.EN_CURSO;
+        private volatile long finNanos;
+
+        private Importacion(long id, Formato formato) {
+            this.id = id;
+            this.formato = formato;
+        }
+
+        private void rechazar(long numeroLinea, String motivo, int maxErrores) {
+            rechazadas.incrementAndGet();
+            if (errores.size() < maxErrores) {
+                errores.add("Linea " + numeroLinea + ": " + motivo);
+            }
+        }
+
+        private void terminar(String estadoFinal) {
+            finNanos = System.nanoTime();
+            estado = estadoFinal;
+        }
+
+        private ImportacionDto foto() {
+            String estadoActual = estado;
+            long nanos = (ImportacionDto.EN_CURSO.equals(estadoActual) ? System.nanoTime() : finNanos) - inicioNanos;
+            ImportacionDto dto = new ImportacionDto();
+            dto.setId(id);
+            dto.setFormato(formato.name());
+            dto.setEstado(estadoActual);
+            dto.setLeidas(leidas.get());
+            dto.setInsertadas(insertadas.get());
+            dto.setRechazadas(rechazadas.get());
+            dto.setErrores(List.copyOf(errores));
+            dto.setInicio(inicio);
+            dto.setDuracionMs(nanos / 1_000_000);
+            dto.setCuentasPorSegundo(nanos > 0 ? insertadas.get() * 1_000_000_000L / nanos : 0);
+            return dto;
+        }
+    }
+}
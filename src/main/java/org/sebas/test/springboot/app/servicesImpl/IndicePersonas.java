@@ -0,0 +1,105 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Indice en memoria nombre normalizado -> ids de cuentas, acotado por tamano. Un acierto no va a la base;
+ * un fallo consulta la columna indexada persona_normalizada y guarda el resultado. Las altas, cambios de
+ * nombre y bajas invalidan los nombres afectados antes y despues del commit, igual que CuentaCache.
+ * Con app.cuentas.persona.unica la base ademas rechaza dos cuentas con el mismo nombre normalizado.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class IndicePersonas {
+
+    private final Cache<String, List<Long>> cache;
+    private final AtomicLong invalidaciones = new AtomicLong();
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean unica;
+
+    public IndicePersonas(JdbcTemplate jdbcTemplate,
+                          @Value("${app.cuentas.persona.unica:false}") boolean unica,
+                          @Value("${app.cuentas.persona.indice.max-entradas:1000000}") long maxEntradas) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.unica = unica;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .recordStats()
+                .build();
+    }
+
+    //El esquema lo crea Hibernate (de ahi el @DependsOn); el indice unico es opcional y va aparte
+    @PostConstruct
+    public void crearIndiceUnico() {
+        if (unica) {
+            jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS ux_cuentas_persona_normalizada "
+                    + "ON cuentas (persona_normalizada)");
+        }
+    }
+
+    public List<Long> buscar(String persona, Function<String, List<Long>> cargar) {
+        String clave = Cuenta.normalizarPersona(persona);
+        List<Long> ids = cache.getIfPresent(clave);
+        if (ids != null) {
+            return ids;
+        }
+        long generacion = invalidaciones.get();
+        List<Long> cargados = List.copyOf(cargar.apply(clave));
+        // Una carga que se cruza con una invalidacion no se guarda
+        cache.asMap().compute(clave, (k, actual) -> invalidaciones.get() == generacion ? cargados : actual);
+        return cargados;
+    }
+
+    //Recibe nombres sin normalizar; los null se ignoran
+    public void invalidarAlConfirmar(String... personas) {
+        List<String> claves = Arrays.stream(personas)
+                .filter(Objects::nonNull)
+                .map(Cuenta::normalizarPersona)
+                .distinct()
+                .toList();
+        invalidar(claves);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidar(claves);
+                }
+            });
+        }
+    }
+
+    //Para escrituras que no saben que nombres tocaron
+    public void invalidarTodo() {
+        invalidaciones.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private void invalidar(List<String> claves) {
+        invalidaciones.incrementAndGet();
+        cache.invalidateAll(claves);
+    }
+
+    public CacheStats estadisticas() {
+        return cache.stats();
+    }
+
+    public Cache<String, List<Long>> getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,166 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.Dinero;
+import org.sebas.test.springboot.app.models.Movimiento;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.sebas.test.springboot.app.repositories.CuentaRepository;
+import org.sebas.test.springboot.app.repositories.MovimientoRepository;
+import org.sebas.test.springboot.app.services.CuentaLockManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Libro de movimientos de solo insercion. El saldo de una cuenta es su foto consolidada
+ * (cuentas.saldo hasta ultimo_movimiento_id) mas la suma de los movimientos posteriores;
+ * la compactacion periodica mueve esos movimientos a la foto.
+ */
+@Component
+public class LibroMovimientos {
+
+    private static final Logger log = LoggerFactory.getLogger(LibroMovimientos.class);
+
+    private final MovimientoRepository movimientoRepository;
+    private final CuentaRepository cuentaRepository;
+    private final CuentaLockManager lockManager;
+    private final CuentaCache cuentaCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ModoSaldo modoSaldo;
+    private final ModoConcurrencia modoConcurrencia;
+
+    public LibroMovimientos(MovimientoRepository movimientoRepository, CuentaRepository cuentaRepository,
+                            CuentaLockManager lockManager, CuentaCache cuentaCache,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.cuentas.saldo.modo:directo}") ModoSaldo modoSaldo,
+                            @Value("${app.transferencias.concurrencia:optimista}") ModoConcurrencia modoConcurrencia,
+                            @Value("${app.cuentas.lock.tipo:striped}") String tipoLock) {
+        // En modo libro la fila de la cuenta origen no se escribe, asi que @Version nunca detecta
+        // dos debitos concurrentes: sin bloqueo en memoria ambos pasarian la validacion de fondos
+        if (modoSaldo == ModoSaldo.LIBRO && modoConcurrencia == ModoConcurrencia.OPTIMISTA
+                && "ninguno".equals(tipoLock)) {
+            throw new IllegalStateException("app.cuentas.saldo.modo=libro con concurrencia optimista "
+                    + "requiere app.cuentas.lock.tipo=striped");
+        }
+        this.movimientoRepository = movimientoRepository;
+        this.cuentaRepository = cuentaRepository;
+        this.lockManager = lockManager;
+        this.cuentaCache = cuentaCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.modoSaldo = modoSaldo;
+        this.modoConcurrencia = modoConcurrencia;
+    }
+
+    public boolean isActivo() {
+        return modoSaldo == ModoSaldo.LIBRO;
+    }
+
+    public void registrarTransferencia(Long origenId, Long destinoId, BigDecimal monto, Long bancoId) {
+        LocalDateTime ahora = LocalDateTime.now();
+        Dinero importe = Dinero.de(monto);
+        movimientoRepository.saveAll(List.of(
+                new Movimiento(origenId, destinoId, bancoId, importe.negar(), ahora),
+                new Movimiento(destinoId, origenId, bancoId, importe, ahora)));
+    }
+
+    public void registrarTransferencias(List<TransaccionDto> transacciones) {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Movimiento> movimientos = new ArrayList<>(transacciones.size() * 2);
+        for (TransaccionDto dto : transacciones) {
+            Dinero importe = Dinero.de(dto.getMonto());
+            movimientos.add(new Movimiento(dto.getCuentaOrigenId(), dto.getCuentaDestinoId(), dto.getBancoId(),
+                    importe.negar(), ahora));
+            movimientos.add(new Movimiento(dto.getCuentaDestinoId(), dto.getCuentaOrigenId(), dto.getBancoId(),
+                    importe, ahora));
+        }
+        movimientoRepository.saveAll(movimientos);
+    }
+
+    //Copia sin gestionar de la cuenta con el saldo actual; la entidad original no se modifica
+    public Cuenta conSaldoActual(Cuenta cuenta) {
+        return conSaldoActual(List.of(cuenta)).get(0);
+    }
+
+    public List<Cuenta> conSaldoActual(List<Cuenta> cuentas) {
+        if (cuentas.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Object[]> pendientes = new HashMap<>(cuentas.size() * 2);
+        for (Object[] fila : movimientoRepository.sumarPendientes(cuentas.stream().map(Cuenta::getId).toList())) {
+            pendientes.put((Long) fila[0], fila);
+        }
+        return cuentas.stream()
+                .map(cuenta -> copiar(cuenta, pendiente(cuenta, pendientes.get(cuenta.getId()))))
+                .toList();
+    }
+
+    //La suma pendiente parte de la marca actual de la fila; si una compactacion la movio despues de leer
+    //la entidad, los movimientos entre ambas marcas aun no estan en el saldo leido
+    private BigDecimal pendiente(Cuenta cuenta, Object[] fila) {
+        if (fila == null) {
+            return BigDecimal.ZERO;
+        }
+        long leida = cuenta.getUltimoMovimientoId() == null ? 0 : cuenta.getUltimoMovimientoId();
+        long actual = fila[1] == null ? 0 : (Long) fila[1];
+        BigDecimal suma = (BigDecimal) fila[2];
+        return actual > leida ? suma.add(movimientoRepository.sumarEntre(cuenta.getId(), leida, actual)) : suma;
+    }
+
+    @Scheduled(fixedDelayString = "${app.cuentas.libro.compactacion-ms:60000}")
+    public void compactar() {
+        if (!isActivo()) {
+            return;
+        }
+        List<Long> cuentaIds = movimientoRepository.findCuentasConPendientes();
+        for (Long cuentaId : cuentaIds) {
+            // Con el bloqueo tomado no hay transferencias en vuelo sobre la cuenta,
+            // asi ningun movimiento con id menor puede confirmarse despues de la compactacion
+            try (CuentaLockManager.Bloqueo bloqueo = lockManager.bloquear(cuentaId)) {
+                transactionTemplate.executeWithoutResult(status -> compactarCuenta(cuentaId));
+            } catch (RuntimeException e) {
+                log.warn("No se pudo compactar la cuenta {}: {}", cuentaId, e.getMessage());
+            }
+        }
+        if (!cuentaIds.isEmpty()) {
+            log.debug("Compactadas {} cuentas del libro de movimientos", cuentaIds.size());
+        }
+    }
+
+    private void compactarCuenta(Long cuentaId) {
+        Cuenta cuenta = (modoConcurrencia == ModoConcurrencia.PESIMISTA
+                ? cuentaRepository.findByIdForUpdate(cuentaId)
+                : cuentaRepository.findById(cuentaId)).orElse(null);
+        if (cuenta == null) {
+            return;
+        }
+        long desde = cuenta.getUltimoMovimientoId() == null ? 0 : cuenta.getUltimoMovimientoId();
+        Long hasta = movimientoRepository.findUltimoId(cuentaId);
+        if (hasta == null || hasta <= desde) {
+            return;
+        }
+        cuenta.setSaldo(cuenta.getSaldo().add(movimientoRepository.sumarEntre(cuentaId, desde, hasta)));
+        cuenta.setUltimoMovimientoId(hasta);
+        cuentaRepository.save(cuenta);
+        // El saldo derivado no cambia, pero la version de la fila si
+        cuentaCache.invalidarAlConfirmar(cuentaId);
+    }
+
+    private static Cuenta copiar(Cuenta cuenta, BigDecimal pendiente) {
+        Cuenta copia = new Cuenta(cuenta.getId(), cuenta.getPersona(), cuenta.getSaldo().add(pendiente));
+        copia.setVersion(cuenta.getVersion());
+        copia.setUltimoMovimientoId(cuenta.getUltimoMovimientoId());
+        return copia;
+    }
+
+}
@@ -0,0 +1,107 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metricas de las transferencias que no salen de @Timed ni de las de repositorio:
+ * espera del bloqueo de cuentas, flush + commit, tamano de los grupos, fondos insuficientes, reintentos, Idempotency-Key
+ * y lecturas compartidas de findById.
+ */
+@Component
+public class MetricasTransferencias {
+
+    private final Timer esperaBloqueo;
+    private final Counter bloqueosAgotados;
+    private final Timer commit;
+    private final Counter fondosInsuficientes;
+    private final DistributionSummary grupos;
+
+    public MetricasTransferencias(MeterRegistry registry, PoliticaReintentos reintentos, CuentaCache cuentaCache,
+                                  IdempotenciaTransferencias idempotencia) {
+        this.esperaBloqueo = Timer.builder("cuentas.bloqueo.espera")
+                .description("Tiempo esperando el bloqueo en memoria de las cuentas")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.bloqueosAgotados = Counter.builder("cuentas.bloqueo.agotados")
+                .description("Bloqueos que no se obtuvieron dentro del timeout")
+                .register(registry);
+        this.commit = Timer.builder("cuentas.transferir.commit")
+                .description("Flush de las escrituras pendientes mas commit de la transaccion")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.fondosInsuficientes = Counter.builder("cuentas.transferir.fondos_insuficientes")
+                .description("Transferencias rechazadas por DineroInsuficienteException")
+                .register(registry);
+
+        this.grupos = DistributionSummary.builder("cuentas.transferir.grupo")
+                .description("Transferencias individuales confirmadas juntas en el modo agrupado")
+                .register(registry);
+
+        FunctionCounter.builder("cuentas.transferir.ejecuciones", reintentos, PoliticaReintentos::getEjecuciones)
+                .register(registry);
+        FunctionCounter.builder("cuentas.transferir.reintentos", reintentos, PoliticaReintentos::getReintentos)
+                .description("Reintentos por conflictos de concurrencia")
+                .register(registry);
+        FunctionCounter.builder("cuentas.transferir.reintentos_agotados", reintentos, PoliticaReintentos::getAgotados)
+                .register(registry);
+        FunctionCounter.builder("cuentas.transferir.idempotentes", idempotencia, IdempotenciaTransferencias::getEjecutadas)
+                .description("Transferencias con Idempotency-Key que se ejecutaron")
+                .register(registry);
+        FunctionCounter.builder("cuentas.transferir.idempotentes_repetidas", idempotencia, IdempotenciaTransferencias::getRepetidas)
+                .description("Reintentos con Idempotency-Key respondidos sin ejecutar la transferencia")
+                .register(registry);
+        FunctionCounter.builder("cuentas.findById.consultas", cuentaCache, CuentaCache::getConsultas)
+                .description("Consultas de findById que llegaron a la base")
+                .register(registry);
+        FunctionCounter.builder("cuentas.findById.unidas", cuentaCache, CuentaCache::getLecturasUnidas)
+                .description("Lecturas de findById que esperaron la consulta en curso de la misma cuenta")
+                .register(registry);
+        CaffeineCacheMetrics.monitor(registry, cuentaCache.getCache(), "cuentas");
+    }
+
+    public void registrarEsperaBloqueo(long nanos) {
+        esperaBloqueo.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void registrarBloqueoAgotado() {
+        bloqueosAgotados.increment();
+    }
+
+    public void registrarGrupo(int transferencias) {
+        grupos.record(transferencias);
+    }
+
+    public void registrarFondosInsuficientes(long cantidad) {
+        fondosInsuficientes.increment(cantidad);
+    }
+
+    //Los save solo marcan la entidad; los UPDATE se ejecutan en el flush del commit y se miden aqui
+    public void medirCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long inicio;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                inicio = System.nanoTime();
+            }
+
+            @Override
+            public void afterCommit() {
+                commit.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+}
@@ -0,0 +1,10 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+public enum ModoConcurrencia {
+    //Lee con findById y confia en @Version; los conflictos se reintentan
+    OPTIMISTA,
+    //Bloquea las filas con SELECT ... FOR UPDATE en orden de id
+    PESIMISTA,
+    //Un hilo escritor por fragmento de cuentas aplica las transferencias en memoria (MotorTransferencias)
+    SECUENCIAL
+}
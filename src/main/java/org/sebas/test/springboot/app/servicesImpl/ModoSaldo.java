@@ -0,0 +1,8 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+public enum ModoSaldo {
+    //transferir actualiza cuentas.saldo en el lugar
+    DIRECTO,
+    //transferir solo inserta movimientos; el saldo es la foto de la cuenta mas los movimientos posteriores
+    LIBRO
+}
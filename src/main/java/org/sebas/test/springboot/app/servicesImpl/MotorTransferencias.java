@@ -0,0 +1,500 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.sebas.test.springboot.app.exceptions.DineroInsuficienteException;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.Dinero;
+import org.sebas.test.springboot.app.repositories.BancoRepository;
+import org.sebas.test.springboot.app.repositories.CuentaRepository;
+import org.sebas.test.springboot.app.services.DiarioTransferencias;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Motor de transferencias de escritor unico (modo de concurrencia "secuencial"). Las cuentas se reparten
+ * en fragmentos por id; cada fragmento tiene un hilo que consume su cola circular por lotes y es el unico
+ * que toca los saldos en memoria de sus cuentas, asi no hay bloqueos ni reintentos.
+ * Cada lote se registra en el DiarioTransferencias en una transaccion y solo despues se responde al
+ * llamador; si el registro falla, el lote se deshace en memoria.
+ * Entre fragmentos la transferencia va en dos pasos: el origen reserva el monto y el destino acredita y
+ * registra ambos lados; luego el origen confirma o libera la reserva.
+ */
+@Component
+public class MotorTransferencias {
+
+    private static final Logger log = LoggerFactory.getLogger(MotorTransferencias.class);
+
+    private final boolean activo;
+    private final CuentaRepository cuentaRepository;
+    private final BancoRepository bancoRepository;
+    private final DiarioTransferencias diario;
+    private final CuentaCache cuentaCache;
+    private final TransactionTemplate lectura;
+    private final Fragmento[] fragmentos;
+    private final Semaphore admision;
+    private final int capacidad;
+    private final int maxLote;
+    private final long esperaMs;
+    private final Set<Long> bancosConocidos = ConcurrentHashMap.newKeySet();
+
+    public MotorTransferencias(CuentaRepository cuentaRepository, BancoRepository bancoRepository,
+                               DiarioTransferencias diario, CuentaCache cuentaCache, LibroMovimientos libro,
+                               PlatformTransactionManager transactionManager, MeterRegistry registry,
+                               @Value("${app.transferencias.concurrencia:optimista}") ModoConcurrencia modoConcurrencia,
+                               @Value("${app.transferencias.motor.fragmentos:4}") int numFragmentos,
+                               @Value("${app.transferencias.motor.capacidad:16384}") int capacidad,
+                               @Value("${app.transferencias.motor.max-lote:512}") int maxLote,
+                               @Value("${app.transferencias.motor.espera-ms:5000}") long esperaMs) {
+        this.activo = modoConcurrencia == ModoConcurrencia.SECUENCIAL;
+        if (activo && libro.isActivo()) {
+            throw new IllegalStateException("El modo secuencial solo admite app.cuentas.saldo.modo=directo");
+        }
+        if (numFragmentos <= 0 || capacidad <= 0 || maxLote <= 0) {
+            throw new IllegalArgumentException("Fragmentos, capacidad y tamano de lote deben ser positivos");
+        }
+        this.cuentaRepository = cuentaRepository;
+        this.bancoRepository = bancoRepository;
+        this.diario = diario;
+        this.cuentaCache = cuentaCache;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.admision = new Semaphore(capacidad);
+        this.capacidad = capacidad;
+        this.maxLote = maxLote;
+        this.esperaMs = esperaMs;
+        this.fragmentos = new Fragmento[activo ? numFragmentos : 0];
+        for (int i = 0; i < fragmentos.length; i++) {
+            fragmentos[i] = new Fragmento(i);
+        }
+        for (Fragmento fragmento : fragmentos) {
+            fragmento.hilo.start();
+        }
+        Gauge.builder("cuentas.motor.pendientes", admision, semaforo -> capacidad - semaforo.availablePermits())
+                .description("Transferencias admitidas en el motor secuencial que aun no terminaron")
+                .register(registry);
+    }
+
+    public boolean isActivo() {
+        return activo;
+    }
+
+    //Bloquea hasta que la transferencia quede registrada en el diario o sea rechazada
+    public void transferir(Long numCuentaOrigen, Long numCuentaDestino, BigDecimal monto, Long bancoId) {
+        esperar(enviar(numCuentaOrigen, numCuentaDestino, monto, bancoId));
+    }
+
+    //Sin esperar: el futuro termina cuando la transferencia queda en el diario o falla con la misma excepcion
+    //que lanzaria transferir. Un banco inexistente o el motor saturado fallan al enviar
+    public CompletableFuture<Void> enviar(Long numCuentaOrigen, Long numCuentaDestino, BigDecimal monto, Long bancoId) {
+        Objects.requireNonNull(monto, "El monto es obligatorio");
+        verificarBanco(bancoId);
+        Transferencia transferencia = new Transferencia(numCuentaOrigen, numCuentaDestino, Dinero.de(monto), bancoId,
+                new CompletableFuture<>());
+        Fragmento fragmento = fragmento(numCuentaOrigen);
+        admitir();
+        transferencia.resultado().whenComplete((ok, error) -> admision.release());
+        try {
+            fragmento.enviar(transferencia);
+        } catch (RuntimeException e) {
+            // Completar el futuro devuelve el permiso de admision
+            transferencia.resultado().completeExceptionally(e);
+            throw e;
+        }
+        return transferencia.resultado();
+    }
+
+    //Las cuentas escritas por fuera del motor se vuelven a leer de la base despues del commit
+    public void invalidarAlConfirmar(Long... ids) {
+        if (!activo) {
+            return;
+        }
+        List<Long> claves = Arrays.stream(ids).filter(Objects::nonNull).toList();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recargar(claves);
+                }
+            });
+        } else {
+            recargar(claves);
+        }
+    }
+
+    public void recargar(Iterable<Long> ids) {
+        if (!activo) {
+            return;
+        }
+        Map<Fragmento, List<Long>> porFragmento = new HashMap<>();
+        ids.forEach(id -> porFragmento.computeIfAbsent(fragmento(id), f -> new ArrayList<>()).add(id));
+        porFragmento.forEach(Fragmento::recargar);
+    }
+
+    @PreDestroy
+    public void detener() {
+        for (Fragmento fragmento : fragmentos) {
+            fragmento.hilo.interrupt();
+        }
+        for (Fragmento fragmento : fragmentos) {
+            try {
+                fragmento.hilo.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<Comando> pendientes = new ArrayList<>();
+            fragmento.cola.drainTo(pendientes);
+            IllegalStateException detenido = new IllegalStateException("El motor de transferencias se detuvo");
+            pendientes.stream()
+                    .map(Comando::transferencia)
+                    .filter(Objects::nonNull)
+                    .forEach(transferencia -> transferencia.resultado().completeExceptionally(detenido));
+        }
+    }
+
+    private void verificarBanco(Long bancoId) {
+        // Los bancos no se eliminan: basta con comprobar cada uno una vez
+        if (!bancosConocidos.contains(bancoId)) {
+            if (!bancoRepository.existsById(bancoId)) {
+                throw new NoSuchElementException("No existe el banco " + bancoId);
+            }
+            bancosConocidos.add(bancoId);
+        }
+    }
+
+    private void admitir() {
+        try {
+            if (!admision.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+                throw new CannotAcquireLockException("El motor de transferencias esta saturado");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrumpido esperando lugar en el motor de transferencias", e);
+        }
+    }
+
+    private static void esperar(CompletableFuture<Void> resultado) {
+        try {
+            resultado.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando la transferencia", e);
+        }
+    }
+
+    private Fragmento fragmento(Long cuentaId) {
+        return fragmentos[(int) Math.floorMod(cuentaId, (long) fragmentos.length)];
+    }
+
+    private sealed interface Comando permits Transferencia, Abono, Confirmacion, Liberacion, Recarga {
+        default Transferencia transferencia() {
+            return null;
+        }
+    }
+
+    private record Transferencia(Long origen, Long destino, Dinero monto, Long bancoId,
+                                 CompletableFuture<Void> resultado) implements Comando {
+        @Override
+        public Transferencia transferencia() {
+            return this;
+        }
+    }
+
+    //Al fragmento destino: acreditar y registrar ambos lados
+    private record Abono(Transferencia transferencia) implements Comando {
+    }
+
+    //Al fragmento origen: la reserva ya esta registrada en la base
+    private record Confirmacion(Transferencia transferencia) implements Comando {
+    }
+
+    //Al fragmento origen: devolver la reserva y fallar la transferencia
+    private record Liberacion(Transferencia transferencia, RuntimeException error) implements Comando {
+    }
+
+    //Solo despierta al fragmento: las cuentas a recargar van en su conjunto porRecargar
+    private record Recarga() implements Comando {
+    }
+
+    private static final Recarga RECARGA = new Recarga();
+
+    private static final class Saldo {
+        private Dinero disponible;
+        private Dinero reservado = Dinero.CERO;
+        private boolean recargar;
+
+        private Saldo(Dinero disponible) {
+            this.disponible = disponible == null ? Dinero.CERO : disponible;
+        }
+    }
+
+    private final class Fragmento implements Runnable {
+
+        private final int indice;
+        private final Thread hilo;
+        // Cabe lo que pueden encolar las transferencias admitidas: la suya, el abono y la confirmacion,
+        // asi un fragmento nunca se bloquea enviando a otro
+        private final ArrayBlockingQueue<Comando> cola = new ArrayBlockingQueue<>(capacidad * 3 + 1024);
+        private final Map<Long, Saldo> saldos = new HashMap<>();
+        // Las recargas no pasan por la cola acotada: una escritura ya confirmada no puede perder su recarga
+        // porque la cola este llena. Se acumulan aqui y el hilo del fragmento las aplica en el proximo lote
+        private final Set<Long> porRecargar = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean avisado = new AtomicBoolean();
+
+        private Fragmento(int indice) {
+            this.indice = indice;
+            this.hilo = new Thread(this, "motor-transferencias-" + indice);
+            this.hilo.setDaemon(true);
+        }
+
+        private void enviar(Comando comando) {
+            if (!cola.offer(comando)) {
+                throw new CannotAcquireLockException("La cola del fragmento " + indice + " esta llena");
+            }
+        }
+
+        //Nunca falla: con la cola llena el hilo ya tiene trabajo y vacia porRecargar en el proximo lote
+        private void recargar(List<Long> ids) {
+            porRecargar.addAll(ids);
+            if (avisado.compareAndSet(false, true) && !cola.offer(RECARGA)) {
+                avisado.set(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            List<Comando> lote = new ArrayList<>(maxLote);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    lote.add(cola.take());
+                } catch (InterruptedException e) {
+                    break;
+                }
+                cola.drainTo(lote, maxLote - 1);
+                try {
+                    procesar(lote);
+                } catch (RuntimeException e) {
+                    // No deberia pasar: procesar ya resuelve cada comando; se falla lo que quede sin resolver
+                    log.error("Error inesperado en el fragmento {} del motor de transferencias", indice, e);
+                    lote.stream()
+                            .map(Comando::transferencia)
+                            .filter(Objects::nonNull)
+                            .forEach(transferencia -> transferencia.resultado().completeExceptionally(e));
+                }
+                lote.clear();
+            }
+        }
+
+        private void procesar(List<Comando> lote) {
+            // Las recargas van antes de la carga: si no, una cuenta que se descarta en medio del lote
+            // quedaria sin saldo para las transferencias que la siguen. El aviso se baja antes de vaciar,
+            // asi una recarga que llega durante el vaciado vuelve a despertar al hilo
+            avisado.set(false);
+            for (Iterator<Long> ids = porRecargar.iterator(); ids.hasNext(); ) {
+                Long id = ids.next();
+                ids.remove();
+                marcarRecarga(id);
+            }
+            RuntimeException errorCarga = cargarFaltantes(lote);
+            Lote actual = new Lote();
+            for (Comando comando : lote) {
+                switch (comando) {
+                    case Transferencia transferencia -> iniciar(transferencia, actual, errorCarga);
+                    case Abono abono -> abonar(abono.transferencia(), actual, errorCarga);
+                    case Confirmacion confirmacion -> cerrarReserva(confirmacion.transferencia(), null);
+                    case Liberacion liberacion -> cerrarReserva(liberacion.transferencia(), liberacion.error());
+                    case Recarga recarga -> {
+                    }
+                }
+            }
+            registrar(actual);
+        }
+
+        //Trae de la base, en una consulta, las cuentas del lote que este fragmento aun no tiene en memoria
+        private RuntimeException cargarFaltantes(List<Comando> lote) {
+            Set<Long> faltantes = new HashSet<>();
+            for (Comando comando : lote) {
+                if (comando instanceof Transferencia transferencia) {
+                    faltantes.add(transferencia.origen());
+                    if (fragmento(transferencia.destino()) == this) {
+                        faltantes.add(transferencia.destino());
+                    }
+                } else if (comando instanceof Abono abono) {
+                    faltantes.add(abono.transferencia().destino());
+                }
+            }
+            faltantes.removeAll(saldos.keySet());
+            if (faltantes.isEmpty()) {
+                return null;
+            }
+            try {
+                List<Cuenta> cuentas = lectura.execute(status -> cuentaRepository.findAllById(faltantes));
+                cuentas.forEach(cuenta -> saldos.put(cuenta.getId(), new Saldo(cuenta.getSaldoDinero())));
+                return null;
+            } catch (RuntimeException e) {
+                log.warn("El fragmento {} no pudo cargar cuentas: {}", indice, e.getMessage());
+                return e;
+            }
+        }
+
+        private void iniciar(Transferencia transferencia, Lote actual, RuntimeException errorCarga) {
+            boolean local = fragmento(transferencia.destino()) == this;
+            Saldo origen = saldos.get(transferencia.origen());
+            Saldo destino = local ? saldos.get(transferencia.destino()) : null;
+            if (origen == null || (local && destino == null)) {
+                Long faltante = origen == null ? transferencia.origen() : transferencia.destino();
+                transferencia.resultado().completeExceptionally(errorCarga != null ? errorCarga
+                        : new NoSuchElementException("No existe la cuenta " + faltante));
+                return;
+            }
+            Dinero monto = transferencia.monto();
+            if (origen.disponible.esMenorQue(monto)) {
+                transferencia.resultado().completeExceptionally(
+                        new DineroInsuficienteException("Dinero insuficiente en la cuenta."));
+                return;
+            }
+            origen.disponible = origen.disponible.restar(monto);
+            if (local) {
+                destino.disponible = destino.disponible.sumar(monto);
+                actual.aplicar(transferencia.origen(), monto.negar());
+                actual.aplicar(transferencia.destino(), monto);
+                actual.asentar(transferencia);
+                actual.locales.add(transferencia);
+            } else {
+                origen.reservado = origen.reservado.sumar(monto);
+                actual.reservas.add(transferencia);
+            }
+        }
+
+        private void abonar(Transferencia transferencia, Lote actual, RuntimeException errorCarga) {
+            Saldo destino = saldos.get(transferencia.destino());
+            if (destino == null) {
+                fragmento(transferencia.origen()).enviar(new Liberacion(transferencia, errorCarga != null ? errorCarga
+                        : new NoSuchElementException("No existe la cuenta " + transferencia.destino())));
+                return;
+            }
+            destino.disponible = destino.disponible.sumar(transferencia.monto());
+            actual.aplicar(transferencia.destino(), transferencia.monto());
+            // La fila del origen la escribe este fragmento, en la misma transaccion que el credito
+            actual.asentar(transferencia);
+            actual.abonos.add(transferencia);
+        }
+
+        private void cerrarReserva(Transferencia transferencia, RuntimeException error) {
+            Saldo origen = saldos.get(transferencia.origen());
+            if (origen != null) {
+                origen.reservado = origen.reservado.restar(transferencia.monto());
+                if (error != null) {
+                    origen.disponible = origen.disponible.sumar(transferencia.monto());
+                }
+                if (origen.recargar && origen.reservado.signo() == 0) {
+                    saldos.remove(transferencia.origen());
+                }
+            }
+            if (error == null) {
+                transferencia.resultado().complete(null);
+            } else {
+                transferencia.resultado().completeExceptionally(error);
+            }
+        }
+
+        //Con una reserva en vuelo la base todavia no refleja el debito; se recarga cuando se cierre
+        private void marcarRecarga(Long cuentaId) {
+            Saldo saldo = saldos.get(cuentaId);
+            if (saldo == null) {
+                return;
+            }
+            if (saldo.reservado.signo() == 0) {
+                saldos.remove(cuentaId);
+            } else {
+                saldo.recargar = true;
+            }
+        }
+
+        private void registrar(Lote actual) {
+            if (!actual.asientos.isEmpty()) {
+                try {
+                    diario.registrar(actual.asientos);
+                } catch (RuntimeException e) {
+                    log.warn("El fragmento {} no pudo registrar un lote de {} transferencias: {}", indice,
+                            actual.locales.size() + actual.abonos.size(), e.getMessage());
+                    deshacer(actual, e);
+                    return;
+                }
+                cuentaCache.invalidar(actual.cuentas);
+            }
+            actual.locales.forEach(transferencia -> transferencia.resultado().complete(null));
+            actual.abonos.forEach(transferencia -> fragmento(transferencia.origen()).enviar(new Confirmacion(transferencia)));
+            // Las reservas salen despues del registro: podian apoyarse en creditos de este mismo lote
+            actual.reservas.forEach(transferencia -> fragmento(transferencia.destino()).enviar(new Abono(transferencia)));
+        }
+
+        private void deshacer(Lote actual, RuntimeException error) {
+            actual.aplicadosEnMemoria.forEach((cuentaId, delta) -> {
+                Saldo saldo = saldos.get(cuentaId);
+                saldo.disponible = saldo.disponible.restar(delta);
+            });
+            for (Transferencia transferencia : actual.reservas) {
+                Saldo origen = saldos.get(transferencia.origen());
+                origen.reservado = origen.reservado.restar(transferencia.monto());
+                origen.disponible = origen.disponible.sumar(transferencia.monto());
+                transferencia.resultado().completeExceptionally(error);
+            }
+            actual.locales.forEach(transferencia -> transferencia.resultado().completeExceptionally(error));
+            actual.abonos.forEach(transferencia -> fragmento(transferencia.origen()).enviar(new Liberacion(transferencia, error)));
+        }
+    }
+
+    //Lo que un fragmento acumula mientras recorre un lote
+    private static final class Lote {
+        private final List<DiarioTransferencias.Asiento> asientos = new ArrayList<>();
+        private final Set<Long> cuentas = new HashSet<>();
+        private final Map<Long, Dinero> aplicadosEnMemoria = new HashMap<>();
+        private final List<Transferencia> locales = new ArrayList<>();
+        private final List<Transferencia> abonos = new ArrayList<>();
+        private final List<Transferencia> reservas = new ArrayList<>();
+
+        private void aplicar(Long cuentaId, Dinero delta) {
+            aplicadosEnMemoria.merge(cuentaId, delta, Dinero::sumar);
+        }
+
+        private void asentar(Transferencia transferencia) {
+            asientos.add(new DiarioTransferencias.Asiento(transferencia.origen(), transferencia.destino(),
+                    transferencia.monto(), transferencia.bancoId()));
+            cuentas.add(transferencia.origen());
+            cuentas.add(transferencia.destino());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import org.sebas.test.springboot.app.services.CuentaLockManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sin bloqueos en memoria: la concurrencia queda en manos de la base de datos.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cuentas.lock.tipo", havingValue = "ninguno")
+public class NoOpCuentaLockManager implements CuentaLockManager {
+
+    private static final Bloqueo SIN_BLOQUEO = () -> {
+    };
+
+    @Override
+    public Bloqueo bloquear(Long... cuentaIds) {
+        return SIN_BLOQUEO;
+    }
+}
@@ -0,0 +1,95 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Reintenta una accion transaccional cuando falla por un conflicto de concurrencia
+ * (version optimista vencida, timeout o deadlock de bloqueo), con espera exponencial y jitter.
+ */
+@Component
+public class PoliticaReintentos {
+
+    private static final Logger log = LoggerFactory.getLogger(PoliticaReintentos.class);
+
+    private final int maxIntentos;
+    private final long esperaInicialMs;
+    private final long esperaMaximaMs;
+
+    private final AtomicLong ejecuciones = new AtomicLong();
+    private final AtomicLong reintentos = new AtomicLong();
+    private final AtomicLong agotados = new AtomicLong();
+
+    public PoliticaReintentos(@Value("${app.transferencias.reintentos.max-intentos:5}") int maxIntentos,
+                              @Value("${app.transferencias.reintentos.espera-inicial-ms:5}") long esperaInicialMs,
+                              @Value("${app.transferencias.reintentos.espera-maxima-ms:200}") long esperaMaximaMs) {
+        if (maxIntentos < 1) {
+            throw new IllegalArgumentException("Debe haber al menos un intento");
+        }
+        this.maxIntentos = maxIntentos;
+        this.esperaInicialMs = esperaInicialMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    public <T> T ejecutar(Supplier<T> accion) {
+        ejecuciones.incrementAndGet();
+        for (int intento = 1; ; intento++) {
+            try {
+                return accion.get();
+            } catch (ConcurrencyFailureException e) {
+                if (intento >= maxIntentos) {
+                    agotados.incrementAndGet();
+                    throw e;
+                }
+                reintentos.incrementAndGet();
+                log.debug("Conflicto de concurrencia en el intento {}: {}", intento, e.getMessage());
+                esperar(intento);
+            }
+        }
+    }
+
+    public void ejecutar(Runnable accion) {
+        ejecutar(() -> {
+            accion.run();
+            return null;
+        });
+    }
+
+    public long getEjecuciones() {
+        return ejecuciones.get();
+    }
+
+    public long getReintentos() {
+        return reintentos.get();
+    }
+
+    public long getAgotados() {
+        return agotados.get();
+    }
+
+    //Reintentos por ejecucion, para comparar los modos de concurrencia
+    public double getTasaReintentos() {
+        long total = ejecuciones.get();
+        return total == 0 ? 0.0 : (double) reintentos.get() / total;
+    }
+
+    private void esperar(int intento) {
+        long tope = Math.min(esperaMaximaMs, esperaInicialMs << Math.min(intento - 1, 20));
+        if (tope <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(tope / 2, tope + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyFailureException("Interrumpido esperando para reintentar", e);
+        }
+    }
+}
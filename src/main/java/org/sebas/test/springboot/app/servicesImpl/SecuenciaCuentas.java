@@ -0,0 +1,45 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import org.sebas.test.springboot.app.models.SecuenciaAgrupada;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ids de cuentas para los INSERT por JDBC, tomados de cuentas_seq con el mismo bloque pooled-lo que usa
+ * Hibernate: un NEXT VALUE por cada tamano-asignacion ids, sin chocar con los bloques de Hibernate.
+ */
+@Component
+public class SecuenciaCuentas {
+
+    public static final String SIGUIENTE_VALOR = "SELECT NEXT VALUE FOR cuentas_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int tamanoAsignacion;
+    //ReentrantLock y no synchronized: un hilo virtual esperando JDBC dentro de synchronized fija su hilo portador
+    private final ReentrantLock bloqueo = new ReentrantLock();
+    private long siguiente;
+    private long limite;
+
+    public SecuenciaCuentas(JdbcTemplate jdbcTemplate,
+                            @Value("${spring.jpa.properties." + SecuenciaAgrupada.TAMANO_ASIGNACION + ":"
+                                    + SecuenciaAgrupada.TAMANO_ASIGNACION_DEFECTO + "}") int tamanoAsignacion) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tamanoAsignacion = tamanoAsignacion;
+    }
+
+    public long siguiente() {
+        bloqueo.lock();
+        try {
+            if (siguiente >= limite) {
+                siguiente = jdbcTemplate.queryForObject(SIGUIENTE_VALOR, Long.class);
+                limite = siguiente + tamanoAsignacion;
+            }
+            return siguiente++;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import org.sebas.test.springboot.app.services.CuentaLockManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bloqueos por franjas: cada cuenta cae en una de N franjas segun su id, de modo que
+ * transferencias sobre cuentas distintas rara vez compiten y las de una misma cuenta se serializan.
+ * Las franjas siempre se toman en orden ascendente para que no haya deadlocks.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cuentas.lock.tipo", havingValue = "striped", matchIfMissing = true)
+public class StripedCuentaLockManager implements CuentaLockManager {
+
+    private final ReentrantLock[] franjas;
+    private final int mascara;
+    private final long timeoutMs;
+
+    public StripedCuentaLockManager(@Value("${app.cuentas.lock.stripes:1024}") int numFranjas,
+                                    @Value("${app.cuentas.lock.timeout-ms:5000}") long timeoutMs) {
+        if (numFranjas <= 0) {
+            throw new IllegalArgumentException("El numero de franjas debe ser positivo");
+        }
+        int tamano = Integer.highestOneBit(numFranjas - 1) << 1;
+        this.franjas = new ReentrantLock[Math.max(tamano, 1)];
+        for (int i = 0; i < franjas.length; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+        this.mascara = franjas.length - 1;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public Bloqueo bloquear(Long... cuentaIds) {
+        int[] indices = indicesOrdenados(cuentaIds);
+        int tomados = 0;
+        try {
+            for (; tomados < indices.length; tomados++) {
+                if (!franjas[indices[tomados]].tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    throw new CannotAcquireLockException("No se pudo bloquear la cuenta en " + timeoutMs + " ms");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            liberar(indices, tomados);
+            throw new CannotAcquireLockException("Interrumpido esperando el bloqueo de la cuenta", e);
+        } catch (RuntimeException e) {
+            liberar(indices, tomados);
+            throw e;
+        }
+        return () -> liberar(indices, indices.length);
+    }
+
+    public int getNumFranjas() {
+        return franjas.length;
+    }
+
+    int indice(long cuentaId) {
+        long h = cuentaId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+
+    private int[] indicesOrdenados(Long[] cuentaIds) {
+        return Arrays.stream(cuentaIds)
+                .filter(id -> id != null)
+                .mapToInt(this::indice)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    private void liberar(int[] indices, int tomados) {
+        for (int i = tomados - 1; i >= 0; i--) {
+            franjas[indices[i]].unlock();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.sebas.test.springboot.app.exceptions.ColaTransferenciasLlenaException;
+import org.sebas.test.springboot.app.models.EstadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.ResultadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transferencias aceptadas con 202 (Prefer: respond-async). Entran en una cola acotada en memoria y unos
+ * pocos hilos las aplican en micro-lotes con CuentaService.transferirLote, asi una base lenta no retiene
+ * hilos de Tomcat. Con la cola llena se rechaza en el acto en vez de esperar. El estado de cada una se
+ * consulta por id durante app.transferencias.asincronas.retener-minutos. La cola no es duradera: lo que
+ * siga pendiente si el proceso cae se pierde y queda sin estado.
+ */
+@Component
+public class TransferenciasAsincronas {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferenciasAsincronas.class);
+    private static final Duration ESPERA_CIERRE = Duration.ofSeconds(30);
+
+    private final CuentaService cuentaService;
+    private final BlockingQueue<Pendiente> cola;
+    private final Cache<String, EstadoTransferenciaDto> estados;
+    private final int tamanoLote;
+    private final long reintentarEnSegundos;
+    private final List<Thread> hilos = new ArrayList<>();
+    private final Counter aceptadas;
+    private final Counter rechazadas;
+    private volatile boolean cerrada;
+
+    public TransferenciasAsincronas(CuentaService cuentaService, MeterRegistry registry,
+                                    @Value("${app.transferencias.asincronas.capacidad:10000}") int capacidad,
+                                    @Value("${app.transferencias.asincronas.hilos:2}") int numHilos,
+                                    @Value("${app.transferencias.asincronas.lote:100}") int tamanoLote,
+                                    @Value("${app.transferencias.asincronas.retener-minutos:60}") long retenerMinutos,
+                                    @Value("${app.transferencias.asincronas.max-estados:100000}") long maxEstados,
+                                    @Value("${app.transferencias.asincronas.reintentar-en-segundos:1}") long reintentarEnSegundos) {
+        this.cuentaService = cuentaService;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.tamanoLote = Math.max(1, tamanoLote);
+        this.reintentarEnSegundos = reintentarEnSegundos;
+        this.estados = Caffeine.newBuilder()
+                .maximumSize(maxEstados)
+                .expireAfterWrite(Duration.ofMinutes(retenerMinutos))
+                .build();
+        Gauge.builder("cuentas.transferir.asincronas.cola", cola, BlockingQueue::size)
+                .description("Transferencias aceptadas que esperan un hilo")
+                .register(registry);
+        this.aceptadas = Counter.builder("cuentas.transferir.asincronas.aceptadas")
+                .register(registry);
+        this.rechazadas = Counter.builder("cuentas.transferir.asincronas.rechazadas")
+                .description("Transferencias rechazadas con 429 por la cola llena")
+                .register(registry);
+        for (int i = 0; i < numHilos; i++) {
+            Thread hilo = new Thread(this::procesar, "transferencias-asincronas-" + i);
+            hilo.setDaemon(true);
+            hilos.add(hilo);
+            hilo.start();
+        }
+    }
+
+    public EstadoTransferenciaDto encolar(TransaccionDto dto) {
+        if (cerrada) {
+            throw new ColaTransferenciasLlenaException("El servicio se esta deteniendo");
+        }
+        EstadoTransferenciaDto estado = new EstadoTransferenciaDto(UUID.randomUUID().toString(),
+                EstadoTransferenciaDto.PENDIENTE, null, dto);
+        // El estado se guarda antes de encolar: un hilo puede terminarla antes de que vuelva offer
+        estados.put(estado.getId(), estado);
+        if (!cola.offer(new Pendiente(estado.getId(), dto))) {
+            estados.invalidate(estado.getId());
+            rechazadas.increment();
+            throw new ColaTransferenciasLlenaException("La cola de transferencias esta llena");
+        }
+        aceptadas.increment();
+        return estado;
+    }
+
+    public Optional<EstadoTransferenciaDto> buscar(String id) {
+        return Optional.ofNullable(estados.getIfPresent(id));
+    }
+
+    //Valor de Retry-After para los rechazos por cola llena
+    public long getReintentarEnSegundos() {
+        return reintentarEnSegundos;
+    }
+
+    public int getPendientes() {
+        return cola.size();
+    }
+
+    //Se dejan de aceptar transferencias y los hilos terminan lo que ya estaba en la cola
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        cerrada = true;
+        long limite = System.nanoTime() + ESPERA_CIERRE.toNanos();
+        for (Thread hilo : hilos) {
+            hilo.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(limite - System.nanoTime())));
+        }
+        if (!cola.isEmpty()) {
+            log.warn("Quedaron {} transferencias asincronas sin aplicar al detener el servicio", cola.size());
+        }
+        hilos.forEach(Thread::interrupt);
+    }
+
+    private void procesar() {
+        List<Pendiente> lote = new ArrayList<>(tamanoLote);
+        while (!cerrada || !cola.isEmpty()) {
+            try {
+                Pendiente primera = cola.poll(200, TimeUnit.MILLISECONDS);
+                if (primera == null) {
+                    continue;
+                }
+                lote.add(primera);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            cola.drainTo(lote, tamanoLote - 1);
+            aplicar(lote);
+            lote.clear();
+        }
+    }
+
+    private void aplicar(List<Pendiente> lote) {
+        lote.forEach(pendiente -> actualizar(pendiente, EstadoTransferenciaDto.EN_CURSO, null));
+        try {
+            List<ResultadoTransferenciaDto> resultados = cuentaService.transferirLote(
+                    lote.stream().map(Pendiente::dto).toList());
+            for (ResultadoTransferenciaDto resultado : resultados) {
+                actualizar(lote.get(resultado.getIndice()), resultado.getCodigo(), resultado.getMensaje());
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudo aplicar un lote de {} transferencias asincronas: {}", lote.size(), e.getMessage());
+            lote.forEach(pendiente -> actualizar(pendiente, EstadoTransferenciaDto.ERROR, e.getMessage()));
+        }
+    }
+
+    private void actualizar(Pendiente pendiente, String estado, String mensaje) {
+        estados.put(pendiente.id(), new EstadoTransferenciaDto(pendiente.id(), estado, mensaje, pendiente.dto()));
+    }
+
+    private record Pendiente(String id, TransaccionDto dto) {
+    }
+}
@@ -0,0 +1,15 @@
+-- Crea el historial de transferencias en una base de una version anterior; se puede ejecutar mas de una vez.
+-- Las transferencias anteriores a la migracion no tienen historial.
+-- INCREMENT BY debe ser igual a spring.jpa.properties.app.ids.tamano-asignacion.
+CREATE SEQUENCE IF NOT EXISTS transferencias_seq START WITH 1 INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS transferencias (
+    id BIGINT NOT NULL PRIMARY KEY,
+    origen_id BIGINT NOT NULL,
+    destino_id BIGINT NOT NULL,
+    banco_id BIGINT NOT NULL,
+    monto NUMERIC(38,2) NOT NULL,
+    fecha TIMESTAMP(6) NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_transferencias_origen ON transferencias (origen_id, fecha, id);
+CREATE INDEX IF NOT EXISTS idx_transferencias_destino ON transferencias (destino_id, fecha, id);
+CREATE INDEX IF NOT EXISTS idx_transferencias_banco ON transferencias (banco_id, fecha, id);
@@ -0,0 +1,3 @@
+-- La respuesta de una Idempotency-Key queda en NULL mientras su transferencia esta en curso.
+-- Se ejecuta una vez sobre una base creada antes de ese cambio; se puede repetir sin error.
+ALTER TABLE transferencias_idempotentes ALTER COLUMN respuesta SET NULL;
@@ -0,0 +1,8 @@
+-- Agrega a una base ya creada la columna persona_normalizada y su indice. El relleno sigue la regla de
+-- Cuenta.normalizarPersona: quita los espacios Unicode de los extremos, junta los espacios internos en uno
+-- y pasa a minusculas (H2 evalua las expresiones con java.util.regex, como la clase). Recalcula todas las
+-- filas, tambien las que relleno la version anterior de este script. Se ejecuta con la aplicacion detenida.
+ALTER TABLE cuentas ADD COLUMN IF NOT EXISTS persona_normalizada VARCHAR(255);
+UPDATE cuentas SET persona_normalizada = LOWER(REGEXP_REPLACE(
+        REGEXP_REPLACE(persona, '^\p{javaWhitespace}+|\p{javaWhitespace}+$', ''), '\s+', ' '));
+CREATE INDEX IF NOT EXISTS idx_cuentas_persona_normalizada ON cuentas (persona_normalizada);
@@ -0,0 +1,7 @@
+-- Migra el libro de movimientos de ids IDENTITY a la secuencia que usa Movimiento, para que
+-- saveAll agrupe los INSERT en lotes JDBC. Se ejecuta una vez con la aplicacion detenida.
+-- INCREMENT BY debe ser igual a spring.jpa.properties.app.ids.tamano-asignacion.
+ALTER TABLE movimientos ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE IF NOT EXISTS movimientos_seq START WITH 1 INCREMENT BY 50;
+-- La compactacion usa el id como marca de agua: los nuevos movimientos deben quedar despues del ultimo
+ALTER SEQUENCE movimientos_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM movimientos);
@@ -0,0 +1,10 @@
+-- Migra una base H2 creada con ids IDENTITY en cuentas y bancos (por ejemplo con los datos de import.sql)
+-- a las secuencias que usan Cuenta y Banco. Se ejecuta una vez con la aplicacion detenida.
+-- INCREMENT BY debe ser igual a spring.jpa.properties.app.ids.tamano-asignacion.
+ALTER TABLE cuentas ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE bancos ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE IF NOT EXISTS cuentas_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS bancos_seq START WITH 1 INCREMENT BY 50;
+-- pooled-lo reserva desde el valor entregado: la secuencia sigue despues del ultimo id existente
+ALTER SEQUENCE cuentas_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM cuentas);
+ALTER SEQUENCE bancos_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM bancos);
@@ -1,4 +1,6 @@
-INSERT INTO cuentas (persona, saldo) VALUES ('Sebastian', 1000);
-INSERT INTO cuentas (persona, saldo) VALUES ('John', 2000);
-INSERT INTO cuentas (persona, saldo) VALUES ('Jorge', 3000);
-INSERT INTO bancos (nombre, total_transferencias) VALUES ('Banco Financiero', 0);
\ No newline at end of file
+INSERT INTO cuentas (id, persona, persona_normalizada, saldo, version) VALUES (1, 'Sebastian', 'sebastian', 1000, 0);
+INSERT INTO cuentas (id, persona, persona_normalizada, saldo, version) VALUES (2, 'John', 'john', 2000, 0);
+INSERT INTO cuentas (id, persona, persona_normalizada, saldo, version) VALUES (3, 'Jorge', 'jorge', 3000, 0);
+INSERT INTO bancos (id, nombre, total_transferencias, version) VALUES (1, 'Banco Financiero', 0, 0);
+ALTER SEQUENCE cuentas_seq RESTART WITH 4;
+ALTER SEQUENCE bancos_seq RESTART WITH 2;
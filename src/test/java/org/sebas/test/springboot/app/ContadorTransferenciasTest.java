@@ -0,0 +1,42 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.services.ContadorTransferenciasService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("contador")
+@SpringBootTest(properties = {"app.bancos.contador.acumular-en-memoria=true",
+        "app.bancos.contador.flush-ms=3600000"})
+class ContadorTransferenciasTest {
+
+    @Autowired
+    ContadorTransferenciasService contador;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void testAcumulaSoloAlConfirmar() {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        long inicial = contador.total(1L);
+
+        transaccion.executeWithoutResult(status -> {
+            contador.registrar(1L, 3);
+            status.setRollbackOnly();
+        });
+        assertEquals(inicial, contador.total(1L));
+
+        transaccion.executeWithoutResult(status -> contador.registrar(1L, 2));
+        assertEquals(inicial + 2, contador.total(1L));
+
+        // Fuera de una transaccion se suma en el acto
+        contador.registrar(1L, 1);
+        assertEquals(inicial + 3, contador.total(1L));
+    }
+}
@@ -0,0 +1,178 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.sebas.test.springboot.app.servicesImpl.CuentaCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("integracion_cache")
+@SpringBootTest(properties = "app.cuentas.cache.habilitado=true")
+class CuentaCacheTest {
+
+    @Autowired
+    CuentaService service;
+
+    @Autowired
+    CuentaCache cuentaCache;
+
+    @Test
+    void testLecturaRepetidaSaleDeLaCache() {
+        Long id = service.save(new Cuenta(null, "Cache lectura", new BigDecimal("700"))).getId();
+        long aciertos = cuentaCache.estadisticas().hitCount();
+
+        assertEquals("700.00", service.revisarSaldo(id).toPlainString());
+        assertEquals("700.00", service.revisarSaldo(id).toPlainString());
+        Cuenta cuenta = service.findById(id);
+
+        assertEquals(aciertos + 2, cuentaCache.estadisticas().hitCount());
+        // Cada acierto devuelve una copia: modificarla no altera la cache
+        cuenta.setSaldo(BigDecimal.ZERO);
+        assertEquals("700.00", service.revisarSaldo(id).toPlainString());
+    }
+
+    @Test
+    void testTransferirInvalidaLaCache() {
+        Long origen = service.save(new Cuenta(null, "Cache origen", new BigDecimal("1000"))).getId();
+        Long destino = service.save(new Cuenta(null, "Cache destino", new BigDecimal("500"))).getId();
+        service.revisarSaldo(origen);
+        service.revisarSaldo(destino);
+
+        service.transferir(origen, destino, new BigDecimal("100"), 1L);
+
+        assertEquals("900.00", service.revisarSaldo(origen).toPlainString());
+        assertEquals("600.00", service.revisarSaldo(destino).toPlainString());
+
+        TransaccionDto dto = new TransaccionDto();
+        dto.setCuentaOrigenId(destino);
+        dto.setCuentaDestinoId(origen);
+        dto.setMonto(new BigDecimal("50"));
+        dto.setBancoId(1L);
+        service.transferirLote(List.of(dto));
+
+        assertEquals("950.00", service.revisarSaldo(origen).toPlainString());
+        assertEquals("550.00", service.revisarSaldo(destino).toPlainString());
+    }
+
+    @Test
+    void testEliminarInvalidaLaCache() {
+        Long id = service.save(new Cuenta(null, "Cache eliminar", new BigDecimal("10"))).getId();
+        service.findById(id);
+
+        service.deleteById(id);
+
+        assertThrows(NoSuchElementException.class, () -> service.findById(id));
+    }
+
+    @Test
+    void testCargaCruzadaConInvalidacionNoSeGuarda() {
+        CuentaCache cache = new CuentaCache(true, 10, 60, true);
+        Cuenta vieja = new Cuenta(1L, "Carrera", new BigDecimal("100"));
+
+        Cuenta leida = cache.obtener(1L, () -> {
+            // Una transferencia confirma mientras la lectura todavia no guardo su resultado
+            cache.invalidarAlConfirmar(1L);
+            return vieja;
+        });
+
+        assertSame(vieja, leida);
+        assertNull(cache.getCache().getIfPresent(1L));
+
+        cache.obtener(1L, () -> vieja);
+        assertNotNull(cache.getCache().getIfPresent(1L));
+    }
+
+    @Test
+    void testLecturasConcurrentesCompartenUnaConsulta() throws Exception {
+        CuentaCache cache = new CuentaCache(false, 10, 60, true);
+        int hilos = 16;
+        AtomicInteger consultas = new AtomicInteger();
+        CountDownLatch enConsulta = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Supplier<Cuenta> cargar = () -> {
+            consultas.incrementAndGet();
+            enConsulta.countDown();
+            esperar(liberar);
+            return new Cuenta(1L, "Compartida", new BigDecimal("100"));
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        List<Future<Cuenta>> lecturas = new ArrayList<>();
+        lecturas.add(executor.submit(() -> cache.obtener(1L, cargar)));
+        enConsulta.await(10, TimeUnit.SECONDS);
+        for (int i = 1; i < hilos; i++) {
+            lecturas.add(executor.submit(() -> cache.obtener(1L, cargar)));
+        }
+        while (cache.getLecturasUnidas() < hilos - 1) {
+            Thread.sleep(5);
+        }
+        liberar.countDown();
+        Set<Cuenta> distintas = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Future<Cuenta> lectura : lecturas) {
+            Cuenta cuenta = lectura.get(10, TimeUnit.SECONDS);
+            assertEquals("100.00", cuenta.getSaldo().toPlainString());
+            distintas.add(cuenta);
+        }
+        executor.shutdown();
+
+        assertEquals(1, consultas.get());
+        assertEquals(1, cache.getConsultas());
+        assertEquals(hilos - 1, cache.getLecturasUnidas());
+        // Cada lector recibe su propia instancia
+        assertEquals(hilos, distintas.size());
+    }
+
+    @Test
+    void testInvalidacionCierraLaConsultaEnCurso() throws Exception {
+        CuentaCache cache = new CuentaCache(false, 10, 60, true);
+        CountDownLatch enConsulta = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Cuenta> anterior = executor.submit(() -> cache.obtener(1L, () -> {
+            enConsulta.countDown();
+            esperar(liberar);
+            return new Cuenta(1L, "Antes", new BigDecimal("100"));
+        }));
+        enConsulta.await(10, TimeUnit.SECONDS);
+
+        // Una escritura confirma mientras la consulta sigue en curso: la siguiente lectura no se une a ella
+        cache.invalidarAlConfirmar(1L);
+        Cuenta posterior = cache.obtener(1L, () -> new Cuenta(1L, "Despues", new BigDecimal("90")));
+        liberar.countDown();
+
+        assertEquals("90.00", posterior.getSaldo().toPlainString());
+        assertEquals("100.00", anterior.get(10, TimeUnit.SECONDS).getSaldo().toPlainString());
+        assertEquals(2, cache.getConsultas());
+        assertEquals(0, cache.getLecturasUnidas());
+        executor.shutdown();
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("integracion_reactivo")
+@SpringBootTest(properties = {
+        "app.reactivo.habilitado=true",
+        "app.reactivo.puerto=0",
+        "app.reactivo.hilos=2",
+        "app.cuentas.cache.habilitado=true"})
+class CuentaReactivaTest {
+
+    @Autowired
+    ServidorReactivo servidor;
+
+    @Autowired
+    CuentaService service;
+
+    WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = WebTestClient.bindToServer().baseUrl("http://localhost:" + servidor.getPuerto()).build();
+    }
+
+    @Test
+    void testDetalleYListar() {
+        Long id = service.save(new Cuenta(null, "Reactiva detalle", new BigDecimal("250"))).getId();
+
+        client.get().uri("/api/cuentas/{id}", id).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.persona").isEqualTo("Reactiva detalle")
+                .jsonPath("$.saldo").isEqualTo(250.0);
+
+        client.get().uri("/api/cuentas").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].persona").isEqualTo("Sebastian")
+                .jsonPath("$[?(@.id == %d)].persona", id).isEqualTo("Reactiva detalle");
+
+        client.get().uri("/api/cuentas/{id}", 999_999L).exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void testGuardarYEliminar() {
+        Cuenta guardada = client.post().uri("/api/cuentas")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new Cuenta(null, "Reactiva nueva", new BigDecimal("42")))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Cuenta.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(guardada.getId());
+        assertEquals("42.00", service.revisarSaldo(guardada.getId()).toPlainString());
+
+        client.delete().uri("/api/cuentas/{id}", guardada.getId()).exchange()
+                .expectStatus().isNoContent();
+        client.get().uri("/api/cuentas/{id}", guardada.getId()).exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void testActualizarConVersionViejaNoPisaUnaTransferencia() {
+        Long id = service.save(new Cuenta(null, "Reactiva version", new BigDecimal("100"))).getId();
+        Long otra = service.save(new Cuenta(null, "Reactiva version destino", new BigDecimal("0"))).getId();
+        Cuenta leida = client.get().uri("/api/cuentas/{id}", id).exchange()
+                .expectStatus().isOk()
+                .expectBody(Cuenta.class)
+                .returnResult().getResponseBody();
+
+        service.transferir(id, otra, new BigDecimal("30"), 1L);
+
+        leida.setSaldo(new BigDecimal("500"));
+        client.post().uri("/api/cuentas")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(leida)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+        assertEquals("70.00", service.revisarSaldo(id).toPlainString());
+
+        leida.setVersion(null);
+        client.post().uri("/api/cuentas")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(leida)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        leida.setVersion(service.findById(id).getVersion());
+        client.post().uri("/api/cuentas")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(leida)
+                .exchange()
+                .expectStatus().isCreated();
+        assertEquals("500.00", service.revisarSaldo(id).toPlainString());
+    }
+
+    @Test
+    void testTransferirInvalidaLaCacheDelApiBloqueante() {
+        Long origen = service.save(new Cuenta(null, "Reactiva origen", new BigDecimal("1000"))).getId();
+        Long destino = service.save(new Cuenta(null, "Reactiva destino", new BigDecimal("500"))).getId();
+        long transferenciasIniciales = service.revisarTotalTransferencias(1L);
+        // Deja ambas cuentas en la cache del API MVC
+        service.revisarSaldo(origen);
+        service.revisarSaldo(destino);
+
+        client.post().uri("/api/cuentas/transferir")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(crearTransaccion(origen, destino, "100"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.mensaje").isEqualTo("Transferencia realizado con éxito!")
+                .jsonPath("$.transaccion.cuentaOrigenId").isEqualTo(origen.intValue());
+
+        assertEquals("900.00", service.revisarSaldo(origen).toPlainString());
+        assertEquals("600.00", service.revisarSaldo(destino).toPlainString());
+        assertEquals(transferenciasIniciales + 1, service.revisarTotalTransferencias(1L));
+    }
+
+    @Test
+    void testTransferirSinFondosNoModificaNada() {
+        Long origen = service.save(new Cuenta(null, "Reactiva sin fondos", new BigDecimal("50"))).getId();
+        Long destino = service.save(new Cuenta(null, "Reactiva receptora", new BigDecimal("10"))).getId();
+        long transferenciasIniciales = service.revisarTotalTransferencias(1L);
+
+        client.post().uri("/api/cuentas/transferir")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(crearTransaccion(origen, destino, "80"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.mensaje").isEqualTo("Dinero insuficiente en la cuenta.");
+
+        // Con el origen de id mayor se acredita primero; el debito rechazado debe revertir ese credito
+        client.post().uri("/api/cuentas/transferir")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(crearTransaccion(destino, origen, "80"))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        client.post().uri("/api/cuentas/transferir")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(crearTransaccion(origen, 999_999L, "1"))
+                .exchange()
+                .expectStatus().isNotFound();
+
+        client.post().uri("/api/cuentas/transferir")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(crearTransaccion(origen, destino, "0.001"))
+                .exchange()
+                .expectStatus().isBadRequest();
+        client.post().uri("/api/cuentas/transferir")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(crearTransaccion(origen, destino, "-5"))
+                .exchange()
+                .expectStatus().isBadRequest();
+        client.post().uri("/api/cuentas/transferir")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("cuentaOrigenId", origen, "bancoId", 1, "monto", 1))
+                .exchange()
+                .expectStatus().isBadRequest();
+        client.post().uri("/api/cuentas/transferir")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("cuentaOrigenId", origen, "cuentaDestinoId", destino, "bancoId", 1))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        assertEquals("50.00", service.revisarSaldo(origen).toPlainString());
+        assertEquals("10.00", service.revisarSaldo(destino).toPlainString());
+        assertEquals(transferenciasIniciales, service.revisarTotalTransferencias(1L));
+    }
+
+    @Test
+    void testConsultasYTransferenciasConcurrentes() {
+        int numCuentas = 4;
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < numCuentas; i++) {
+            ids.add(service.save(new Cuenta(null, "Reactiva estres " + i, new BigDecimal("10000"))).getId());
+        }
+        WebClient webClient = WebClient.create("http://localhost:" + servidor.getPuerto());
+
+        // Dos hilos de event loop atienden mil consultas en vuelo a la vez
+        long consultasOk = Flux.range(0, 1000)
+                .flatMap(i -> webClient.get().uri("/api/cuentas/{id}", ids.get(i % numCuentas))
+                        .retrieve().bodyToMono(Cuenta.class), 1000)
+                .count()
+                .block();
+        assertEquals(1000, consultasOk);
+
+        // Transferencias cruzadas en ambos sentidos: el orden por id evita deadlocks y el total se conserva
+        long transferenciasOk = Flux.range(0, 200)
+                .flatMap(i -> webClient.post().uri("/api/cuentas/transferir")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(crearTransaccion(ids.get(i % numCuentas), ids.get((i + 1 + (i / numCuentas) % (numCuentas - 1)) % numCuentas), "10"))
+                        .retrieve().bodyToMono(Map.class), 100)
+                .count()
+                .block();
+        assertEquals(200, transferenciasOk);
+
+        BigDecimal total = ids.stream().map(service::revisarSaldo).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, new BigDecimal("40000").compareTo(total));
+    }
+
+    private TransaccionDto crearTransaccion(Long origen, Long destino, String monto) {
+        TransaccionDto dto = new TransaccionDto();
+        dto.setCuentaOrigenId(origen);
+        dto.setCuentaDestinoId(destino);
+        dto.setMonto(new BigDecimal(monto));
+        dto.setBancoId(1L);
+        return dto;
+    }
+}
@@ -0,0 +1,80 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DataSourceAcotadoTest {
+
+    @Test
+    void testLimitaLosHilosConConexion() throws Exception {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).then(invocation -> mock(Connection.class));
+        DataSourceAcotado dataSource = new DataSourceAcotado(pool, 2, 50);
+
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            Connection primera = hilos.submit(() -> dataSource.getConnection()).get();
+            Connection segunda = hilos.submit(() -> dataSource.getConnection()).get();
+            assertEquals(2, dataSource.getEnUso());
+
+            ExecutionException e = assertThrows(ExecutionException.class, hilos.submit(() -> dataSource.getConnection())::get);
+            assertInstanceOf(SQLTransientConnectionException.class, e.getCause());
+
+            primera.close();
+            // Un segundo close no devuelve otro permiso
+            primera.close();
+            assertEquals(1, dataSource.getEnUso());
+
+            Connection tercera = hilos.submit(() -> dataSource.getConnection()).get();
+            assertEquals(2, dataSource.getEnUso());
+            segunda.close();
+            tercera.close();
+        }
+        assertEquals(0, dataSource.getEnUso());
+        verify(pool, times(3)).getConnection();
+    }
+
+    @Test
+    void testDevuelveElPermisoSiElPoolFalla() throws SQLException {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenThrow(new SQLException("pool caido"));
+        DataSourceAcotado dataSource = new DataSourceAcotado(pool, 1, 50);
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertEquals(0, dataSource.getEnUso());
+    }
+
+    @Test
+    void testSegundaConexionDelMismoHiloNoPidePermiso() throws Exception {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).then(invocation -> mock(Connection.class));
+        DataSourceAcotado dataSource = new DataSourceAcotado(pool, 1, 50);
+
+        Connection externa = dataSource.getConnection();
+        Connection anidada = dataSource.getConnection();
+        assertEquals(1, dataSource.getEnUso());
+
+        // Otro hilo si tiene que esperar el permiso
+        try (ExecutorService otroHilo = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Connection> otra = otroHilo.submit(() -> dataSource.getConnection());
+            ExecutionException e = assertThrows(ExecutionException.class, otra::get);
+            assertInstanceOf(SQLTransientConnectionException.class, e.getCause());
+        }
+
+        anidada.close();
+        assertEquals(1, dataSource.getEnUso());
+        externa.close();
+        assertEquals(0, dataSource.getEnUso());
+    }
+}
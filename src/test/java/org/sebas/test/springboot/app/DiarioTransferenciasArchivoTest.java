@@ -0,0 +1,152 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sebas.test.springboot.app.models.Dinero;
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.sebas.test.springboot.app.services.DiarioTransferencias.Asiento;
+import org.sebas.test.springboot.app.servicesImpl.DiarioArchivo;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("integracion_diario")
+class DiarioTransferenciasArchivoTest {
+
+    static final BigDecimal MONTO = new BigDecimal("0.01");
+
+    @TempDir
+    Path directorio;
+
+    //Motor secuencial con dos fragmentos y diario en archivo, sobre la base en memoria de import.sql
+    static ConfigurableApplicationContext iniciar(String directorioDiario) {
+        // Sin esto devtools relanzaria el main del proceso hijo con estos argumentos
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        return new SpringApplicationBuilder(SpringbootTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--app.transferencias.concurrencia=secuencial",
+                        "--app.transferencias.motor.fragmentos=2",
+                        "--app.transferencias.diario.tipo=archivo",
+                        "--app.transferencias.diario.directorio=" + directorioDiario,
+                        "--app.cuentas.cache.habilitado=false",
+                        "--logging.level.root=OFF",
+                        "--logging.level.org.hibernate.SQL=OFF");
+    }
+
+    @Test
+    void testRecuperaTrasMatarElProceso() throws Exception {
+        Path diario = directorio.resolve("wal");
+        Path errores = directorio.resolve("hijo.err");
+        Process hijo = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                ProcesoTransferenciasDiario.class.getName(), diario.toString())
+                .redirectError(errores.toFile())
+                .start();
+        long confirmadas = 0;
+        try (BufferedReader salida = new BufferedReader(new InputStreamReader(hijo.getInputStream()))) {
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(90);
+            String linea;
+            while (confirmadas < 2000 && System.nanoTime() < limite && (linea = salida.readLine()) != null) {
+                if (linea.startsWith("confirmadas ")) {
+                    confirmadas = Long.parseLong(linea.substring("confirmadas ".length()));
+                }
+            }
+        } finally {
+            // SIGKILL en plena escritura: no corren @PreDestroy ni el ultimo force()
+            hijo.destroyForcibly();
+            hijo.waitFor(10, TimeUnit.SECONDS);
+        }
+        assertTrue(confirmadas >= 2000, "El proceso hijo no llego a transferir: " + Files.readString(errores));
+
+        BigDecimal saldoDestino;
+        try (ConfigurableApplicationContext contexto = iniciar(diario.toString())) {
+            CuentaService service = contexto.getBean(CuentaService.class);
+            saldoDestino = service.revisarSaldo(2L);
+            BigDecimal total = service.revisarSaldo(1L).add(saldoDestino).add(service.revisarSaldo(3L));
+            long transferidas = saldoDestino.subtract(new BigDecimal("2000")).divide(MONTO).longValueExact();
+
+            assertEquals("6000.00", total.toPlainString());
+            assertTrue(transferidas >= confirmadas,
+                    "Se perdieron transferencias confirmadas: " + transferidas + " < " + confirmadas);
+            assertEquals(transferidas, service.revisarTotalTransferencias(1L));
+        }
+        // La base en memoria vuelve a empezar de import.sql: recuperar otra vez da el mismo saldo
+        try (ConfigurableApplicationContext contexto = iniciar(diario.toString())) {
+            assertEquals(saldoDestino, contexto.getBean(CuentaService.class).revisarSaldo(2L));
+        }
+    }
+
+    @Test
+    void testColaRotaSeDescartaAlAbrir() throws IOException {
+        Path diario = directorio.resolve("wal");
+        try (DiarioArchivo archivo = new DiarioArchivo(diario, 4096, 0)) {
+            for (int i = 0; i < 3; i++) {
+                archivo.esperarEnDisco(archivo.agregar(List.of(new Asiento(1L, 2L, Dinero.de(new BigDecimal("1.50")), 1L))));
+            }
+        }
+        // Un byte cambiado dentro del tercer registro simula una escritura a medias
+        Path segmento = segmentos(diario).get(0);
+        int largoRegistro = 8 + 8 + 1 + 4 + 32;
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), largoRegistro * 2L + 30);
+        }
+
+        try (DiarioArchivo archivo = new DiarioArchivo(diario, 4096, 0)) {
+            List<DiarioArchivo.Registro> registros = new ArrayList<>();
+            archivo.recorrer(0, registros::add);
+
+            assertEquals(2, registros.size());
+            assertEquals(new Asiento(1L, 2L, Dinero.de(new BigDecimal("1.50")), 1L), registros.get(1).asientos().get(0));
+            assertEquals(3, archivo.agregar(List.of(new Asiento(3L, 1L, Dinero.de(BigDecimal.TEN), 1L))));
+        }
+    }
+
+    @Test
+    void testRotaSegmentosYPurgaLosAplicados() throws IOException {
+        Path diario = directorio.resolve("wal");
+        try (DiarioArchivo archivo = new DiarioArchivo(diario, 4096, 0)) {
+            for (int i = 0; i < 200; i++) {
+                archivo.agregar(List.of(new Asiento(1L, 2L, Dinero.de(BigDecimal.ONE), 1L)));
+            }
+            archivo.esperarEnDisco(archivo.anular(200));
+        }
+        assertEquals(3, segmentos(diario).size());
+
+        try (DiarioArchivo archivo = new DiarioArchivo(diario, 4096, 0)) {
+            List<DiarioArchivo.Registro> registros = new ArrayList<>();
+            archivo.recorrer(100, registros::add);
+
+            assertEquals(101, registros.size());
+            assertEquals(101, registros.get(0).secuencia());
+            assertTrue(registros.get(100).esAnulacion());
+            assertEquals(200, registros.get(100).anulada());
+
+            archivo.purgarHasta(160);
+            assertEquals(1, segmentos(diario).size());
+            assertEquals(202, archivo.agregar(List.of(new Asiento(1L, 2L, Dinero.de(BigDecimal.ONE), 1L))));
+        }
+    }
+
+    private static List<Path> segmentos(Path diario) throws IOException {
+        try (Stream<Path> archivos = Files.list(diario)) {
+            return archivos.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.PaginaTransferenciasDto;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.sebas.test.springboot.app.models.Transferencia;
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.sebas.test.springboot.app.services.HistorialTransferenciasService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("integracion_historial")
+@SpringBootTest
+class HistorialTransferenciasTest {
+
+    @Autowired
+    CuentaService service;
+
+    @Autowired
+    HistorialTransferenciasService historial;
+
+    @Test
+    void testPaginasPorCursorSinRepetirNiSaltar() {
+        Long a = service.save(new Cuenta(null, "Historial A", new BigDecimal("1000"))).getId();
+        Long b = service.save(new Cuenta(null, "Historial B", new BigDecimal("1000"))).getId();
+        Long c = service.save(new Cuenta(null, "Historial C", new BigDecimal("1000"))).getId();
+        service.transferir(a, b, new BigDecimal("1"), 1L);
+        service.transferir(b, a, new BigDecimal("2"), 1L);
+        service.transferir(b, c, new BigDecimal("3"), 1L);
+        service.transferirLote(List.of(dto(c, a, "4"), dto(a, c, "5"), dto(a, b, "5000")));
+
+        // La de 5000 no tiene fondos y no queda en el historial
+        List<BigDecimal> montos = new ArrayList<>();
+        List<Integer> tamanos = new ArrayList<>();
+        Long despuesDe = null;
+        do {
+            PaginaTransferenciasDto pagina = historial.buscar(a, null, null, despuesDe, 2);
+            pagina.getTransferencias().forEach(t -> montos.add(t.getMonto()));
+            tamanos.add(pagina.getTransferencias().size());
+            despuesDe = pagina.getSiguiente();
+        } while (despuesDe != null);
+
+        assertEquals(List.of("1.00", "2.00", "4.00", "5.00"), montos.stream().map(BigDecimal::toPlainString).toList());
+        assertEquals(List.of(2, 2), tamanos);
+        assertTrue(historial.buscar(a, null, null, null, null).getTransferencias().stream()
+                .allMatch(t -> a.equals(t.getOrigenId()) || a.equals(t.getDestinoId())));
+    }
+
+    @Test
+    void testRangoDeFechas() {
+        Long a = service.save(new Cuenta(null, "Rango A", new BigDecimal("1000"))).getId();
+        Long b = service.save(new Cuenta(null, "Rango B", new BigDecimal("1000"))).getId();
+        service.transferir(a, b, new BigDecimal("10"), 1L);
+        Transferencia primera = historial.buscar(a, null, null, null, null).getTransferencias().get(0);
+        LocalDateTime corte = primera.getFecha().plusNanos(1000);
+        esperarHasta(corte);
+        service.transferir(a, b, new BigDecimal("20"), 1L);
+
+        List<Transferencia> antes = historial.buscar(b, null, corte, null, null).getTransferencias();
+        List<Transferencia> despues = historial.buscar(b, corte, null, null, null).getTransferencias();
+
+        assertEquals(List.of(primera.getId()), antes.stream().map(Transferencia::getId).toList());
+        assertEquals(1, despues.size());
+        assertEquals("20.00", despues.get(0).getMonto().toPlainString());
+        assertThrows(IllegalArgumentException.class, () -> historial.buscar(a, null, null, -1L, null));
+    }
+
+    @Test
+    void testExportarCsv() throws Exception {
+        Long a = service.save(new Cuenta(null, "Exporta A", new BigDecimal("1000"))).getId();
+        Long b = service.save(new Cuenta(null, "Exporta B", new BigDecimal("1000"))).getId();
+        service.transferir(a, b, new BigDecimal("7.25"), 1L);
+        service.transferir(b, a, new BigDecimal("1"), 1L);
+
+        StringWriter porCuenta = new StringWriter();
+        long filas = historial.exportarCsv(a, null, null, null, porCuenta);
+
+        String[] lineas = porCuenta.toString().split("\n");
+        assertEquals(2, filas);
+        assertEquals("id,fecha,origen_id,destino_id,banco_id,monto", lineas[0]);
+        assertTrue(lineas[1].endsWith("," + a + "," + b + ",1,7.25"), lineas[1]);
+        assertTrue(lineas[2].endsWith("," + b + "," + a + ",1,1.00"), lineas[2]);
+
+        StringWriter todas = new StringWriter();
+        assertTrue(historial.exportarCsv(null, 1L, null, null, todas) >= 2);
+        assertEquals(0, historial.exportarCsv(null, 999L, null, null, new StringWriter()));
+    }
+
+    private static TransaccionDto dto(Long origen, Long destino, String monto) {
+        TransaccionDto dto = new TransaccionDto();
+        dto.setCuentaOrigenId(origen);
+        dto.setCuentaDestinoId(destino);
+        dto.setMonto(new BigDecimal(monto));
+        dto.setBancoId(1L);
+        return dto;
+    }
+
+    private static void esperarHasta(LocalDateTime fecha) {
+        while (!LocalDateTime.now().isAfter(fecha)) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.sebas.test.springboot.app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.exceptions.ClaveIdempotenciaEnUsoException;
+import org.sebas.test.springboot.app.exceptions.DineroInsuficienteException;
+import org.sebas.test.springboot.app.exceptions.TransferenciaEnCursoException;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.sebas.test.springboot.app.models.TransferenciaIdempotente;
+import org.sebas.test.springboot.app.repositories.CuentaRepository;
+import org.sebas.test.springboot.app.repositories.TransferenciaIdempotenteRepository;
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.sebas.test.springboot.app.servicesImpl.IdempotenciaTransferencias;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.transaction.TransactionSystemException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Tag("integracion_idempotencia")
+@SpringBootTest
+class IdempotenciaTransferenciasTest {
+
+    @Autowired
+    CuentaService service;
+
+    @Autowired
+    IdempotenciaTransferencias idempotencia;
+
+    @Autowired
+    TransferenciaIdempotenteRepository idempotenteRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @SpyBean
+    CuentaRepository cuentaRepository;
+
+    @Test
+    void testDuplicadoNoTocaCuentaRepository() {
+        Long origen = service.save(new Cuenta(null, "Idempotente origen", new BigDecimal("1000"))).getId();
+        Long destino = service.save(new Cuenta(null, "Idempotente destino", new BigDecimal("0"))).getId();
+        TransaccionDto dto = crearDto(origen, destino, "100");
+        String clave = UUID.randomUUID().toString();
+
+        IdempotenciaTransferencias.Respuesta primera = idempotencia.ejecutar(clave, dto, () -> transferir(dto));
+        clearInvocations(cuentaRepository);
+        IdempotenciaTransferencias.Respuesta segunda = idempotencia.ejecutar(clave, dto, () -> transferir(dto));
+
+        verifyNoInteractions(cuentaRepository);
+        assertFalse(primera.repetida());
+        assertTrue(segunda.repetida());
+        assertEquals(primera.cuerpo(), segunda.cuerpo());
+        assertEquals(0, new BigDecimal("900").compareTo(service.revisarSaldo(origen)));
+        assertTrue(idempotenteRepository.existsById(clave));
+
+        // La misma clave con otra transferencia no se acepta
+        assertThrows(ClaveIdempotenciaEnUsoException.class,
+                () -> idempotencia.ejecutar(clave, crearDto(origen, destino, "50"), () -> transferir(dto)));
+    }
+
+    @Test
+    void testDuplicadosConcurrentesSeUnenALaEjecucionEnCurso() throws Exception {
+        Long origen = service.save(new Cuenta(null, "Concurrente origen", new BigDecimal("1000"))).getId();
+        Long destino = service.save(new Cuenta(null, "Concurrente destino", new BigDecimal("0"))).getId();
+        TransaccionDto dto = crearDto(origen, destino, "10");
+        String clave = UUID.randomUUID().toString();
+        int hilos = 8;
+
+        AtomicInteger ejecuciones = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<IdempotenciaTransferencias.Respuesta>> tareas = new ArrayList<>();
+        for (int t = 0; t < hilos; t++) {
+            tareas.add(executor.submit(() -> {
+                inicio.await();
+                return idempotencia.ejecutar(clave, dto, () -> {
+                    ejecuciones.incrementAndGet();
+                    dormir(200);
+                    return transferir(dto);
+                });
+            }));
+        }
+        inicio.countDown();
+        List<IdempotenciaTransferencias.Respuesta> respuestas = new ArrayList<>();
+        for (Future<IdempotenciaTransferencias.Respuesta> tarea : tareas) {
+            respuestas.add(tarea.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(1, ejecuciones.get());
+        assertEquals(1, respuestas.stream().filter(r -> !r.repetida()).count());
+        assertEquals(1, respuestas.stream().map(IdempotenciaTransferencias.Respuesta::cuerpo).distinct().count());
+        assertEquals(0, new BigDecimal("990").compareTo(service.revisarSaldo(origen)));
+    }
+
+    @Test
+    void testRespuestaPersistidaYPurgaDeExpiradas() {
+        Long origen = service.save(new Cuenta(null, "Persistida origen", new BigDecimal("1000"))).getId();
+        Long destino = service.save(new Cuenta(null, "Persistida destino", new BigDecimal("0"))).getId();
+        TransaccionDto dto = crearDto(origen, destino, "1");
+        String clave = UUID.randomUUID().toString();
+        String primera = idempotencia.ejecutar(clave, dto, () -> transferir(dto)).cuerpo();
+
+        // Otra instancia sin nada en memoria, como tras un reinicio: responde desde la tabla
+        IdempotenciaTransferencias reiniciada = new IdempotenciaTransferencias(idempotenteRepository, objectMapper, 24, 100);
+        clearInvocations(cuentaRepository);
+        IdempotenciaTransferencias.Respuesta repetida = reiniciada.ejecutar(clave, dto, () -> transferir(dto));
+        verifyNoInteractions(cuentaRepository);
+        assertTrue(repetida.repetida());
+        assertEquals(primera, repetida.cuerpo());
+
+        String expirada = UUID.randomUUID().toString();
+        idempotenteRepository.save(new TransferenciaIdempotente(expirada, "x", "{}", Instant.now().minusSeconds(1)));
+        idempotencia.purgarExpiradas();
+        assertFalse(idempotenteRepository.existsById(expirada));
+        assertTrue(idempotenteRepository.existsById(clave));
+    }
+
+    @Test
+    void testLaClaveSeReservaAntesDeTransferir() {
+        Long origen = service.save(new Cuenta(null, "Reservada origen", new BigDecimal("100"))).getId();
+        Long destino = service.save(new Cuenta(null, "Reservada destino", new BigDecimal("0"))).getId();
+        TransaccionDto dto = crearDto(origen, destino, "10");
+        String clave = UUID.randomUUID().toString();
+
+        // Un fallo libera la clave y el reintento ejecuta; durante la ejecucion la fila ya existe en curso
+        assertThrows(DineroInsuficienteException.class, () -> idempotencia.ejecutar(clave, dto, () -> {
+            assertNull(idempotenteRepository.findById(clave).orElseThrow().getRespuesta());
+            throw new DineroInsuficienteException("Dinero insuficiente en la cuenta.");
+        }));
+        assertFalse(idempotenteRepository.existsById(clave));
+        assertFalse(idempotencia.ejecutar(clave, dto, () -> transferir(dto)).repetida());
+        assertNotNull(idempotenteRepository.findById(clave).orElseThrow().getRespuesta());
+
+        // Otra instancia que aun no termino: esta no ejecuta
+        String enCurso = UUID.randomUUID().toString();
+        idempotenteRepository.reclamar(enCurso, huellaDe(origen, destino, "10"), Instant.now().plusSeconds(60));
+        AtomicInteger ejecuciones = new AtomicInteger();
+        assertThrows(TransferenciaEnCursoException.class, () -> idempotencia.ejecutar(enCurso, dto, () -> {
+            ejecuciones.incrementAndGet();
+            return transferir(dto);
+        }));
+        assertEquals(0, ejecuciones.get());
+        assertEquals(0, new BigDecimal("90").compareTo(service.revisarSaldo(origen)));
+
+        // Un fallo en el commit no dice si la transferencia se aplico: la clave no se libera
+        String incierta = UUID.randomUUID().toString();
+        assertThrows(TransactionSystemException.class, () -> idempotencia.ejecutar(incierta, dto, () -> {
+            throw new TransactionSystemException("Se perdio la conexion durante el commit");
+        }));
+        assertNull(idempotenteRepository.findById(incierta).orElseThrow().getRespuesta());
+        assertThrows(TransferenciaEnCursoException.class, () -> idempotencia.ejecutar(incierta, dto, () -> {
+            ejecuciones.incrementAndGet();
+            return transferir(dto);
+        }));
+        assertEquals(0, ejecuciones.get());
+    }
+
+    private static String huellaDe(Long origen, Long destino, String monto) {
+        return origen + ":" + destino + ":" + monto + ":1";
+    }
+
+    private Map<String, Object> transferir(TransaccionDto dto) {
+        service.transferir(dto.getCuentaOrigenId(), dto.getCuentaDestinoId(), dto.getMonto(), dto.getBancoId());
+        return Map.of("transaccion", dto);
+    }
+
+    private static TransaccionDto crearDto(Long origen, Long destino, String monto) {
+        TransaccionDto dto = new TransaccionDto();
+        dto.setCuentaOrigenId(origen);
+        dto.setCuentaDestinoId(destino);
+        dto.setMonto(new BigDecimal(monto));
+        dto.setBancoId(1L);
+        return dto;
+    }
+
+    private static void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
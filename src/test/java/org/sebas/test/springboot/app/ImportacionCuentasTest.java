@@ -0,0 +1,89 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.ImportacionDto;
+import org.sebas.test.springboot.app.repositories.CuentaRepository;
+import org.sebas.test.springboot.app.services.ImportacionCuentasService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("integracion_importacion")
+@SpringBootTest(properties = {"app.cuentas.importacion.lote=100", "app.cuentas.importacion.avisar-cada=1000"})
+class ImportacionCuentasTest {
+
+    @Autowired
+    ImportacionCuentasService importacionService;
+
+    @Autowired
+    CuentaRepository cuentaRepository;
+
+    @Test
+    void testImportarCsvConLineasInvalidas() throws IOException {
+        String csv = "persona,saldo\n"
+                + "CSV Ana,10\n"
+                + "\"CSV Perez, Luis\",20.50\n"
+                + "\n"
+                + "CSV sin saldo\n"
+                + "CSV Negativa,-1\n"
+                + "CSV Decimales,1.001\n"
+                + "\"CSV \"\"Comillas\"\"\",0\n";
+
+        ImportacionDto resultado = importacionService.importar(texto(csv), ImportacionCuentasService.Formato.CSV);
+
+        assertEquals(ImportacionDto.TERMINADA, resultado.getEstado());
+        assertEquals(6, resultado.getLeidas());
+        assertEquals(3, resultado.getInsertadas());
+        assertEquals(3, resultado.getRechazadas());
+        assertEquals(3, resultado.getErrores().size());
+        assertTrue(resultado.getErrores().get(0).startsWith("Linea 5:"));
+        List<Cuenta> cuentas = cuentaRepository.findAll().stream()
+                .filter(c -> c.getPersona().startsWith("CSV"))
+                .toList();
+        assertEquals(3, cuentas.size());
+        assertTrue(cuentas.stream().anyMatch(c -> c.getPersona().equals("CSV Perez, Luis")
+                && c.getSaldo().toPlainString().equals("20.50")));
+        assertTrue(cuentas.stream().anyMatch(c -> c.getPersona().equals("CSV \"Comillas\"")));
+        assertTrue(cuentas.stream().allMatch(c -> c.getVersion() == 0L));
+        assertEquals(resultado.getId(), importacionService.buscar(resultado.getId()).orElseThrow().getId());
+    }
+
+    @Test
+    void testImportarNdjsonEnVariosLotes() throws IOException {
+        int cuentas = 2_050;
+        long antes = cuentaRepository.count();
+        // La entrada se genera por partes, como un cuerpo que llega de a poco
+        List<InputStream> partes = IntStream.range(0, cuentas)
+                .mapToObj(i -> texto("{\"persona\":\"Ndjson " + i + "\",\"saldo\":" + (i % 2 == 0 ? "0.10" : "\"7\"") + "}\n"))
+                .toList();
+        InputStream entrada = new SequenceInputStream(Collections.enumeration(partes));
+
+        ImportacionDto resultado = importacionService.importar(entrada, ImportacionCuentasService.Formato.NDJSON);
+
+        assertEquals(cuentas, resultado.getInsertadas());
+        assertEquals(0, resultado.getRechazadas());
+        assertEquals(antes + cuentas, cuentaRepository.count());
+        assertTrue(resultado.getCuentasPorSegundo() > 0);
+
+        ImportacionDto invalida = importacionService.importar(texto("{\"persona\":\"x\"\n[1]\n"),
+                ImportacionCuentasService.Formato.NDJSON);
+        assertEquals(2, invalida.getRechazadas());
+        assertEquals(0, invalida.getInsertadas());
+    }
+
+    private static InputStream texto(String contenido) {
+        return new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,65 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.sebas.test.springboot.app.servicesImpl.IndicePersonas;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("integracion_personas")
+@SpringBootTest(properties = "app.cuentas.persona.unica=true")
+class IndicePersonasTest {
+
+    @Autowired
+    CuentaService service;
+
+    @Autowired
+    IndicePersonas indicePersonas;
+
+    @Test
+    void testBuscarSinDistinguirMayusculasNiEspacios() {
+        Long id = service.save(new Cuenta(null, "Maria  Jose Perez", new BigDecimal("10"))).getId();
+
+        List<Cuenta> primera = service.findByPersona(" maría jose perez".replace("í", "i"));
+        long aciertos = indicePersonas.estadisticas().hitCount();
+        List<Cuenta> segunda = service.findByPersona("MARIA JOSE   PEREZ");
+
+        assertEquals(List.of(id), primera.stream().map(Cuenta::getId).toList());
+        assertEquals(List.of(id), segunda.stream().map(Cuenta::getId).toList());
+        // La segunda busqueda sale del indice en memoria
+        assertEquals(aciertos + 1, indicePersonas.estadisticas().hitCount());
+        assertTrue(service.findByPersona("Nadie Con Este Nombre").isEmpty());
+    }
+
+    @Test
+    void testGuardarYEliminarMantienenElIndice() {
+        Cuenta cuenta = service.save(new Cuenta(null, "Nombre Viejo", new BigDecimal("10")));
+        assertEquals(1, service.findByPersona("nombre viejo").size());
+        assertTrue(service.findByPersona("nombre nuevo").isEmpty());
+
+        cuenta.setPersona("Nombre Nuevo");
+        service.save(cuenta);
+        assertTrue(service.findByPersona("nombre viejo").isEmpty());
+        assertEquals(cuenta.getId(), service.findByPersona("nombre nuevo").get(0).getId());
+
+        service.deleteById(cuenta.getId());
+        assertTrue(service.findByPersona("nombre nuevo").isEmpty());
+    }
+
+    @Test
+    void testPersonaUnicaPorConfiguracion() {
+        service.save(new Cuenta(null, "Unica", new BigDecimal("10")));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> service.save(new Cuenta(null, " UNICA ", new BigDecimal("20"))));
+        assertEquals(1, service.findByPersona("unica").size());
+    }
+}
@@ -1,19 +1,29 @@
 package org.sebas.test.springboot.app;
 
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.sebas.test.springboot.app.models.Banco;
 import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.CuentaDto;
+import org.sebas.test.springboot.app.models.SaldoCuentaDto;
+import org.sebas.test.springboot.app.models.ContadorTransferencias;
 import org.sebas.test.springboot.app.repositories.BancoRepository;
+import org.sebas.test.springboot.app.repositories.ContadorTransferenciasRepository;
 import org.sebas.test.springboot.app.repositories.CuentaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -27,6 +37,12 @@ public class IntegracionJpaTest {
     @Autowired
     BancoRepository bancoRepository;
 
+    @Autowired
+    ContadorTransferenciasRepository contadorRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
     @Tag("cuenta")
     @Tag("banco")
     @DisplayName("Probando atributos de cuenta y banco!")
@@ -65,6 +81,20 @@ public class IntegracionJpaTest {
 
     }
 
+    @Test
+    void testFindAllByPersonaYNormalizada() {
+        cuentaRepository.save(new Cuenta(null, "  JOHN ", new BigDecimal("10")));
+
+        List<Cuenta> exactas = cuentaRepository.findAllByPersona("John");
+        List<Long> normalizadas = cuentaRepository.findIdsByPersonaNormalizada(Cuenta.normalizarPersona("john"));
+
+        assertEquals(1, exactas.size());
+        assertEquals(2L, exactas.get(0).getId());
+        assertEquals(2, normalizadas.size());
+        assertEquals(2L, normalizadas.get(0));
+        assertEquals("john", cuentaRepository.findPersonaNormalizadaById(2L).orElseThrow());
+    }
+
     @Test
     void testFindAll() {
         List<Cuenta> cuentas = cuentaRepository.findAll();
@@ -86,7 +116,7 @@ public class IntegracionJpaTest {
 
         //then
         assertEquals("Pepe", cuenta.getPersona());
-        assertEquals("3000", cuenta.getSaldo().toPlainString());
+        assertEquals("3000.00", cuenta.getSaldo().toPlainString());
         assertEquals(cuenta.getId().getClass(),Long.class);
         //assertEquals(3, cuenta.getId());
     }
@@ -103,7 +133,7 @@ public class IntegracionJpaTest {
 
         //then
         assertEquals("Pepe", cuenta.getPersona());
-        assertEquals("3000", cuenta.getSaldo().toPlainString());
+        assertEquals("3000.00", cuenta.getSaldo().toPlainString());
         //assertEquals(3, cuenta.getId());
 
         cuenta.setSaldo(new BigDecimal("3800"));
@@ -113,7 +143,7 @@ public class IntegracionJpaTest {
         Cuenta cuentaUpdated = cuentaRepository.save(cuenta);
 
         //Then
-        assertEquals("3800", cuentaUpdated.getSaldo().toPlainString());
+        assertEquals("3800.00", cuentaUpdated.getSaldo().toPlainString());
         assertEquals("Jorge", cuentaUpdated.getPersona());
 
     }
@@ -135,4 +165,66 @@ public class IntegracionJpaTest {
         });
         assertEquals(2, cuentaRepository.findAll().size());
     }
+
+    @Test
+    void testFindPagina() {
+        List<Cuenta> primera = cuentaRepository.findPagina(0L, PageRequest.of(0, 2));
+        assertEquals(List.of(1L, 2L), primera.stream().map(Cuenta::getId).toList());
+
+        List<Cuenta> segunda = cuentaRepository.findPagina(2L, PageRequest.of(0, 2));
+        assertEquals(List.of(3L), segunda.stream().map(Cuenta::getId).toList());
+
+        assertTrue(cuentaRepository.findPagina(3L, PageRequest.of(0, 2)).isEmpty());
+    }
+
+    @Test
+    void testProyeccionesSinEntidadesGestionadas() {
+        entityManager.clear();
+
+        List<CuentaDto> todas = cuentaRepository.findAllDto();
+        List<CuentaDto> pagina = cuentaRepository.findPaginaDto(1L, PageRequest.of(0, 1));
+        CuentaDto cuenta = cuentaRepository.findDtoById(3L).orElseThrow();
+
+        assertEquals(3, todas.size());
+        assertEquals(List.of(2L), pagina.stream().map(CuentaDto::getId).toList());
+        assertEquals("Jorge", cuenta.getPersona());
+        assertEquals("3000.00", cuenta.getSaldo().toPlainString());
+        assertNotNull(cuenta.getVersion());
+        assertTrue(cuentaRepository.findDtoById(99L).isEmpty());
+        // Nada queda en el contexto de persistencia para el dirty checking
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void testFindSaldos() {
+        List<SaldoCuentaDto> saldos = cuentaRepository.findSaldos(List.of(3L, 1L, 99L));
+
+        assertEquals(2, saldos.size());
+        Map<Long, BigDecimal> porId = saldos.stream()
+                .collect(Collectors.toMap(SaldoCuentaDto::getId, SaldoCuentaDto::getSaldo));
+        assertEquals("1000.00", porId.get(1L).toPlainString());
+        assertEquals("3000.00", porId.get(3L).toPlainString());
+    }
+
+    @Test
+    void testStreamAll() {
+        try (Stream<Cuenta> cuentas = cuentaRepository.streamAll()) {
+            assertEquals(List.of("Sebastian", "John", "Jorge"), cuentas.map(Cuenta::getPersona).toList());
+        }
+    }
+
+    @Tag("banco")
+    @Test
+    void testContadorTransferenciasPorRanuras() {
+        contadorRepository.saveAll(List.of(
+                new ContadorTransferencias(1L, 0, 0),
+                new ContadorTransferencias(1L, 1, 0)));
+
+        assertEquals(1, contadorRepository.incrementar(1L, 0, 3));
+        assertEquals(1, contadorRepository.incrementar(1L, 1, 2));
+        assertEquals(0, contadorRepository.incrementar(1L, 7, 1));
+
+        assertEquals(5L, contadorRepository.sumarPorBanco(1L));
+        assertEquals(0L, contadorRepository.sumarPorBanco(99L));
+    }
 }
@@ -0,0 +1,158 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.exceptions.DineroInsuficienteException;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.Dinero;
+import org.sebas.test.springboot.app.models.Movimiento;
+import org.sebas.test.springboot.app.models.ResultadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.SaldoCuentaDto;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.sebas.test.springboot.app.repositories.CuentaRepository;
+import org.sebas.test.springboot.app.repositories.MovimientoRepository;
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.sebas.test.springboot.app.servicesImpl.LibroMovimientos;
+import org.sebas.test.springboot.app.servicesImpl.ModoConcurrencia;
+import org.sebas.test.springboot.app.servicesImpl.ModoSaldo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("integracion_libro")
+@SpringBootTest(properties = {"app.cuentas.saldo.modo=libro", "app.cuentas.libro.compactacion-ms=3600000",
+        "app.transferencias.lote.tamano-consulta=2"})
+class LibroMovimientosTest {
+
+    @Autowired
+    CuentaService service;
+
+    @Autowired
+    CuentaRepository cuentaRepository;
+
+    @Autowired
+    MovimientoRepository movimientoRepository;
+
+    @Autowired
+    LibroMovimientos libro;
+
+    @Test
+    void testTransferirSoloInsertaMovimientos() {
+        Long origen = service.save(new Cuenta(null, "Libro origen", new BigDecimal("1000"))).getId();
+        Long destino = service.save(new Cuenta(null, "Libro destino", new BigDecimal("500"))).getId();
+        long movimientosAntes = movimientoRepository.count();
+
+        service.transferir(origen, destino, new BigDecimal("300"), 1L);
+        service.transferir(destino, origen, new BigDecimal("50"), 1L);
+
+        // La foto de la cuenta no cambia, el saldo se deriva de los movimientos
+        assertEquals(0, new BigDecimal("1000").compareTo(cuentaRepository.findById(origen).orElseThrow().getSaldo()));
+        assertEquals(0, new BigDecimal("750").compareTo(service.revisarSaldo(origen)));
+        assertEquals(0, new BigDecimal("750").compareTo(service.revisarSaldo(destino)));
+        assertEquals(0, new BigDecimal("750").compareTo(service.findById(destino).getSaldo()));
+        assertEquals(0, new BigDecimal("750").compareTo(service.findByPersona("Libro destino").get(0).getSaldo()));
+        assertEquals(movimientosAntes + 4, movimientoRepository.count());
+        Movimiento debito = movimientoRepository.findAll().stream()
+                .filter(m -> m.getCuentaId().equals(origen)).findFirst().orElseThrow();
+        assertEquals(Dinero.de(new BigDecimal("-300")), debito.getMonto());
+
+        assertThrows(DineroInsuficienteException.class, () -> service.transferir(origen, destino, new BigDecimal("751"), 1L));
+        assertEquals(movimientosAntes + 4, movimientoRepository.count());
+    }
+
+    @Test
+    void testCompactacionConservaElSaldo() {
+        Long origen = service.save(new Cuenta(null, "Compacta origen", new BigDecimal("1000"))).getId();
+        Long destino = service.save(new Cuenta(null, "Compacta destino", new BigDecimal("0"))).getId();
+        service.transferir(origen, destino, new BigDecimal("400"), 1L);
+
+        libro.compactar();
+
+        Cuenta foto = cuentaRepository.findById(origen).orElseThrow();
+        assertEquals(0, new BigDecimal("600").compareTo(foto.getSaldo()));
+        assertEquals(movimientoRepository.findUltimoId(origen), foto.getUltimoMovimientoId());
+        assertFalse(movimientoRepository.findCuentasConPendientes().contains(origen));
+        assertFalse(movimientoRepository.findCuentasConPendientes().contains(destino));
+        assertEquals(0, new BigDecimal("600").compareTo(service.revisarSaldo(origen)));
+        assertEquals(0, new BigDecimal("400").compareTo(service.revisarSaldo(destino)));
+
+        // Los movimientos posteriores a la compactacion se suman sobre la nueva foto
+        service.transferir(destino, origen, new BigDecimal("100"), 1L);
+        assertEquals(0, new BigDecimal("700").compareTo(service.revisarSaldo(origen)));
+        assertEquals(0, new BigDecimal("300").compareTo(service.revisarSaldo(destino)));
+    }
+
+    @Test
+    void testSaldoActualDeUnaFotoLeidaAntesDeCompactar() {
+        Long origen = service.save(new Cuenta(null, "Foto vieja origen", new BigDecimal("1000"))).getId();
+        Long destino = service.save(new Cuenta(null, "Foto vieja destino", new BigDecimal("0"))).getId();
+        service.transferir(origen, destino, new BigDecimal("400"), 1L);
+        Cuenta leida = cuentaRepository.findById(origen).orElseThrow();
+
+        libro.compactar();
+
+        // La foto leida sigue en 1000; los movimientos ya compactados deben sumarse igual
+        assertEquals(0, new BigDecimal("600").compareTo(libro.conSaldoActual(leida).getSaldo()));
+        assertEquals(0, new BigDecimal("600").compareTo(service.revisarSaldo(origen)));
+    }
+
+    @Test
+    void testLibroOptimistaSinBloqueoNoArranca() {
+        assertThrows(IllegalStateException.class, () -> new LibroMovimientos(null, null, null, null, null,
+                ModoSaldo.LIBRO, ModoConcurrencia.OPTIMISTA, "ninguno"));
+    }
+
+    @Test
+    void testRevisarSaldosEnModoLibro() {
+        Long origen = service.save(new Cuenta(null, "Saldos origen", new BigDecimal("1000"))).getId();
+        Long destino = service.save(new Cuenta(null, "Saldos destino", new BigDecimal("0"))).getId();
+        service.transferir(origen, destino, new BigDecimal("250"), 1L);
+
+        // Tres bloques de dos ids; el repetido y el inexistente no aparecen
+        List<SaldoCuentaDto> saldos = service.revisarSaldos(List.of(destino, 1L, origen, destino, 9999L));
+
+        assertEquals(List.of(destino, 1L, origen), saldos.stream().map(SaldoCuentaDto::getId).toList());
+        assertEquals(0, new BigDecimal("250").compareTo(saldos.get(0).getSaldo()));
+        assertEquals(0, service.revisarSaldo(1L).compareTo(saldos.get(1).getSaldo()));
+        assertEquals(0, new BigDecimal("750").compareTo(saldos.get(2).getSaldo()));
+    }
+
+    @Test
+    void testLoteEnModoLibro() {
+        Long origen = service.save(new Cuenta(null, "Lote origen", new BigDecimal("100"))).getId();
+        Long destino = service.save(new Cuenta(null, "Lote destino", new BigDecimal("0"))).getId();
+
+        TransaccionDto dto = new TransaccionDto();
+        dto.setCuentaOrigenId(origen);
+        dto.setCuentaDestinoId(destino);
+        dto.setMonto(new BigDecimal("60"));
+        dto.setBancoId(1L);
+
+        List<ResultadoTransferenciaDto> resultados = service.transferirLote(List.of(dto, dto));
+
+        assertTrue(resultados.get(0).isExitosa());
+        assertFalse(resultados.get(1).isExitosa());
+        assertEquals(0, new BigDecimal("40").compareTo(service.revisarSaldo(origen)));
+        assertEquals(0, new BigDecimal("60").compareTo(service.revisarSaldo(destino)));
+    }
+
+    @Test
+    void testRecorrerTodasConSaldoActual() {
+        Long origen = service.save(new Cuenta(null, "Stream origen", new BigDecimal("100"))).getId();
+        Long destino = service.save(new Cuenta(null, "Stream destino", new BigDecimal("0"))).getId();
+        service.transferir(origen, destino, new BigDecimal("25"), 1L);
+
+        Map<Long, BigDecimal> saldos = new HashMap<>();
+        service.recorrerTodas(cuenta -> saldos.put(cuenta.getId(), cuenta.getSaldo()));
+
+        assertEquals(cuentaRepository.count(), saldos.size());
+        assertEquals(0, new BigDecimal("75").compareTo(saldos.get(origen)));
+        assertEquals(0, new BigDecimal("25").compareTo(saldos.get(destino)));
+    }
+}
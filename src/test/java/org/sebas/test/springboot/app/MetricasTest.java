@@ -0,0 +1,63 @@
+package org.sebas.test.springboot.app;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.exceptions.DineroInsuficienteException;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("metricas")
+@AutoConfigureObservability
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "management.endpoints.web.exposure.include=prometheus",
+        "management.metrics.distribution.percentiles-histogram.cuentas=true",
+        "management.metrics.distribution.percentiles-histogram.spring.data.repository.invocations=true"})
+class MetricasTest {
+
+    @Autowired
+    CuentaService service;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Autowired
+    TestRestTemplate client;
+
+    @Test
+    void testMetricasDeTransferir() {
+        Long origen = service.save(new Cuenta(null, "Metricas origen", new BigDecimal("100"))).getId();
+        Long destino = service.save(new Cuenta(null, "Metricas destino", new BigDecimal("0"))).getId();
+        double fondosAntes = registry.counter("cuentas.transferir.fondos_insuficientes").count();
+
+        service.transferir(origen, destino, new BigDecimal("40"), 1L);
+        assertThrows(DineroInsuficienteException.class, () -> service.transferir(origen, destino, new BigDecimal("500"), 1L));
+        service.revisarSaldo(origen);
+
+        assertTrue(registry.get("cuentas.transferir").timers().stream().mapToLong(t -> t.count()).sum() >= 2);
+        assertTrue(registry.get("cuentas.transferir.commit").timer().count() >= 1);
+        assertTrue(registry.get("cuentas.bloqueo.espera").timer().count() >= 2);
+        assertEquals(fondosAntes + 1, registry.counter("cuentas.transferir.fondos_insuficientes").count());
+        assertTrue(registry.get("cuentas.revisarSaldo").timer().count() >= 1);
+
+        ResponseEntity<String> respuesta = client.getForEntity("/actuator/prometheus", String.class);
+        assertEquals(HttpStatus.OK, respuesta.getStatusCode());
+        String cuerpo = respuesta.getBody();
+        assertNotNull(cuerpo);
+        assertTrue(cuerpo.contains("cuentas_transferir_seconds_bucket"));
+        assertTrue(cuerpo.contains("spring_data_repository_invocations_seconds_bucket"));
+        assertTrue(cuerpo.contains("cuentas_transferir_reintentos_total"));
+        assertTrue(cuerpo.contains("hikaricp_connections_active"));
+        assertTrue(cuerpo.contains("cache_gets_total{cache=\"cuentas\""));
+    }
+}
@@ -0,0 +1,138 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.models.Cuenta;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Scripts de db/ sobre el esquema y los datos que dejaban las versiones anteriores
+class MigracionesTest {
+
+    @Test
+    void testMigrarIdentityASecuencias() throws SQLException {
+        try (Connection conexion = DriverManager.getConnection("jdbc:h2:mem:migracion_secuencias");
+             Statement sql = conexion.createStatement()) {
+            sql.execute("CREATE TABLE cuentas (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "persona VARCHAR(255), saldo NUMERIC(38,2), version BIGINT, ultimo_movimiento_id BIGINT)");
+            sql.execute("CREATE TABLE bancos (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "nombre VARCHAR(255), total_transferencias BIGINT NOT NULL, version BIGINT)");
+            sql.execute("INSERT INTO cuentas (persona, saldo, version) VALUES ('Sebastian', 1000, 0), "
+                    + "('John', 2000, 0), ('Jorge', 3000, 0)");
+            sql.execute("INSERT INTO bancos (nombre, total_transferencias, version) VALUES ('Banco Financiero', 0, 0)");
+
+            sql.execute("RUNSCRIPT FROM 'classpath:db/secuencias-cuentas-bancos.sql'");
+
+            assertEquals(4, siguienteValor(sql, "cuentas_seq"));
+            assertEquals(54, siguienteValor(sql, "cuentas_seq"));
+            assertEquals(2, siguienteValor(sql, "bancos_seq"));
+            // Sin IDENTITY el id lo pone siempre quien inserta
+            assertThrows(SQLException.class,
+                    () -> sql.execute("INSERT INTO cuentas (persona, saldo, version) VALUES ('Sin id', 1, 0)"));
+            sql.execute("INSERT INTO cuentas (id, persona, saldo, version) VALUES (4, 'Nueva', 1, 0)");
+            try (ResultSet filas = sql.executeQuery("SELECT count(*) FROM cuentas")) {
+                filas.next();
+                assertEquals(4, filas.getLong(1));
+            }
+        }
+    }
+
+    @Test
+    void testMigrarMovimientosASecuencia() throws SQLException {
+        try (Connection conexion = DriverManager.getConnection("jdbc:h2:mem:migracion_movimientos");
+             Statement sql = conexion.createStatement()) {
+            sql.execute("CREATE TABLE movimientos (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "cuenta_id BIGINT NOT NULL, contraparte_id BIGINT, banco_id BIGINT, "
+                    + "monto NUMERIC(38,2) NOT NULL, fecha TIMESTAMP NOT NULL)");
+            sql.execute("INSERT INTO movimientos (cuenta_id, contraparte_id, banco_id, monto, fecha) VALUES "
+                    + "(1, 2, 1, -300, CURRENT_TIMESTAMP), (2, 1, 1, 300, CURRENT_TIMESTAMP)");
+
+            sql.execute("RUNSCRIPT FROM 'classpath:db/secuencia-movimientos.sql'");
+
+            assertEquals(3, siguienteValor(sql, "movimientos_seq"));
+            assertEquals(53, siguienteValor(sql, "movimientos_seq"));
+            assertThrows(SQLException.class, () -> sql.execute("INSERT INTO movimientos "
+                    + "(cuenta_id, monto, fecha) VALUES (1, 5, CURRENT_TIMESTAMP)"));
+        }
+    }
+
+    private static long siguienteValor(Statement sql, String secuencia) throws SQLException {
+        try (ResultSet fila = sql.executeQuery("SELECT NEXT VALUE FOR " + secuencia)) {
+            fila.next();
+            return fila.getLong(1);
+        }
+    }
+
+    @Test
+    void testAgregarPersonaNormalizada() throws SQLException {
+        try (Connection conexion = DriverManager.getConnection("jdbc:h2:mem:migracion_persona");
+             Statement sql = conexion.createStatement()) {
+            sql.execute("CREATE TABLE cuentas (id BIGINT PRIMARY KEY, persona VARCHAR(255), saldo NUMERIC(38,2), "
+                    + "version BIGINT, ultimo_movimiento_id BIGINT)");
+            sql.execute("INSERT INTO cuentas (id, persona, saldo, version) VALUES (1, ' Sebastian ', 1000, 0), "
+                    + "(2, 'JOHN', 2000, 0), (3, 'Maria \t Jose\u3000', 3000, 0)");
+
+            sql.execute("RUNSCRIPT FROM 'classpath:db/persona-normalizada.sql'");
+            // Se puede volver a ejecutar sin error
+            sql.execute("RUNSCRIPT FROM 'classpath:db/persona-normalizada.sql'");
+
+            try (ResultSet fila = sql.executeQuery("SELECT id FROM cuentas WHERE persona_normalizada = 'john'")) {
+                assertTrue(fila.next());
+                assertEquals(2, fila.getLong(1));
+            }
+            try (ResultSet fila = sql.executeQuery("SELECT count(*) FROM INFORMATION_SCHEMA.INDEXES "
+                    + "WHERE INDEX_NAME = 'IDX_CUENTAS_PERSONA_NORMALIZADA'")) {
+                fila.next();
+                assertEquals(1, fila.getLong(1));
+            }
+            try (ResultSet fila = sql.executeQuery("SELECT persona_normalizada FROM cuentas WHERE id = 1")) {
+                fila.next();
+                assertEquals("sebastian", fila.getString(1));
+            }
+            // Misma regla que Cuenta.normalizarPersona, asi la busqueda exacta encuentra las filas viejas
+            try (ResultSet fila = sql.executeQuery("SELECT persona, persona_normalizada FROM cuentas WHERE id = 3")) {
+                fila.next();
+                assertEquals(Cuenta.normalizarPersona(fila.getString(1)), fila.getString(2));
+                assertEquals("maria jose", fila.getString(2));
+            }
+        }
+    }
+
+    @Test
+    void testCrearHistorialTransferencias() throws SQLException {
+        try (Connection conexion = DriverManager.getConnection("jdbc:h2:mem:migracion_historial");
+             Statement sql = conexion.createStatement()) {
+            sql.execute("RUNSCRIPT FROM 'classpath:db/historial-transferencias.sql'");
+            sql.execute("RUNSCRIPT FROM 'classpath:db/historial-transferencias.sql'");
+
+            sql.execute("INSERT INTO transferencias (id, origen_id, destino_id, banco_id, monto, fecha) "
+                    + "VALUES (NEXT VALUE FOR transferencias_seq, 1, 2, 1, 10.50, CURRENT_TIMESTAMP)");
+            assertEquals(51, siguienteValor(sql, "transferencias_seq"));
+            try (ResultSet fila = sql.executeQuery("SELECT count(*) FROM INFORMATION_SCHEMA.INDEXES "
+                    + "WHERE INDEX_NAME LIKE 'IDX_TRANSFERENCIAS_%'")) {
+                fila.next();
+                assertEquals(3, fila.getLong(1));
+            }
+        }
+    }
+
+    @Test
+    void testRespuestaIdempotenteEnCurso() throws SQLException {
+        try (Connection conexion = DriverManager.getConnection("jdbc:h2:mem:migracion_idempotencia");
+             Statement sql = conexion.createStatement()) {
+            sql.execute("CREATE TABLE transferencias_idempotentes (clave VARCHAR(255) PRIMARY KEY, "
+                    + "huella VARCHAR(255) NOT NULL, respuesta VARCHAR(4000) NOT NULL, expira TIMESTAMP NOT NULL)");
+
+            sql.execute("RUNSCRIPT FROM 'classpath:db/idempotencia-en-curso.sql'");
+            sql.execute("RUNSCRIPT FROM 'classpath:db/idempotencia-en-curso.sql'");
+
+            sql.execute("INSERT INTO transferencias_idempotentes (clave, huella, respuesta, expira) "
+                    + "VALUES ('k', '1:2:10:1', NULL, CURRENT_TIMESTAMP)");
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.exceptions.DineroInsuficienteException;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.ResultadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.sebas.test.springboot.app.services.DiarioTransferencias;
+import org.sebas.test.springboot.app.services.HistorialTransferenciasService;
+import org.sebas.test.springboot.app.servicesImpl.MotorTransferencias;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+
+//Con dos fragmentos, las cuentas de id par e impar caen en hilos escritores distintos
+@Tag("integracion_motor")
+@SpringBootTest(properties = {
+        "app.transferencias.concurrencia=secuencial",
+        "app.transferencias.motor.fragmentos=2"})
+class MotorTransferenciasTest {
+
+    @Autowired
+    CuentaService service;
+
+    @SpyBean
+    DiarioTransferencias diario;
+
+    @Autowired
+    HistorialTransferenciasService historial;
+
+    @Autowired
+    MotorTransferencias motor;
+
+    @Test
+    void testTransferenciasLocalesYEntreFragmentos() {
+        Long[] ids = crearCuentas("1000");
+        Long par1 = ids[0], par2 = ids[1], impar = ids[2];
+        long transferenciasIniciales = service.revisarTotalTransferencias(1L);
+
+        service.transferir(par1, par2, new BigDecimal("100"), 1L);
+        service.transferir(par1, impar, new BigDecimal("200"), 1L);
+        service.transferir(impar, par2, new BigDecimal("50"), 1L);
+
+        assertEquals("700.00", service.revisarSaldo(par1).toPlainString());
+        assertEquals("1150.00", service.revisarSaldo(par2).toPlainString());
+        assertEquals("1150.00", service.revisarSaldo(impar).toPlainString());
+        assertEquals(transferenciasIniciales + 3, service.revisarTotalTransferencias(1L));
+        // El historial se escribe junto con el lote del diario
+        assertEquals(2, historial.buscar(par1, null, null, null, null).getTransferencias().size());
+        assertEquals(2, historial.buscar(impar, null, null, null, null).getTransferencias().size());
+    }
+
+    @Test
+    void testRechazosDevuelvenLaReserva() {
+        Long[] ids = crearCuentas("300");
+        Long par = ids[0], impar = ids[2];
+        Long inexistente = par + 1_000_000;
+        long transferenciasIniciales = service.revisarTotalTransferencias(1L);
+
+        assertThrows(DineroInsuficienteException.class,
+                () -> service.transferir(par, impar, new BigDecimal("301"), 1L));
+        // El destino esta en otro fragmento: la reserva del origen se libera al no encontrarlo
+        assertThrows(NoSuchElementException.class,
+                () -> service.transferir(impar, inexistente, new BigDecimal("10"), 1L));
+        assertThrows(NoSuchElementException.class,
+                () -> service.transferir(par, impar, new BigDecimal("10"), 99L));
+
+        // Todo el saldo sigue disponible
+        service.transferir(impar, par, new BigDecimal("300"), 1L);
+        assertEquals("600.00", service.revisarSaldo(par).toPlainString());
+        assertEquals("0.00", service.revisarSaldo(impar).toPlainString());
+        assertEquals(transferenciasIniciales + 1, service.revisarTotalTransferencias(1L));
+    }
+
+    @Test
+    void testLotePasaPorElMotor() {
+        Long[] ids = crearCuentas("300");
+        Long par = ids[0], impar = ids[2];
+        long transferenciasIniciales = service.revisarTotalTransferencias(1L);
+
+        List<ResultadoTransferenciaDto> resultados = service.transferirLote(List.of(
+                transaccion(par, impar, "200", 1L),
+                transaccion(par, impar, "200", 1L),
+                transaccion(impar, par + 1_000_000, "10", 1L),
+                transaccion(impar, par, "10", 99L),
+                // El abono de la primera puede llegar despues: solo se usa el saldo propio de impar
+                transaccion(impar, par, "300", 1L)));
+
+        assertEquals(List.of(ResultadoTransferenciaDto.OK, ResultadoTransferenciaDto.FONDOS_INSUFICIENTES,
+                        ResultadoTransferenciaDto.CUENTA_NO_ENCONTRADA, ResultadoTransferenciaDto.BANCO_NO_ENCONTRADO,
+                        ResultadoTransferenciaDto.OK),
+                resultados.stream().map(ResultadoTransferenciaDto::getCodigo).toList());
+        assertEquals("400.00", service.revisarSaldo(par).toPlainString());
+        assertEquals("200.00", service.revisarSaldo(impar).toPlainString());
+        assertEquals(transferenciasIniciales + 2, service.revisarTotalTransferencias(1L));
+    }
+
+    private static TransaccionDto transaccion(Long origen, Long destino, String monto, Long bancoId) {
+        TransaccionDto dto = new TransaccionDto();
+        dto.setCuentaOrigenId(origen);
+        dto.setCuentaDestinoId(destino);
+        dto.setMonto(new BigDecimal(monto));
+        dto.setBancoId(bancoId);
+        return dto;
+    }
+
+    @Test
+    void testFalloDelDiarioDeshaceElLote() {
+        Long[] ids = crearCuentas("500");
+        Long par1 = ids[0], par2 = ids[1], impar = ids[2];
+        service.transferir(par1, par2, new BigDecimal("1"), 1L);
+
+        doThrow(new DataAccessResourceFailureException("Base no disponible"))
+                .doCallRealMethod()
+                .when(diario).registrar(any());
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> service.transferir(par1, par2, new BigDecimal("100"), 1L));
+        doThrow(new DataAccessResourceFailureException("Base no disponible"))
+                .doCallRealMethod()
+                .when(diario).registrar(any());
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> service.transferir(par1, impar, new BigDecimal("100"), 1L));
+
+        // Ni la base ni la memoria del motor conservan los lotes fallidos
+        assertEquals("499.00", service.revisarSaldo(par1).toPlainString());
+        service.transferir(par1, impar, new BigDecimal("499"), 1L);
+        assertEquals("0.00", service.revisarSaldo(par1).toPlainString());
+        assertEquals("501.00", service.revisarSaldo(par2).toPlainString());
+        assertEquals("999.00", service.revisarSaldo(impar).toPlainString());
+    }
+
+    @Test
+    void testEscrituraExternaRecargaLaCuenta() {
+        Long[] ids = crearCuentas("100");
+        Long par = ids[0], impar = ids[2];
+        service.transferir(par, impar, new BigDecimal("10"), 1L);
+
+        Cuenta cuenta = service.findById(par);
+        cuenta.setSaldo(new BigDecimal("1000"));
+        service.save(cuenta);
+
+        service.transferir(par, impar, new BigDecimal("900"), 1L);
+        assertEquals("100.00", service.revisarSaldo(par).toPlainString());
+        assertEquals("1010.00", service.revisarSaldo(impar).toPlainString());
+    }
+
+    //Devuelve dos cuentas de id par y una de id impar
+    @Test
+    void testRecargasNoSeDescartanConMuchasPendientes() {
+        Long[] ids = crearCuentas("100");
+        Long par = ids[0], impar = ids[2];
+        service.transferir(par, impar, new BigDecimal("10"), 1L);
+
+        // Muchas mas recargas que lugares en la cola del fragmento: ninguna falla ni se pierde
+        for (int i = 0; i < 200_000; i++) {
+            motor.recargar(List.of(par));
+        }
+        Cuenta cuenta = service.findById(par);
+        cuenta.setSaldo(new BigDecimal("5"));
+        service.save(cuenta);
+
+        // El fragmento toma el saldo guardado y no el que tenia en memoria (90)
+        assertThrows(DineroInsuficienteException.class,
+                () -> service.transferir(par, impar, new BigDecimal("6"), 1L));
+        service.transferir(par, impar, new BigDecimal("5"), 1L);
+        assertEquals("0.00", service.revisarSaldo(par).toPlainString());
+    }
+
+    private Long[] crearCuentas(String saldo) {
+        Long[] ids = new Long[3];
+        int pares = 0;
+        while (pares < 2 || ids[2] == null) {
+            Long id = service.save(new Cuenta(null, "Motor", new BigDecimal(saldo))).getId();
+            if (id % 2 == 0 && pares < 2) {
+                ids[pares++] = id;
+            } else if (id % 2 != 0 && ids[2] == null) {
+                ids[2] = id;
+            }
+        }
+        return ids;
+    }
+}
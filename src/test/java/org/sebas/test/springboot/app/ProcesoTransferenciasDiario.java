@@ -0,0 +1,34 @@
+package org.sebas.test.springboot.app;
+
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//Proceso hijo de DiarioTransferenciasArchivoTest: transfiere sin parar con el diario en archivo y publica
+//por la salida estandar cuantas transferencias ya fueron confirmadas, hasta que lo matan
+public class ProcesoTransferenciasDiario {
+
+    public static void main(String[] args) throws InterruptedException {
+        ConfigurableApplicationContext contexto = DiarioTransferenciasArchivoTest.iniciar(args[0]);
+        CuentaService service = contexto.getBean(CuentaService.class);
+        AtomicLong confirmadas = new AtomicLong();
+        for (int i = 0; i < 8; i++) {
+            // Las cuentas 1 y 3 caen en otro fragmento que la 2: se ejercita la reserva entre fragmentos
+            Long origen = i % 2 == 0 ? 1L : 3L;
+            Thread hilo = new Thread(() -> {
+                while (true) {
+                    service.transferir(origen, 2L, DiarioTransferenciasArchivoTest.MONTO, 1L);
+                    confirmadas.incrementAndGet();
+                }
+            });
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+        while (true) {
+            System.out.println("confirmadas " + confirmadas.get());
+            System.out.flush();
+            Thread.sleep(5);
+        }
+    }
+}
@@ -4,7 +4,11 @@ import org.junit.jupiter.api.Test;
 import org.sebas.test.springboot.app.exceptions.DineroInsuficienteException;
 import org.sebas.test.springboot.app.models.Banco;
 import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.CuentaDto;
+import org.sebas.test.springboot.app.models.ResultadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.TransaccionDto;
 import org.sebas.test.springboot.app.repositories.BancoRepository;
+import org.sebas.test.springboot.app.repositories.ContadorTransferenciasRepository;
 import org.sebas.test.springboot.app.repositories.CuentaRepository;
 import org.sebas.test.springboot.app.services.CuentaService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +18,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,6 +30,8 @@ class SpringbootTestApplicationTests {
 	CuentaRepository cuentaRepository;
 	@MockBean
 	BancoRepository bancoRepository;
+	@MockBean
+	ContadorTransferenciasRepository contadorRepository;
 	@Autowired
 	CuentaService service;
 
@@ -40,35 +47,44 @@ class SpringbootTestApplicationTests {
 
 	@Test
 	void testTransferir() {
-		when(cuentaRepository.findById(1L)).thenReturn(Datos.crearCuenta001());
-		when(cuentaRepository.findById(2L)).thenReturn(Datos.crearCuenta002());
+		Cuenta cuenta1 = Datos.crearCuenta001().orElseThrow();
+		Cuenta cuenta2 = Datos.crearCuenta002().orElseThrow();
+		when(cuentaRepository.findById(1L)).thenReturn(Optional.of(cuenta1));
+		when(cuentaRepository.findById(2L)).thenReturn(Optional.of(cuenta2));
+		when(cuentaRepository.findDtoById(1L)).thenAnswer(invocation -> proyectar(cuenta1));
+		when(cuentaRepository.findDtoById(2L)).thenAnswer(invocation -> proyectar(cuenta2));
 		when(bancoRepository.findById(1L)).thenReturn(Datos.crearBanco());
+		when(contadorRepository.incrementar(eq(1L), anyInt(), eq(1L))).thenReturn(1);
+		when(contadorRepository.sumarPorBanco(1L)).thenReturn(1L);
 
 		BigDecimal saldoOrigen = service.revisarSaldo(1L);
 		BigDecimal saldoDestino = service.revisarSaldo(2L);
 
-		assertEquals("1000", saldoOrigen.toPlainString());
-		assertEquals("2000", saldoDestino.toPlainString());
+		assertEquals("1000.00", saldoOrigen.toPlainString());
+		assertEquals("2000.00", saldoDestino.toPlainString());
 
 		service.transferir(1L, 2L, new BigDecimal("100"), 1L);
 
 		saldoOrigen = service.revisarSaldo(1L);
 		saldoDestino = service.revisarSaldo(2L);
 
-		assertEquals("900", saldoOrigen.toPlainString());
-		assertEquals("2100", saldoDestino.toPlainString());
+		assertEquals("900.00", saldoOrigen.toPlainString());
+		assertEquals("2100.00", saldoDestino.toPlainString());
 
-		int totalTransferencias = service.revisarTotalTransferencias(1L);
+		long totalTransferencias = service.revisarTotalTransferencias(1L);
 		assertEquals(1, totalTransferencias);
 
-		verify(cuentaRepository, times(3)).findById(1L);
-		verify(cuentaRepository, times(3)).findById(2L);
+		verify(cuentaRepository).findById(1L);
+		verify(cuentaRepository).findById(2L);
+		verify(cuentaRepository, times(2)).findDtoById(1L);
+		verify(cuentaRepository, times(2)).findDtoById(2L);
 		verify(cuentaRepository, times(2)).save(any(Cuenta.class));
 
 		verify(bancoRepository, times(2)).findById(1L);
-		verify(bancoRepository).save(any(Banco.class));
+		verify(bancoRepository, never()).save(any(Banco.class));
+		verify(contadorRepository).incrementar(eq(1L), anyInt(), eq(1L));
 
-		verify(cuentaRepository, times(6)).findById(anyLong());
+		verify(cuentaRepository, times(2)).findById(anyLong());
 		verify(cuentaRepository, never()).findAll();
 
 	}
@@ -76,8 +92,12 @@ class SpringbootTestApplicationTests {
 	@Test
 	void testExceptionsCuenta() {
 		// GIVEN
-		when(cuentaRepository.findById(1L)).thenReturn(Datos.crearCuenta001());
-		when(cuentaRepository.findById(2L)).thenReturn(Datos.crearCuenta002());
+		Cuenta cuenta1 = Datos.crearCuenta001().orElseThrow();
+		Cuenta cuenta2 = Datos.crearCuenta002().orElseThrow();
+		when(cuentaRepository.findById(1L)).thenReturn(Optional.of(cuenta1));
+		when(cuentaRepository.findById(2L)).thenReturn(Optional.of(cuenta2));
+		when(cuentaRepository.findDtoById(1L)).thenAnswer(invocation -> proyectar(cuenta1));
+		when(cuentaRepository.findDtoById(2L)).thenAnswer(invocation -> proyectar(cuenta2));
 		when(bancoRepository.findById(1L)).thenReturn(Datos.crearBanco());
 
 		// WHEN
@@ -85,8 +105,8 @@ class SpringbootTestApplicationTests {
 		BigDecimal saldoDestino = service.revisarSaldo(2L);
 
 		// THEN
-		assertEquals("1000", saldoOrigen.toPlainString());
-		assertEquals("2000", saldoDestino.toPlainString());
+		assertEquals("1000.00", saldoOrigen.toPlainString());
+		assertEquals("2000.00", saldoDestino.toPlainString());
 
 		assertThrows(DineroInsuficienteException.class, () -> {
 			service.transferir(1L, 2L, new BigDecimal("1200"), 1L);
@@ -97,21 +117,24 @@ class SpringbootTestApplicationTests {
 		saldoDestino = service.revisarSaldo(2L);
 
 		// TEHN
-		assertEquals("1000", saldoOrigen.toPlainString());
-		assertEquals("2000", saldoDestino.toPlainString());
+		assertEquals("1000.00", saldoOrigen.toPlainString());
+		assertEquals("2000.00", saldoDestino.toPlainString());
 
-		int totalTransferencias = service.revisarTotalTransferencias(1L);
+		long totalTransferencias = service.revisarTotalTransferencias(1L);
 		assertEquals(0, totalTransferencias);
 
-		verify(cuentaRepository, times(3)).findById(1L);
-		verify(cuentaRepository, times(2)).findById(2L);
+		verify(cuentaRepository).findById(1L);
+		verify(cuentaRepository, never()).findById(2L);
+		verify(cuentaRepository, times(2)).findDtoById(1L);
+		verify(cuentaRepository, times(2)).findDtoById(2L);
 
 		verify(cuentaRepository, never()).save(any(Cuenta.class));
 
 		verify(bancoRepository, times(1)).findById(1L);
 		verify(bancoRepository, never()).save(any(Banco.class));
+		verify(contadorRepository, never()).incrementar(anyLong(), anyInt(), anyLong());
 
-		verify(cuentaRepository, times(5)).findById(anyLong());
+		verify(cuentaRepository, times(1)).findById(anyLong());
 		verify(cuentaRepository, never()).findAll();
 
 	}
@@ -119,43 +142,47 @@ class SpringbootTestApplicationTests {
 	@Test
 	void testAssertSame() {
 		// GIVEN
-		when(cuentaRepository.findById(1L)).thenReturn(Datos.crearCuenta001());
+		when(cuentaRepository.findDtoById(1L)).thenAnswer(invocation -> proyectar(Datos.crearCuenta001().orElseThrow()));
 
 		// WHEN
 		Cuenta cuenta1 = service.findById(1L);
 		Cuenta cuenta2 = service.findById(1L);
 
 		// THEN
-		assertSame(cuenta1, cuenta2);
-		assertTrue(cuenta1 == cuenta2);
+		// Cada lectura devuelve una Cuenta sin gestionar, construida desde la proyeccion
+		assertNotSame(cuenta1, cuenta2);
+		assertEquals(cuenta1, cuenta2);
 		assertEquals("Sebastian", cuenta1.getPersona());
 		assertEquals("Sebastian", cuenta2.getPersona());
 
-		verify(cuentaRepository, times(2)).findById(1L);
+		verify(cuentaRepository, times(2)).findDtoById(1L);
+		verify(cuentaRepository, never()).findById(anyLong());
 	}
 
 	@Test
 	void testFindAll() {
 
 		// GIVEN
-		List<Cuenta> cuentas = Arrays.asList(Datos.crearCuenta001().orElseThrow(),Datos.crearCuenta002().orElseThrow());
-		when(cuentaRepository.findAll()).thenReturn(cuentas);
+		List<CuentaDto> cuentas = Arrays.asList(proyectar(Datos.crearCuenta001().orElseThrow()).orElseThrow(),
+				proyectar(Datos.crearCuenta002().orElseThrow()).orElseThrow());
+		when(cuentaRepository.findAllDto()).thenReturn(cuentas);
 
 		// WHEN
-		List<Cuenta> list = service.findAll();
+		List<CuentaDto> list = service.findAll();
 
 		// THEN
 		assertEquals("Sebastian", list.get(0).getPersona());
-		assertEquals(new BigDecimal("1000"), list.get(0).getSaldo());
+		assertEquals(new BigDecimal("1000.00"), list.get(0).getSaldo());
 		assertEquals(1L, list.get(0).getId());
 		assertEquals(2L, list.get(1).getId());
 		assertEquals("John", list.get(1).getPersona());
-		assertEquals(new BigDecimal("2000"), list.get(1).getSaldo());
+		assertEquals(new BigDecimal("2000.00"), list.get(1).getSaldo());
 		assertFalse(list.isEmpty());
 		assertEquals(2, list.size());
-		assertTrue(cuentas.contains(Datos.crearCuenta002().orElseThrow()));
+		assertEquals(Datos.crearCuenta002().orElseThrow(), list.get(1).aCuenta());
 
-		verify(cuentaRepository).findAll();
+		verify(cuentaRepository).findAllDto();
+		verify(cuentaRepository, never()).findAll();
 	}
 
 	@Test
@@ -175,8 +202,58 @@ class SpringbootTestApplicationTests {
 		// THEN
 		assertEquals("Pepe", cuenta.getPersona());
 		assertEquals(3, cuenta.getId());
-		assertEquals("3000", cuenta.getSaldo().toPlainString());
+		assertEquals("3000.00", cuenta.getSaldo().toPlainString());
 		verify(cuentaRepository).save(any());
 
 	}
+
+	@Test
+	void testTransferirLote() {
+		// GIVEN
+		Cuenta cuenta1 = Datos.crearCuenta001().orElseThrow();
+		Cuenta cuenta2 = Datos.crearCuenta002().orElseThrow();
+		when(cuentaRepository.findAllById(any())).thenReturn(List.of(cuenta1, cuenta2));
+		when(bancoRepository.findAllById(any())).thenReturn(List.of(Datos.crearBanco().orElseThrow()));
+		when(contadorRepository.incrementar(eq(1L), anyInt(), anyLong())).thenReturn(1);
+
+		List<TransaccionDto> lote = List.of(
+				crearTransaccion(1L, 2L, "300"),
+				crearTransaccion(1L, 2L, "800"),
+				crearTransaccion(2L, 1L, "100"),
+				crearTransaccion(1L, 9L, "10"),
+				crearTransaccion(1L, 2L, "-5"));
+
+		// WHEN
+		List<ResultadoTransferenciaDto> resultados = service.transferirLote(lote);
+
+		// THEN
+		assertEquals(5, resultados.size());
+		assertEquals(ResultadoTransferenciaDto.OK, resultados.get(0).getCodigo());
+		assertEquals(ResultadoTransferenciaDto.FONDOS_INSUFICIENTES, resultados.get(1).getCodigo());
+		assertEquals(ResultadoTransferenciaDto.OK, resultados.get(2).getCodigo());
+		assertEquals(ResultadoTransferenciaDto.CUENTA_NO_ENCONTRADA, resultados.get(3).getCodigo());
+		assertEquals(ResultadoTransferenciaDto.DATOS_INVALIDOS, resultados.get(4).getCodigo());
+
+		assertEquals("800.00", cuenta1.getSaldo().toPlainString());
+		assertEquals("2200.00", cuenta2.getSaldo().toPlainString());
+
+		verify(cuentaRepository).findAllById(any());
+		verify(cuentaRepository, never()).findById(anyLong());
+		verify(cuentaRepository).saveAll(any());
+		verify(contadorRepository).incrementar(eq(1L), anyInt(), eq(2L));
+	}
+
+	//Lo que devolveria la consulta de proyeccion con el estado actual de la cuenta
+	private static Optional<CuentaDto> proyectar(Cuenta cuenta) {
+		return Optional.of(new CuentaDto(cuenta.getId(), cuenta.getPersona(), cuenta.getSaldo(), cuenta.getVersion()));
+	}
+
+	private TransaccionDto crearTransaccion(Long origen, Long destino, String monto) {
+		TransaccionDto dto = new TransaccionDto();
+		dto.setCuentaOrigenId(origen);
+		dto.setCuentaDestinoId(destino);
+		dto.setMonto(new BigDecimal(monto));
+		dto.setBancoId(1L);
+		return dto;
+	}
 }
@@ -0,0 +1,99 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.exceptions.DineroInsuficienteException;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.ResultadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Misma prueba de estres con el commit agrupado: las transferencias concurrentes comparten transaccion
+@Tag("integracion_concurrencia")
+@SpringBootTest(properties = "app.transferencias.agrupar.habilitado=true")
+class TransferenciaConcurrenteAgrupadaTest extends TransferenciaConcurrenteTest {
+
+    @Test
+    void testExcepcionesComoEnElModoDirecto() {
+        Long origen = service.save(new Cuenta(null, "Agrupada origen", new BigDecimal("100"))).getId();
+        Long destino = service.save(new Cuenta(null, "Agrupada destino", new BigDecimal("0"))).getId();
+
+        service.transferir(origen, destino, new BigDecimal("60"), 1L);
+        assertThrows(DineroInsuficienteException.class,
+                () -> service.transferir(origen, destino, new BigDecimal("60"), 1L));
+        assertThrows(NoSuchElementException.class,
+                () -> service.transferir(origen, destino + 1_000_000, new BigDecimal("1"), 1L));
+        assertThrows(NoSuchElementException.class,
+                () -> service.transferir(origen, destino, new BigDecimal("1"), 999L));
+
+        assertEquals("40.00", service.revisarSaldo(origen).toPlainString());
+        assertEquals("60.00", service.revisarSaldo(destino).toPlainString());
+    }
+
+    //Lo que ejecuta un grupo: los montos invalidos se rechazan uno a uno sin deshacer a los demas
+    @Test
+    void testMontoInvalidoNoDeshaceAlGrupo() throws Exception {
+        Long origen = service.save(new Cuenta(null, "Grupo origen", new BigDecimal("100"))).getId();
+        Long destino = service.save(new Cuenta(null, "Grupo destino", new BigDecimal("0"))).getId();
+        Long lleno = service.save(new Cuenta(null, "Grupo lleno", new BigDecimal("92233720368547758.07"))).getId();
+
+        List<ResultadoTransferenciaDto> resultados = service.transferirLote(List.of(
+                transaccion(origen, destino, "10"),
+                transaccion(origen, destino, "0.001"),
+                transaccion(origen, lleno, "1"),
+                transaccion(origen, destino, "1E+30"),
+                transaccion(origen, destino, "5.50")));
+        assertEquals(List.of(ResultadoTransferenciaDto.OK, ResultadoTransferenciaDto.DATOS_INVALIDOS,
+                        ResultadoTransferenciaDto.DATOS_INVALIDOS, ResultadoTransferenciaDto.DATOS_INVALIDOS,
+                        ResultadoTransferenciaDto.OK),
+                resultados.stream().map(ResultadoTransferenciaDto::getCodigo).toList());
+
+        // Concurrentes: solo falla la del monto invalido, aunque comparta grupo con las demas
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String monto = i == 3 ? "0.001" : "1";
+            tareas.add(executor.submit(() -> {
+                inicio.await();
+                service.transferir(origen, destino, new BigDecimal(monto), 1L);
+                return null;
+            }));
+        }
+        inicio.countDown();
+        for (int i = 0; i < tareas.size(); i++) {
+            Future<?> tarea = tareas.get(i);
+            if (i == 3) {
+                Exception e = assertThrows(Exception.class, () -> tarea.get(10, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalArgumentException.class, e.getCause());
+            } else {
+                tarea.get(10, TimeUnit.SECONDS);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals("77.50", service.revisarSaldo(origen).toPlainString());
+        assertEquals("22.50", service.revisarSaldo(destino).toPlainString());
+    }
+
+    private static TransaccionDto transaccion(Long origen, Long destino, String monto) {
+        TransaccionDto dto = new TransaccionDto();
+        dto.setCuentaOrigenId(origen);
+        dto.setCuentaDestinoId(destino);
+        dto.setMonto(new BigDecimal(monto));
+        dto.setBancoId(1L);
+        return dto;
+    }
+}
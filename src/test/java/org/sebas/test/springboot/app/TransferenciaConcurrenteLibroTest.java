@@ -0,0 +1,10 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.context.SpringBootTest;
+
+//Misma prueba de estres con el libro de movimientos: transferir solo inserta
+@Tag("integracion_concurrencia")
+@SpringBootTest(properties = "app.cuentas.saldo.modo=libro")
+class TransferenciaConcurrenteLibroTest extends TransferenciaConcurrenteTest {
+}
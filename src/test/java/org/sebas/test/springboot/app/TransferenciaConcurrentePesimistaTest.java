@@ -0,0 +1,10 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.context.SpringBootTest;
+
+//Misma prueba de estres con SELECT ... FOR UPDATE en lugar de versionado optimista
+@Tag("integracion_concurrencia")
+@SpringBootTest(properties = "app.transferencias.concurrencia=pesimista")
+class TransferenciaConcurrentePesimistaTest extends TransferenciaConcurrenteTest {
+}
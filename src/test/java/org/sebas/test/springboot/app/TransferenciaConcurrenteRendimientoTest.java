@@ -0,0 +1,62 @@
+package org.sebas.test.springboot.app;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Misma prueba de estres con el perfil de rendimiento: pool fijo, cache de sentencias y sin open-in-view
+@Tag("integracion_concurrencia")
+@ActiveProfiles("rendimiento")
+@SpringBootTest
+class TransferenciaConcurrenteRendimientoTest extends TransferenciaConcurrenteTest {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ApplicationContext contexto;
+
+    @Autowired
+    ValidadorPoolConexiones validador;
+
+    @Test
+    void testPoolDelPerfil() throws Exception {
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        assertEquals(16, pool.getMaximumPoolSize());
+        assertEquals(16, pool.getMinimumIdle());
+        assertEquals(2000, pool.getConnectionTimeout());
+        assertEquals("64", jdbcTemplate.queryForObject(
+                "select setting_value from information_schema.settings where setting_name = 'QUERY_CACHE_SIZE'",
+                String.class));
+        assertTrue(contexto.getBeansOfType(OpenEntityManagerInViewInterceptor.class).isEmpty());
+        assertEquals(List.of(), validador.revisar(pool, 4));
+    }
+
+    @Test
+    void testMetricasDelPool() {
+        jdbcTemplate.queryForObject("select 1", Integer.class);
+
+        assertNotNull(registry.find("hikaricp.connections.active").tag("pool", "cuentas").gauge());
+        assertNotNull(registry.find("hikaricp.connections.idle").tag("pool", "cuentas").gauge());
+        assertNotNull(registry.find("hikaricp.connections.pending").tag("pool", "cuentas").gauge());
+        assertTrue(registry.find("hikaricp.connections.acquire").tag("pool", "cuentas").timer().count() > 0);
+    }
+}
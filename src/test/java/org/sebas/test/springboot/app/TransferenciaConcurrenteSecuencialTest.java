@@ -0,0 +1,12 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.context.SpringBootTest;
+
+//Misma prueba de estres con el motor de escritor unico; con tres fragmentos hay transferencias locales y cruzadas
+@Tag("integracion_concurrencia")
+@SpringBootTest(properties = {
+        "app.transferencias.concurrencia=secuencial",
+        "app.transferencias.motor.fragmentos=3"})
+class TransferenciaConcurrenteSecuencialTest extends TransferenciaConcurrenteTest {
+}
@@ -0,0 +1,181 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.exceptions.DineroInsuficienteException;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.ResultadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.sebas.test.springboot.app.servicesImpl.PoliticaReintentos;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Prueba de estres: muchas transferencias concurrentes sobre pocas cuentas no deben crear ni perder dinero
+@Tag("integracion_concurrencia")
+@SpringBootTest
+class TransferenciaConcurrenteTest {
+
+    @Autowired
+    CuentaService service;
+
+    @Autowired
+    PoliticaReintentos reintentos;
+
+    @Test
+    void testTransferenciasConcurrentesConservanElSaldo() throws Exception {
+        int numCuentas = 6;
+        int hilos = 8;
+        int transferenciasPorHilo = 40;
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < numCuentas; i++) {
+            ids.add(service.save(new Cuenta(null, "Estres " + i, new BigDecimal("1000"))).getId());
+        }
+        BigDecimal totalInicial = sumarSaldos(ids);
+        long transferenciasIniciales = service.revisarTotalTransferencias(1L);
+
+        AtomicInteger exitosas = new AtomicInteger();
+        AtomicInteger rechazadas = new AtomicInteger();
+        AtomicInteger abortadas = new AtomicInteger();
+        ExecutorService executor = crearExecutor(hilos);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+
+        for (int t = 0; t < hilos; t++) {
+            tareas.add(executor.submit(() -> {
+                inicio.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < transferenciasPorHilo; i++) {
+                    Long origen = ids.get(random.nextInt(ids.size()));
+                    Long destino = ids.get(random.nextInt(ids.size()));
+                    if (origen.equals(destino)) {
+                        continue;
+                    }
+                    try {
+                        service.transferir(origen, destino, new BigDecimal(1 + random.nextInt(400)), 1L);
+                        exitosas.incrementAndGet();
+                    } catch (DineroInsuficienteException e) {
+                        rechazadas.incrementAndGet();
+                    } catch (ConcurrencyFailureException e) {
+                        // Reintentos agotados: la transaccion completa se deshizo
+                        abortadas.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        inicio.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(120, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        System.out.println(getClass().getSimpleName() + ": exitosas=" + exitosas + ", rechazadas=" + rechazadas
+                + ", abortadas=" + abortadas + ", tasa de reintentos=" + reintentos.getTasaReintentos());
+
+        assertTrue(exitosas.get() > 0);
+        assertEquals(0, totalInicial.compareTo(sumarSaldos(ids)), "Se perdio o se creo saldo");
+        assertEquals(transferenciasIniciales + exitosas.get(), service.revisarTotalTransferencias(1L));
+        for (Long id : ids) {
+            assertTrue(service.revisarSaldo(id).signum() >= 0);
+        }
+    }
+
+    //La mitad de los hilos transfiere de a una y la otra mitad en lotes sobre las mismas cuentas
+    @Test
+    void testTransferenciasYLotesConcurrentesConservanElSaldo() throws Exception {
+        int numCuentas = 6;
+        int hilos = 8;
+        int operacionesPorHilo = 20;
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < numCuentas; i++) {
+            ids.add(service.save(new Cuenta(null, "Estres lote " + i, new BigDecimal("1000"))).getId());
+        }
+        BigDecimal totalInicial = sumarSaldos(ids);
+        long transferenciasIniciales = service.revisarTotalTransferencias(1L);
+
+        AtomicInteger exitosas = new AtomicInteger();
+        ExecutorService executor = crearExecutor(hilos);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+
+        for (int t = 0; t < hilos; t++) {
+            boolean enLotes = t % 2 == 1;
+            tareas.add(executor.submit(() -> {
+                inicio.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < operacionesPorHilo; i++) {
+                    Long origen = ids.get(random.nextInt(ids.size()));
+                    Long destino = ids.get((ids.indexOf(origen) + 1 + random.nextInt(ids.size() - 1)) % ids.size());
+                    BigDecimal monto = new BigDecimal(1 + random.nextInt(600));
+                    try {
+                        if (!enLotes) {
+                            service.transferir(origen, destino, monto, 1L);
+                            exitosas.incrementAndGet();
+                            continue;
+                        }
+                        List<TransaccionDto> lote = new ArrayList<>();
+                        lote.add(crearTransaccion(origen, destino, monto));
+                        lote.add(crearTransaccion(destino, origen, new BigDecimal(1 + random.nextInt(600))));
+                        lote.add(crearTransaccion(origen, ids.get(random.nextInt(ids.size())), monto));
+                        for (ResultadoTransferenciaDto resultado : service.transferirLote(lote)) {
+                            if (resultado.isExitosa()) {
+                                exitosas.incrementAndGet();
+                            }
+                        }
+                    } catch (DineroInsuficienteException | ConcurrencyFailureException e) {
+                        // Rechazada o deshecha entera: no cuenta
+                    }
+                }
+                return null;
+            }));
+        }
+        inicio.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(120, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertTrue(exitosas.get() > 0);
+        assertEquals(0, totalInicial.compareTo(sumarSaldos(ids)), "Se perdio o se creo saldo");
+        assertEquals(transferenciasIniciales + exitosas.get(), service.revisarTotalTransferencias(1L));
+        for (Long id : ids) {
+            assertTrue(service.revisarSaldo(id).signum() >= 0, "Saldo negativo en la cuenta " + id);
+        }
+    }
+
+    private static TransaccionDto crearTransaccion(Long origen, Long destino, BigDecimal monto) {
+        TransaccionDto dto = new TransaccionDto();
+        dto.setCuentaOrigenId(origen);
+        dto.setCuentaDestinoId(destino);
+        dto.setMonto(monto);
+        dto.setBancoId(1L);
+        return dto;
+    }
+
+    protected ExecutorService crearExecutor(int hilos) {
+        return Executors.newFixedThreadPool(hilos);
+    }
+
+    private BigDecimal sumarSaldos(List<Long> ids) {
+        return ids.stream()
+                .map(service::revisarSaldo)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
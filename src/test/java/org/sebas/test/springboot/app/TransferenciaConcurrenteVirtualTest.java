@@ -0,0 +1,35 @@
+package org.sebas.test.springboot.app;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Misma prueba de estres con el perfil de hilos virtuales: transferencias en hilos virtuales y JDBC acotado
+@Tag("integracion_concurrencia")
+@ActiveProfiles("virtual")
+@SpringBootTest(properties = "app.jdbc.max-concurrencia=2")
+class TransferenciaConcurrenteVirtualTest extends TransferenciaConcurrenteTest {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Override
+    protected ExecutorService crearExecutor(int hilos) {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Test
+    void testDataSourceAcotado() {
+        DataSourceAcotado acotado = assertInstanceOf(DataSourceAcotado.class, dataSource);
+        assertEquals(2, acotado.getMaxConexiones());
+        assertEquals(0, acotado.getEnUso());
+    }
+}
@@ -0,0 +1,114 @@
+package org.sebas.test.springboot.app;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.exceptions.ColaTransferenciasLlenaException;
+import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.EstadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.ResultadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.sebas.test.springboot.app.services.CuentaService;
+import org.sebas.test.springboot.app.servicesImpl.TransferenciasAsincronas;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@Tag("integracion_asincronas")
+@SpringBootTest
+class TransferenciasAsincronasTest {
+
+    @Autowired
+    CuentaService service;
+
+    @Autowired
+    TransferenciasAsincronas asincronas;
+
+    @Test
+    void testSeAplicanEnSegundoPlano() throws InterruptedException {
+        Long origen = service.save(new Cuenta(null, "Asincrona origen", new BigDecimal("100"))).getId();
+        Long destino = service.save(new Cuenta(null, "Asincrona destino", new BigDecimal("0"))).getId();
+
+        List<EstadoTransferenciaDto> aceptadas = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            aceptadas.add(asincronas.encolar(crearDto(origen, destino, "10")));
+        }
+        assertTrue(aceptadas.stream().allMatch(e -> EstadoTransferenciaDto.PENDIENTE.equals(e.getEstado())));
+
+        List<String> estados = new ArrayList<>();
+        for (EstadoTransferenciaDto aceptada : aceptadas) {
+            estados.add(esperarFin(asincronas, aceptada.getId()).getEstado());
+        }
+        assertEquals(10, estados.stream().filter(ResultadoTransferenciaDto.OK::equals).count());
+        assertEquals(2, estados.stream().filter(ResultadoTransferenciaDto.FONDOS_INSUFICIENTES::equals).count());
+        assertEquals(0, BigDecimal.ZERO.compareTo(service.revisarSaldo(origen)));
+        assertEquals(0, new BigDecimal("100").compareTo(service.revisarSaldo(destino)));
+        assertTrue(asincronas.buscar("no-existe").isEmpty());
+    }
+
+    @Test
+    void testColaLlenaRechazaEnElActo() throws InterruptedException {
+        CuentaService lento = mock(CuentaService.class);
+        CountDownLatch enLote = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(lento.transferirLote(anyList())).thenAnswer(invocation -> {
+            enLote.countDown();
+            liberar.await();
+            List<TransaccionDto> lote = invocation.getArgument(0);
+            List<ResultadoTransferenciaDto> resultados = new ArrayList<>();
+            for (int i = 0; i < lote.size(); i++) {
+                resultados.add(ResultadoTransferenciaDto.exitosa(i));
+            }
+            return resultados;
+        });
+        // Un hilo y capacidad 1: la primera queda en el hilo, la segunda ocupa la cola
+        TransferenciasAsincronas acotada = new TransferenciasAsincronas(lento, new SimpleMeterRegistry(),
+                1, 1, 10, 60, 100, 3);
+        try {
+            EstadoTransferenciaDto primera = acotada.encolar(crearDto(1L, 2L, "1"));
+            assertTrue(enLote.await(5, TimeUnit.SECONDS));
+            EstadoTransferenciaDto segunda = acotada.encolar(crearDto(1L, 2L, "1"));
+
+            assertThrows(ColaTransferenciasLlenaException.class, () -> acotada.encolar(crearDto(1L, 2L, "1")));
+            assertEquals(EstadoTransferenciaDto.EN_CURSO, acotada.buscar(primera.getId()).orElseThrow().getEstado());
+            assertEquals(EstadoTransferenciaDto.PENDIENTE, acotada.buscar(segunda.getId()).orElseThrow().getEstado());
+            assertEquals(1, acotada.getPendientes());
+
+            liberar.countDown();
+            assertEquals(ResultadoTransferenciaDto.OK, esperarFin(acotada, segunda.getId()).getEstado());
+        } finally {
+            liberar.countDown();
+            acotada.detener();
+        }
+        assertThrows(ColaTransferenciasLlenaException.class, () -> acotada.encolar(crearDto(1L, 2L, "1")));
+    }
+
+    private static EstadoTransferenciaDto esperarFin(TransferenciasAsincronas asincronas, String id)
+            throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        EstadoTransferenciaDto estado = asincronas.buscar(id).orElseThrow();
+        while (!estado.isTerminada() && System.nanoTime() < limite) {
+            Thread.sleep(10);
+            estado = asincronas.buscar(id).orElseThrow();
+        }
+        return estado;
+    }
+
+    private static TransaccionDto crearDto(Long origen, Long destino, String monto) {
+        TransaccionDto dto = new TransaccionDto();
+        dto.setCuentaOrigenId(origen);
+        dto.setCuentaDestinoId(destino);
+        dto.setMonto(new BigDecimal(monto));
+        dto.setBancoId(1L);
+        return dto;
+    }
+}
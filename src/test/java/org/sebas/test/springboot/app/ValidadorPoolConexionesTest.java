@@ -0,0 +1,48 @@
+package org.sebas.test.springboot.app;
+
+import com.zaxxer.hikari.HikariConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ValidadorPoolConexionesTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPoolSanoNoAvisa() {
+        ValidadorPoolConexiones validador = new ValidadorPoolConexiones(mock(ObjectProvider.class), 50, 2, false, 0);
+
+        assertEquals(List.of(), validador.revisar(pool(16, 16, 2000, 1_800_000, 0), 8));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAvisaCadaValorPatologico() {
+        ValidadorPoolConexiones validador = new ValidadorPoolConexiones(mock(ObjectProvider.class), 1, 4, true, 8);
+
+        List<String> avisos = validador.revisar(pool(4, 1, 60_000, 0, 500), 8);
+
+        assertEquals(7, avisos.size(), avisos::toString);
+        assertTrue(avisos.get(0).startsWith("minimum-idle (1)"));
+        assertTrue(avisos.stream().anyMatch(aviso -> aviso.startsWith("connection-timeout")));
+        assertTrue(avisos.stream().anyMatch(aviso -> aviso.startsWith("app.jdbc.max-concurrencia (8)")));
+
+        assertTrue(validador.revisar(pool(200, 200, 2000, 1_800_000, 0), 8).stream()
+                .anyMatch(aviso -> aviso.startsWith("maximum-pool-size (200)")));
+    }
+
+    private static HikariConfig pool(int maximo, int minimo, long timeout, long vida, long fugas) {
+        HikariConfig config = new HikariConfig();
+        config.setMaximumPoolSize(maximo);
+        config.setMinimumIdle(minimo);
+        config.setConnectionTimeout(timeout);
+        config.setMaxLifetime(vida);
+        config.setLeakDetectionThreshold(fugas);
+        return config;
+    }
+}
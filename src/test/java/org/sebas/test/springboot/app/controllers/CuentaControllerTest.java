@@ -4,21 +4,42 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.exceptions.ColaTransferenciasLlenaException;
 import org.sebas.test.springboot.app.models.Cuenta;
+import org.sebas.test.springboot.app.models.CuentaDto;
+import org.sebas.test.springboot.app.models.Dinero;
+import org.sebas.test.springboot.app.models.EstadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.ImportacionDto;
+import org.sebas.test.springboot.app.models.PaginaCuentasDto;
+import org.sebas.test.springboot.app.models.PaginaTransferenciasDto;
+import org.sebas.test.springboot.app.models.ResultadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.SaldoCuentaDto;
 import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.sebas.test.springboot.app.models.Transferencia;
+import org.sebas.test.springboot.app.repositories.TransferenciaIdempotenteRepository;
 import org.sebas.test.springboot.app.services.CuentaService;
+import org.sebas.test.springboot.app.services.HistorialTransferenciasService;
+import org.sebas.test.springboot.app.services.ImportacionCuentasService;
+import org.sebas.test.springboot.app.servicesImpl.IdempotenciaTransferencias;
+import org.sebas.test.springboot.app.servicesImpl.TransferenciasAsincronas;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -29,6 +50,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 
 @WebMvcTest(CuentaController.class)
+@Import(IdempotenciaTransferencias.class)
 class CuentaControllerTest {
 
     @Autowired
@@ -37,6 +59,18 @@ class CuentaControllerTest {
     @MockBean
     private CuentaService cuentaService;
 
+    @MockBean
+    private TransferenciaIdempotenteRepository transferenciaIdempotenteRepository;
+
+    @MockBean
+    private ImportacionCuentasService importacionService;
+
+    @MockBean
+    private HistorialTransferenciasService historialService;
+
+    @MockBean
+    private TransferenciasAsincronas asincronas;
+
     ObjectMapper objectMapper;
 
     @BeforeEach
@@ -55,11 +89,47 @@ class CuentaControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.persona").value("Sebastian"))
-                .andExpect(jsonPath("$.saldo").value("1000"));
+                .andExpect(jsonPath("$.saldo").value(1000.0));
 
         verify(cuentaService).findById(1L);
     }
 
+    @Test
+    void testSaldos() throws Exception {
+        // GIVEN
+        when(cuentaService.revisarSaldos(List.of(2L, 1L, 9L))).thenReturn(List.of(
+                new SaldoCuentaDto(2L, new BigDecimal("2000.00")),
+                new SaldoCuentaDto(1L, new BigDecimal("1000.00"))));
+        when(cuentaService.revisarSaldos(List.of(1L, 2L, 3L)))
+                .thenThrow(new IllegalArgumentException("La consulta supera el maximo de 2 cuentas"));
+
+        // WHEN
+        mvc.perform(post("/api/cuentas/saldos").contentType(MediaType.APPLICATION_JSON).content("[2,1,9]"))
+        // THEN
+                .andExpect(status().isOk())
+                .andExpect(content().json("[[2,2000.00],[1,1000.00]]", true));
+        mvc.perform(post("/api/cuentas/saldos").contentType(MediaType.APPLICATION_JSON).content("[1,2,3]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.mensaje").value("La consulta supera el maximo de 2 cuentas"));
+    }
+
+    @Test
+    void testBuscar() throws Exception {
+        // GIVEN
+        when(cuentaService.findByPersona("sebastian")).thenReturn(List.of(crearCuenta001().orElseThrow()));
+
+        // WHEN
+        mvc.perform(get("/api/cuentas/buscar").param("persona", "sebastian"))
+        // THEN
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].persona").value("Sebastian"))
+                .andExpect(jsonPath("$[0].personaNormalizada").doesNotExist());
+        mvc.perform(get("/api/cuentas/buscar"))
+                .andExpect(status().isBadRequest());
+        verify(cuentaService).findByPersona("sebastian");
+    }
+
     @Test
     void testTransferir() throws Exception {
 
@@ -96,11 +166,121 @@ class CuentaControllerTest {
         verify(cuentaService).transferir(any(),any(),any(),any());
     }
 
+    @Test
+    void testTransferirMontoConDemasiadosDecimales() throws Exception {
+        TransaccionDto transaccionDto = new TransaccionDto();
+        transaccionDto.setCuentaOrigenId(1L);
+        transaccionDto.setCuentaDestinoId(2L);
+        transaccionDto.setMonto(new BigDecimal("0.001"));
+        transaccionDto.setBancoId(1L);
+
+        mvc.perform(post("/api/cuentas/transferir")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transaccionDto)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.mensaje").exists());
+        verify(cuentaService, never()).transferir(any(), any(), any(), any());
+    }
+
+    @Test
+    void testTransferirIdempotente() throws Exception {
+        // GIVEN
+        TransaccionDto transaccionDto = new TransaccionDto();
+        transaccionDto.setCuentaOrigenId(1L);
+        transaccionDto.setCuentaDestinoId(2L);
+        transaccionDto.setMonto(new BigDecimal(100));
+        transaccionDto.setBancoId(1L);
+
+        // WHEN
+        MvcResult primera = mvc.perform(post("/api/cuentas/transferir")
+                        .header("Idempotency-Key", "clave-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transaccionDto)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("Idempotent-Replayed", "false"))
+                .andExpect(jsonPath("$.mensaje").value("Transferencia realizado con éxito!"))
+                .andReturn();
+
+        // THEN
+        mvc.perform(post("/api/cuentas/transferir")
+                        .header("Idempotency-Key", "clave-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transaccionDto)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(content().string(primera.getResponse().getContentAsString()));
+
+        transaccionDto.setMonto(new BigDecimal(50));
+        mvc.perform(post("/api/cuentas/transferir")
+                        .header("Idempotency-Key", "clave-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transaccionDto)))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(cuentaService, times(1)).transferir(any(), any(), any(), any());
+        verify(transferenciaIdempotenteRepository).reclamar(eq("clave-1"), any(), any());
+        verify(transferenciaIdempotenteRepository).completar(eq("clave-1"), any());
+    }
+
+    @Test
+    void testTransferirAsincrona() throws Exception {
+        // GIVEN
+        TransaccionDto transaccionDto = new TransaccionDto();
+        transaccionDto.setCuentaOrigenId(1L);
+        transaccionDto.setCuentaDestinoId(2L);
+        transaccionDto.setMonto(new BigDecimal(100));
+        transaccionDto.setBancoId(1L);
+        when(asincronas.encolar(any()))
+                .thenReturn(new EstadoTransferenciaDto("t-1", EstadoTransferenciaDto.PENDIENTE, null, transaccionDto))
+                .thenReturn(new EstadoTransferenciaDto("t-2", EstadoTransferenciaDto.PENDIENTE, null, transaccionDto))
+                .thenThrow(new ColaTransferenciasLlenaException("La cola de transferencias esta llena"));
+        when(asincronas.getReintentarEnSegundos()).thenReturn(2L);
+        when(asincronas.buscar("t-1")).thenReturn(Optional.of(
+                new EstadoTransferenciaDto("t-1", ResultadoTransferenciaDto.OK, "Transferencia realizada", transaccionDto)));
+
+        // WHEN
+        mvc.perform(post("/api/cuentas/transferir")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transaccionDto)))
+        // THEN
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/cuentas/transferencias/t-1"))
+                .andExpect(jsonPath("$.estado").value("PENDIENTE"));
+        // Con Idempotency-Key el reintento recibe el mismo id sin volver a encolar
+        for (String repetida : List.of("false", "true")) {
+            mvc.perform(post("/api/cuentas/transferir")
+                            .header("Prefer", "respond-async")
+                            .header("Idempotency-Key", "clave-async")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(transaccionDto)))
+                    .andExpect(status().isAccepted())
+                    .andExpect(header().string("Location", "/api/cuentas/transferencias/t-2"))
+                    .andExpect(header().string("Idempotent-Replayed", repetida));
+        }
+        mvc.perform(post("/api/cuentas/transferir")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transaccionDto)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"));
+        mvc.perform(get("/api/cuentas/transferencias/t-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.estado").value("OK"))
+                .andExpect(jsonPath("$.terminada").value(true));
+        mvc.perform(get("/api/cuentas/transferencias/otra"))
+                .andExpect(status().isNotFound());
+        verify(cuentaService, never()).transferir(any(), any(), any(), any());
+    }
+
     @Test
     void testListar() throws Exception {
 
         // GIVEN
-        List<Cuenta> cuentas = Arrays.asList(crearCuenta001().orElseThrow(),crearCuenta002().orElseThrow());
+        List<CuentaDto> cuentas = Arrays.asList(
+                new CuentaDto(1L, "Sebastian", new BigDecimal("1000"), null),
+                new CuentaDto(2L, "John", new BigDecimal("2000"), null));
         when(cuentaService.findAll()).thenReturn(cuentas);
 
         // WHEN
@@ -110,13 +290,143 @@ class CuentaControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$[0].persona").value("Sebastian"))
                 .andExpect(jsonPath("$[1].persona").value("John"))
-                .andExpect(jsonPath("$[0].saldo").value("1000"))
-                .andExpect(jsonPath("$[1].saldo").value("2000"))
+                .andExpect(jsonPath("$[0].saldo").value(1000.0))
+                .andExpect(jsonPath("$[1].saldo").value(2000.0))
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(content().json(objectMapper.writeValueAsString(cuentas)));
         verify(cuentaService).findAll();
     }
 
+    @Test
+    void testListarPaginado() throws Exception {
+        // GIVEN
+        List<CuentaDto> cuentas = Arrays.asList(
+                new CuentaDto(1L, "Sebastian", new BigDecimal("1000"), null),
+                new CuentaDto(2L, "John", new BigDecimal("2000"), null));
+        when(cuentaService.findPagina(0L, 2)).thenReturn(new PaginaCuentasDto(cuentas, 2L));
+        when(cuentaService.findPagina(2L, 2)).thenReturn(new PaginaCuentasDto(List.of(), null));
+
+        // WHEN
+        mvc.perform(get("/api/cuentas").param("after", "0").param("limit", "2"))
+        // THEN
+                .andExpect(status().isOk())
+                .andExpect(header().string("Link", "</api/cuentas?after=2&limit=2>; rel=\"next\""))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].persona").value("John"));
+
+        mvc.perform(get("/api/cuentas").param("after", "2").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Link"))
+                .andExpect(jsonPath("$", hasSize(0)));
+        verify(cuentaService, never()).findAll();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testListarStream() throws Exception {
+        // GIVEN
+        doAnswer(invocation -> {
+            Consumer<Cuenta> consumidor = invocation.getArgument(0);
+            consumidor.accept(crearCuenta001().orElseThrow());
+            consumidor.accept(crearCuenta002().orElseThrow());
+            return null;
+        }).when(cuentaService).recorrerTodas(any());
+
+        // WHEN
+        MvcResult resultado = mvc.perform(get("/api/cuentas/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // THEN
+        String cuerpo = mvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        String[] lineas = cuerpo.split("\n");
+        assertEquals(2, lineas.length);
+        assertEquals("Sebastian", objectMapper.readTree(lineas[0]).path("persona").asText());
+        assertEquals("John", objectMapper.readTree(lineas[1]).path("persona").asText());
+    }
+
+    @Test
+    void testMovimientos() throws Exception {
+        // GIVEN
+        LocalDateTime desde = LocalDateTime.of(2024, 1, 1, 0, 0);
+        Transferencia transferencia = new Transferencia(1L, 2L, 1L, Dinero.de(new BigDecimal("100")),
+                LocalDateTime.of(2024, 1, 2, 10, 0));
+        when(historialService.buscar(1L, desde, null, null, 1))
+                .thenReturn(new PaginaTransferenciasDto(List.of(transferencia), 15L));
+        when(historialService.buscar(1L, null, null, -1L, null))
+                .thenThrow(new IllegalArgumentException("No existe la transferencia -1"));
+
+        // WHEN
+        mvc.perform(get("/api/cuentas/1/movimientos").param("from", "2024-01-01T00:00:00").param("limit", "1"))
+        // THEN
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].origenId").value(1))
+                .andExpect(jsonPath("$[0].monto").value(100.00))
+                .andExpect(header().string("Link",
+                        "</api/cuentas/1/movimientos?after=15&limit=1&from=2024-01-01T00:00>; rel=\"next\""));
+        mvc.perform(get("/api/cuentas/1/movimientos").param("after", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExportarMovimientos() throws Exception {
+        // GIVEN
+        when(historialService.exportarCsv(eq(2L), isNull(), isNull(), isNull(), any())).thenAnswer(invocation -> {
+            Writer salida = invocation.getArgument(4);
+            salida.write("id,fecha,origen_id,destino_id,banco_id,monto\n1,2024-01-02T10:00,1,2,1,100.00\n");
+            salida.flush();
+            return 1L;
+        });
+
+        // WHEN
+        MvcResult resultado = mvc.perform(get("/api/cuentas/movimientos/exportar").param("cuenta", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // THEN
+        String cuerpo = mvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(2, cuerpo.split("\n").length);
+    }
+
+    @Test
+    void testImportar() throws Exception {
+        // GIVEN
+        ImportacionDto importacion = new ImportacionDto();
+        importacion.setId(7L);
+        importacion.setEstado(ImportacionDto.TERMINADA);
+        importacion.setInsertadas(2);
+        when(importacionService.importar(any(), any())).thenReturn(importacion);
+        when(importacionService.buscar(7L)).thenReturn(Optional.of(importacion));
+
+        // WHEN
+        mvc.perform(post("/api/cuentas/importar").contentType("text/csv")
+                        .content("persona,saldo\nAna,10\nLuis,20.50\n"))
+        // THEN
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.insertadas").value(2))
+                .andExpect(jsonPath("$.estado").value("TERMINADA"));
+        mvc.perform(post("/api/cuentas/importar").contentType("application/x-ndjson")
+                        .content("{\"persona\":\"Ana\",\"saldo\":10}\n"))
+                .andExpect(status().isOk());
+        mvc.perform(post("/api/cuentas/importar").contentType(MediaType.APPLICATION_XML).content("<cuentas/>"))
+                .andExpect(status().isUnsupportedMediaType());
+        mvc.perform(get("/api/cuentas/importaciones/7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(7));
+        mvc.perform(get("/api/cuentas/importaciones/8"))
+                .andExpect(status().isNotFound());
+
+        verify(importacionService).importar(any(), eq(ImportacionCuentasService.Formato.CSV));
+        verify(importacionService).importar(any(), eq(ImportacionCuentasService.Formato.NDJSON));
+    }
+
     @Test
     void testGuardar() throws Exception {
         // GIVEN
@@ -137,8 +447,53 @@ class CuentaControllerTest {
                 .andExpect(jsonPath("$.id", is(3)))
                 .andExpect(jsonPath("$.persona").value("Pepe"))
                 .andExpect(jsonPath("$.persona", is("Pepe")))
-                .andExpect(jsonPath("$.saldo").value(new BigDecimal("3000")))
-                .andExpect(jsonPath("$.saldo", is(3000)));
+                .andExpect(jsonPath("$.saldo").value(3000.0))
+                .andExpect(jsonPath("$.saldo", is(3000.0)));
         verify(cuentaService).save(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testTransferirLote() throws Exception {
+        // GIVEN
+        TransaccionDto primera = new TransaccionDto();
+        primera.setCuentaOrigenId(1L);
+        primera.setCuentaDestinoId(2L);
+        primera.setMonto(new BigDecimal("100"));
+        primera.setBancoId(1L);
+
+        TransaccionDto segunda = new TransaccionDto();
+        segunda.setCuentaOrigenId(1L);
+        segunda.setCuentaDestinoId(2L);
+        segunda.setMonto(new BigDecimal("5000"));
+        segunda.setBancoId(1L);
+
+        when(cuentaService.transferirLote(any())).thenReturn(List.of(
+                ResultadoTransferenciaDto.exitosa(0),
+                new ResultadoTransferenciaDto(1, ResultadoTransferenciaDto.FONDOS_INSUFICIENTES, "Dinero insuficiente en la cuenta.")));
+
+        // WHEN
+        mvc.perform(post("/api/cuentas/transferir/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(primera, segunda))))
+        // THEN
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.exitosas").value(1))
+                .andExpect(jsonPath("$.fallidas").value(1))
+                .andExpect(jsonPath("$.resultados", hasSize(2)))
+                .andExpect(jsonPath("$.resultados[0].codigo").value("OK"))
+                .andExpect(jsonPath("$.resultados[1].codigo").value("FONDOS_INSUFICIENTES"));
+        verify(cuentaService).transferirLote(any());
+    }
+
+    @Test
+    void testTransferirLoteDemasiadoGrande() throws Exception {
+        when(cuentaService.transferirLote(any())).thenThrow(new IllegalArgumentException("El lote supera el maximo"));
+
+        mvc.perform(post("/api/cuentas/transferir/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.mensaje").value("El lote supera el maximo"));
+    }
+}
@@ -148,7 +148,7 @@ class CuentaControllerTestRestTemplateTest {
         assertNotNull(cuentaCreada);
         assertEquals(4L, cuentaCreada.getId());
         assertEquals("Pepa", cuentaCreada.getPersona());
-        assertEquals("3800", cuentaCreada.getSaldo().toPlainString());
+        assertEquals("3800.00", cuentaCreada.getSaldo().toPlainString());
     }
 
     @Test
@@ -218,7 +218,7 @@ class CuentaControllerWebClientTest {
                     assert c != null;
                     assertEquals(5L, c.getId());
                     assertEquals("Pepa", c.getPersona());
-                    assertEquals("5400", c.getSaldo().toPlainString());
+                    assertEquals("5400.00", c.getSaldo().toPlainString());
 
                 });
 
@@ -0,0 +1,121 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.models.ResultadoTransferenciaDto;
+import org.sebas.test.springboot.app.models.TransaccionDto;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgrupadorTransferenciasTest {
+
+    //Los montos mayores a 100 se rechazan, como si no alcanzaran los fondos
+    private static List<ResultadoTransferenciaDto> validar(List<TransaccionDto> lote) {
+        List<ResultadoTransferenciaDto> resultados = new ArrayList<>();
+        for (int i = 0; i < lote.size(); i++) {
+            resultados.add(lote.get(i).getMonto().compareTo(new BigDecimal("100")) > 0
+                    ? new ResultadoTransferenciaDto(i, ResultadoTransferenciaDto.FONDOS_INSUFICIENTES, "Sin fondos")
+                    : ResultadoTransferenciaDto.exitosa(i));
+        }
+        return resultados;
+    }
+
+    @Test
+    void testSinConcurrenciaNoEspera() {
+        List<Integer> grupos = new CopyOnWriteArrayList<>();
+        // Ventana de 10 s: si el lider esperara, la prueba se pasaria del timeout
+        AgrupadorTransferencias agrupador = new AgrupadorTransferencias(lote -> {
+            grupos.add(lote.size());
+            return validar(lote);
+        }, 10_000_000, 64);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            assertTrue(agrupador.transferir(dto("10")).isExitosa());
+            assertEquals(ResultadoTransferenciaDto.FONDOS_INSUFICIENTES, agrupador.transferir(dto("500")).getCodigo());
+        });
+        assertEquals(List.of(1, 1), grupos);
+    }
+
+    @Test
+    void testConcurrentesSeConfirmanJuntosConResultadoPropio() throws Exception {
+        List<Integer> grupos = new CopyOnWriteArrayList<>();
+        CountDownLatch primerGrupo = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        AgrupadorTransferencias agrupador = new AgrupadorTransferencias(lote -> {
+            grupos.add(lote.size());
+            if (grupos.size() == 1) {
+                primerGrupo.countDown();
+                esperar(liberar);
+            }
+            return validar(lote);
+        }, 10_000_000, 5);
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            Future<ResultadoTransferenciaDto> primera = executor.submit(() -> agrupador.transferir(dto("1")));
+            assertTrue(primerGrupo.await(5, TimeUnit.SECONDS));
+            // Mientras el primer grupo se ejecuta, los siguientes se juntan en uno solo
+            List<Future<ResultadoTransferenciaDto>> siguientes = new ArrayList<>();
+            for (String monto : List.of("2", "300", "4", "5")) {
+                siguientes.add(executor.submit(() -> agrupador.transferir(dto(monto))));
+            }
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (agrupador.getEnGrupoAbierto() < 4 && System.nanoTime() < limite) {
+                Thread.sleep(1);
+            }
+            liberar.countDown();
+
+            assertTrue(primera.get(5, TimeUnit.SECONDS).isExitosa());
+            List<String> codigos = new ArrayList<>();
+            for (Future<ResultadoTransferenciaDto> siguiente : siguientes) {
+                codigos.add(siguiente.get(5, TimeUnit.SECONDS).getCodigo());
+            }
+            assertEquals(List.of("OK", "FONDOS_INSUFICIENTES", "OK", "OK"), codigos);
+            assertEquals(List.of(1, 4), grupos);
+        } finally {
+            liberar.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFalloDelGrupoLlegaATodos() {
+        Function<List<TransaccionDto>, List<ResultadoTransferenciaDto>> falla = lote -> {
+            throw new CannotAcquireLockException("Sin bloqueo");
+        };
+        AgrupadorTransferencias agrupador = new AgrupadorTransferencias(falla, 1000, 8);
+
+        assertThrows(CannotAcquireLockException.class, () -> agrupador.transferir(dto("1")));
+        // El agrupador sigue funcionando despues de un grupo fallido
+        assertThrows(CannotAcquireLockException.class, () -> agrupador.transferir(dto("1")));
+    }
+
+    private static TransaccionDto dto(String monto) {
+        TransaccionDto dto = new TransaccionDto();
+        dto.setCuentaOrigenId(1L);
+        dto.setCuentaDestinoId(2L);
+        dto.setMonto(new BigDecimal(monto));
+        dto.setBancoId(1L);
+        return dto;
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.sebas.test.springboot.app.servicesImpl;
+
+import org.junit.jupiter.api.Test;
+import org.sebas.test.springboot.app.services.CuentaLockManager;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedCuentaLockManagerTest {
+
+    @Test
+    void testNumeroDeFranjasPotenciaDeDos() {
+        assertEquals(1024, new StripedCuentaLockManager(1000, 100).getNumFranjas());
+        assertEquals(16, new StripedCuentaLockManager(16, 100).getNumFranjas());
+        assertEquals(1, new StripedCuentaLockManager(1, 100).getNumFranjas());
+        assertThrows(IllegalArgumentException.class, () -> new StripedCuentaLockManager(0, 100));
+    }
+
+    @Test
+    void testTransferenciasCruzadasSinDeadlock() {
+        StripedCuentaLockManager lockManager = new StripedCuentaLockManager(64, 1000);
+        assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                boolean invertido = t % 2 == 0;
+                tareas.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        try (CuentaLockManager.Bloqueo b = invertido ? lockManager.bloquear(2L, 1L) : lockManager.bloquear(1L, 2L)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+            executor.shutdown();
+        });
+    }
+
+    @Test
+    void testTimeoutCuandoLaCuentaEstaOcupada() throws Exception {
+        StripedCuentaLockManager lockManager = new StripedCuentaLockManager(16, 50);
+        CountDownLatch tomado = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Thread duenio = new Thread(() -> {
+            try (CuentaLockManager.Bloqueo b = lockManager.bloquear(7L)) {
+                tomado.countDown();
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        duenio.start();
+        assertTrue(tomado.await(5, TimeUnit.SECONDS));
+
+        assertThrows(CannotAcquireLockException.class, () -> lockManager.bloquear(7L, 8L));
+
+        liberar.countDown();
+        duenio.join();
+
+        // Tras el fallo no debe quedar ninguna franja tomada
+        try (CuentaLockManager.Bloqueo b = lockManager.bloquear(7L, 8L)) {
+            assertNotNull(b);
+        }
+    }
+
+    @Test
+    void testContencionNoPierdeSaldo() throws Exception {
+        int numCuentas = 32;
+        int hilos = 8;
+        int transferenciasPorHilo = 20_000;
+        long saldoInicial = 1_000;
+        long[] saldos = new long[numCuentas];
+        java.util.Arrays.fill(saldos, saldoInicial);
+
+        StripedCuentaLockManager lockManager = new StripedCuentaLockManager(16, 5000);
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+
+        for (int t = 0; t < hilos; t++) {
+            tareas.add(executor.submit(() -> {
+                inicio.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < transferenciasPorHilo; i++) {
+                    // La mitad de las transferencias golpean las cuentas 0 y 1 (cuentas calientes)
+                    int origen = random.nextBoolean() ? random.nextInt(2) : random.nextInt(numCuentas);
+                    int destino = random.nextInt(numCuentas);
+                    if (origen == destino) {
+                        continue;
+                    }
+                    long monto = 1 + random.nextInt(100);
+                    try (CuentaLockManager.Bloqueo b = lockManager.bloquear((long) origen, (long) destino)) {
+                        // Lectura-modificacion-escritura sin atomicidad: solo el bloqueo la protege
+                        long saldoOrigen = saldos[origen];
+                        if (saldoOrigen < monto) {
+                            continue;
+                        }
+                        Thread.yield();
+                        saldos[origen] = saldoOrigen - monto;
+                        saldos[destino] = saldos[destino] + monto;
+                    }
+                }
+                return null;
+            }));
+        }
+        inicio.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        long total = 0;
+        for (long saldo : saldos) {
+            assertTrue(saldo >= 0);
+            total += saldo;
+        }
+        assertEquals(numCuentas * saldoInicial, total);
+    }
+}